@@ -0,0 +1,106 @@
+package org.osgl.aaa.benchmark;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.osgl.aaa.AAA;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the authorization entry points of {@link AAA}.
+ *
+ * Run with the gc profiler to get the allocation rate, e.g.
+ *
+ * ```
+ * java -jar target/benchmarks.jar -prof gc
+ * ```
+ *
+ * or use {@link BenchmarkRunner} which always turns on the gc profiler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    @Benchmark
+    public boolean hasPermissionStaticByObject(AuthorizationState state) {
+        return AAA.hasPermission(state.staticPermission);
+    }
+
+    @Benchmark
+    public boolean hasPermissionStaticByName(AuthorizationState state) {
+        return AAA.hasPermission(AuthorizationState.Perm.TARGET.name());
+    }
+
+    @Benchmark
+    public boolean hasPermissionStaticByEnum(AuthorizationState state) {
+        return AAA.hasPermission(AuthorizationState.Perm.TARGET);
+    }
+
+    @Benchmark
+    public boolean hasPermissionDynamicByObject(AuthorizationState state) {
+        return AAA.hasPermission(state.doc, state.dynamicPermission);
+    }
+
+    @Benchmark
+    public boolean hasPermissionDynamicByName(AuthorizationState state) {
+        return AAA.hasPermission(state.doc, AuthorizationState.Perm.TARGET_DYN.name());
+    }
+
+    @Benchmark
+    public boolean hasPermissionDynamicByEnum(AuthorizationState state) {
+        return AAA.hasPermission(state.doc, AuthorizationState.Perm.TARGET_DYN);
+    }
+
+    @Benchmark
+    public boolean compiledCheckDynamic(AuthorizationState state) {
+        return state.compiledCheck.check(state.doc);
+    }
+
+    @Benchmark
+    public void requirePermissionAudited(AuthorizationState state) {
+        AAA.requirePermission(state.doc, state.dynamicPermission);
+    }
+
+    @Benchmark
+    public boolean hasPrivilegeByObject(AuthorizationState state) {
+        return AAA.hasPrivilege(state.privilege);
+    }
+
+    @Benchmark
+    public boolean hasPrivilegeByLevel(AuthorizationState state) {
+        return AAA.hasPrivilege(3);
+    }
+
+    @Benchmark
+    public boolean hasPrivilegeByEnum(AuthorizationState state) {
+        return AAA.hasPrivilege(AuthorizationState.Priv.MANAGER);
+    }
+
+    @Benchmark
+    public boolean hasPermissionOrPrivilege(AuthorizationState state) {
+        return AAA.hasPermissionOrPrivilege(state.doc, AuthorizationState.Perm.TARGET_DYN, AuthorizationState.Priv.MANAGER);
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.osgl.aaa.benchmark;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.osgl.aaa.*;
+import org.osgl.aaa.impl.*;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sets up an AAA context with a principal granted `roleCount` roles, each role
+ * granted `permissionsPerRole` permissions, each permission implies a chain of
+ * `impliedDepth` permissions.
+ *
+ * The permissions being checked are granted through the deepest implied permission
+ * of the last role, which is the worst case for permission resolution.
+ */
+@State(Scope.Benchmark)
+public class AuthorizationState {
+
+    public enum Perm {
+        TARGET, TARGET_DYN
+    }
+
+    public enum Priv {
+        LOW, MANAGER
+    }
+
+    public static class Doc {
+        final String owner;
+
+        Doc(String owner) {
+            this.owner = owner;
+        }
+    }
+
+    public static final String USER = "bench-user";
+
+    @Param({"1", "8", "32"})
+    public int roleCount;
+
+    @Param({"4", "32"})
+    public int permissionsPerRole;
+
+    @Param({"0", "4"})
+    public int impliedDepth;
+
+    AAAContext context;
+    Principal principal;
+    Permission staticPermission;
+    Permission dynamicPermission;
+    Privilege privilege;
+    AuthorizationCheck compiledCheck;
+    Doc doc;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        InMemoryPersistentService db = new InMemoryPersistentService();
+
+        final Permission target = new SimplePermission(Perm.TARGET.name(), false);
+        final Permission targetDyn = new SimplePermission(Perm.TARGET_DYN.name(), true);
+        db.save(target);
+        db.save(targetDyn);
+
+        Privilege low = new SimplePrivilege(Priv.LOW.name(), 1);
+        privilege = new SimplePrivilege(Priv.MANAGER.name(), 5);
+        db.save(low);
+        db.save(privilege);
+
+        SimplePrincipal.Builder pb = new SimplePrincipal.Builder(USER).grantPrivilege(privilege);
+        for (int r = 0; r < roleCount; ++r) {
+            SimpleRole.Builder rb = new SimpleRole.Builder("role-" + r);
+            for (int i = 0; i < permissionsPerRole; ++i) {
+                boolean last = r == roleCount - 1 && i == permissionsPerRole - 1;
+                rb.grantPermission(chain(db, "perm-" + r + "-" + i, impliedDepth,
+                        last ? new Permission[]{target, targetDyn} : new Permission[0]));
+            }
+            Role role = rb.toRole();
+            db.save(role);
+            pb.grantRole(role);
+        }
+        principal = pb.toPrincipal();
+        db.save(principal);
+
+        context = new SimpleAAAContext(new NoAuthentication(), new SimpleAuthorizationService(), db, DumbAuditor.INSTANCE);
+        context.setCurrentPrincipal(principal);
+        AAA.setDefaultContext(context);
+        AAA.registerDynamicPermissionChecker(new DynamicPermissionCheckHelper<Doc>() {
+            @Override
+            public List<? extends Permission> permissions() {
+                return Collections.singletonList(targetDyn);
+            }
+
+            @Override
+            public boolean isAssociated(Doc target, Principal user) {
+                return target.owner.equals(user.getName());
+            }
+        }, Doc.class);
+
+        staticPermission = target;
+        dynamicPermission = targetDyn;
+        compiledCheck = AAA.compile(targetDyn);
+        doc = new Doc(USER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AAA.clearContext();
+        AAA.clearEnumBindings();
+    }
+
+    private static Permission chain(AAAPersistentService db, String name, int depth, Permission[] leaf) {
+        SimplePermission.Builder pb = new SimplePermission.Builder(name);
+        if (depth == 0) {
+            for (Permission p : leaf) {
+                pb.addImplied(p);
+            }
+        } else {
+            pb.addImplied(chain(db, name + "-" + depth, depth - 1, leaf));
+        }
+        Permission permission = pb.toPermission();
+        db.save(permission);
+        return permission;
+    }
+
+    static class NoAuthentication implements AuthenticationService {
+        @Override
+        public Principal authenticate(String username, String password) {
+            return null;
+        }
+
+        @Override
+        public Principal authenticate(String username, char[] password) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.osgl.aaa.benchmark;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.osgl.aaa.AAA;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares binding the {@link org.osgl.aaa.AAAContext} with
+ * {@link AAA#setContext(org.osgl.aaa.AAAContext)}/{@link AAA#clearContext()}
+ * against the scoped {@link AAA#callWith(org.osgl.aaa.AAAContext, Callable)} API.
+ *
+ * The `xxxPerTask` benchmarks start `tasks` platform or virtual threads, each
+ * binds the context, runs a permission check and unbinds the context.
+ *
+ * `AAA.callWith` uses `ScopedValue` on JVMs that provide it, run with
+ * `-Dosgl.aaa.scoped_value=false` to measure its thread local fallback.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBenchmark {
+
+    @Benchmark
+    public boolean threadLocal(ContextState state) {
+        AAA.setContext(state.context);
+        try {
+            return state.check();
+        } finally {
+            AAA.clearContext();
+        }
+    }
+
+    @Benchmark
+    public boolean scoped(final ContextState state) throws Exception {
+        return AAA.callWith(state.context, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return state.check();
+            }
+        });
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int threadLocalPerTask(final ThreadedContextState state) throws InterruptedException {
+        return runTasks(state, new Runnable() {
+            @Override
+            public void run() {
+                AAA.setContext(state.context);
+                try {
+                    state.check();
+                } finally {
+                    AAA.clearContext();
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int scopedPerTask(final ThreadedContextState state) throws InterruptedException {
+        return runTasks(state, new Runnable() {
+            @Override
+            public void run() {
+                AAA.runWith(state.context, new Runnable() {
+                    @Override
+                    public void run() {
+                        state.check();
+                    }
+                });
+            }
+        });
+    }
+
+    private static int runTasks(ThreadedContextState state, final Runnable task) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(state.tasks);
+        final AtomicInteger done = new AtomicInteger();
+        Runnable counted = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                    done.incrementAndGet();
+                } finally {
+                    latch.countDown();
+                }
+            }
+        };
+        for (int i = 0; i < state.tasks; ++i) {
+            state.threadFactory.newThread(counted).start();
+        }
+        latch.await();
+        return done.get();
+    }
+
+}
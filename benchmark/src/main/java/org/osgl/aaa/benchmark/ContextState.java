@@ -0,0 +1,56 @@
+package org.osgl.aaa.benchmark;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.osgl.aaa.*;
+import org.osgl.aaa.impl.*;
+
+/**
+ * Sets up an AAA context with a principal granted a single permission, used
+ * to measure the cost of binding the context to the current scope.
+ *
+ * The principal is passed to the permission checks explicitly so that the
+ * {@link AAA#clearContext()} call on the thread local path, which resets the
+ * current principal of the context, does not affect the result.
+ */
+@State(Scope.Benchmark)
+public class ContextState {
+
+    AAAContext context;
+    Principal principal;
+    Permission permission;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        InMemoryPersistentService db = new InMemoryPersistentService();
+        permission = new SimplePermission("read", false);
+        db.save(permission);
+        principal = new SimplePrincipal.Builder(AuthorizationState.USER).grantPermission(permission).toPrincipal();
+        db.save(principal);
+        context = new SimpleAAAContext(new AuthorizationState.NoAuthentication(), new SimpleAuthorizationService(), db, DumbAuditor.INSTANCE);
+    }
+
+    boolean check() {
+        return AAA.hasPermission(null, principal, permission, null);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.osgl.aaa.benchmark;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Extends {@link ContextState} with the kind of threads the tasks run on.
+ *
+ * Virtual threads require Java 21 or later. The trials with `threadKind=virtual`
+ * fail on earlier JVMs while the other trials still run.
+ */
+@State(Scope.Benchmark)
+public class ThreadedContextState extends ContextState {
+
+    @Param({"platform", "virtual"})
+    public String threadKind;
+
+    @Param({"1000"})
+    public int tasks;
+
+    ThreadFactory threadFactory;
+
+    @Setup(Level.Trial)
+    public void setupThreadFactory() throws Exception {
+        if ("virtual".equals(threadKind)) {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            threadFactory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } else {
+            threadFactory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r);
+                }
+            };
+        }
+    }
+
+}
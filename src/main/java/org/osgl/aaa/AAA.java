@@ -31,9 +31,16 @@ import org.osgl.util.E;
 import org.osgl.util.S;
 import osgl.version.Version;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * The facade to access osgl aaa security library functions
@@ -56,14 +63,79 @@ public enum  AAA {
      */
     public static final int SUPER_USER = 9999;
 
-    private static final Map<$.T2<Permission, Class>, DynamicPermissionCheckHelper> dynamicCheckers = C.newMap();
+    private static final DynamicPermissionCheckHelperRegistry dynamicCheckers = new DynamicPermissionCheckHelperRegistry();
 
-    private static final ThreadLocal<AAAContext> context = new ThreadLocal<AAAContext>();
+    private static final EnumBinding<Permission> permissionEnums = new EnumBinding<Permission>(Permission.class);
+
+    private static final EnumBinding<Privilege> privilegeEnums = new EnumBinding<Privilege>(Privilege.class);
 
-    private static final Permission NULL_PERMISSION = null;
+    private static final ThreadLocal<AAAContext> context = new ThreadLocal<AAAContext>();
 
     private static AAAContext defaultContext;
 
+    private static volatile DenialMode denialMode = DenialMode.FULL_STACK;
+
+    private static volatile DecisionCache decisionCache;
+
+    private static volatile AAAMetrics metrics = AAAMetrics.NOOP;
+
+    /**
+     * Set how {@link AccessDeniedException} is raised on authorization failure.
+     *
+     * Default mode is {@link DenialMode#FULL_STACK}
+     *
+     * @param mode the denial mode
+     */
+    public static void setDenialMode(DenialMode mode) {
+        denialMode = $.requireNotNull(mode);
+    }
+
+    /**
+     * Returns the current {@link DenialMode}
+     * @return the denial mode
+     */
+    public static DenialMode denialMode() {
+        return denialMode;
+    }
+
+    /**
+     * Set the {@link DecisionCache} used to cache dynamic permission check result.
+     *
+     * By default there is no decision cache
+     *
+     * @param cache the decision cache, or `null` to disable decision caching
+     */
+    public static void setDecisionCache(DecisionCache cache) {
+        decisionCache = cache;
+    }
+
+    /**
+     * Returns the {@link DecisionCache} set
+     * @return the decision cache or `null` if not set
+     */
+    public static DecisionCache decisionCache() {
+        return decisionCache;
+    }
+
+    /**
+     * Set the {@link AAAMetrics} that receives authorization metrics.
+     *
+     * By default it is {@link AAAMetrics#NOOP}
+     *
+     * @param aaaMetrics the metrics implementation, or `null` to disable metrics
+     */
+    public static void setMetrics(AAAMetrics aaaMetrics) {
+        metrics = null == aaaMetrics ? AAAMetrics.NOOP : aaaMetrics;
+    }
+
+    /**
+     * Returns the {@link AAAMetrics} set
+     * @return the metrics implementation
+     */
+    public static AAAMetrics metrics() {
+        return metrics;
+    }
+
     public static void setDefaultContext(AAAContext context) {
         defaultContext = $.requireNotNull(context);
     }
@@ -92,23 +164,150 @@ public enum  AAA {
     }
 
     /**
-     * Return the {@link AAAContext context} from the current thread local
+     * Return the {@link AAAContext context} of the current scope.
+     *
+     * The context bound by {@link #runWith(AAAContext, Runnable)} or
+     * {@link #callWith(AAAContext, Callable)} is returned first, then the
+     * context {@link #setContext(AAAContext) set} to the thread local, then the
+     * {@link #setDefaultContext(AAAContext) default context}
+     *
      * @return the context
      */
     public static AAAContext context() {
-        AAAContext current = context.get();
+        AAAContext current = ContextScope.current();
+        if (null != current) {
+            return current;
+        }
+        current = context.get();
         return null != current ? current : defaultContext;
     }
 
+    /**
+     * Run a task with the context specified bound as the {@link #context() current context}.
+     *
+     * Unlike {@link #setContext(AAAContext)}/{@link #clearContext()}, the binding
+     * is removed when the task returns, and the previous context, if any, is restored.
+     * It uses `java.lang.ScopedValue` when the JVM provides it, which does not
+     * take thread local storage and thus fits well with virtual threads, and
+     * falls back to a thread local otherwise.
+     *
+     * The scoped context takes precedence over the context set by
+     * {@link #setContext(AAAContext)} within the task.
+     *
+     * @param context the context to be bound
+     * @param task the task
+     */
+    public static void runWith(AAAContext context, Runnable task) {
+        ContextScope.run($.requireNotNull(context), $.requireNotNull(task));
+    }
+
+    /**
+     * Call a task with the context specified bound as the {@link #context() current context}.
+     *
+     * See {@link #runWith(AAAContext, Runnable)}
+     *
+     * @param context the context to be bound
+     * @param task the task
+     * @param <T> the result type
+     * @return the result of the task
+     * @throws Exception if the task raised exception
+     */
+    public static <T> T callWith(AAAContext context, Callable<T> task) throws Exception {
+        return ContextScope.call($.requireNotNull(context), $.requireNotNull(task));
+    }
+
+    /**
+     * Wrap a task so that it runs with the {@link #context() current context}
+     * of the calling thread, no matter which thread runs it.
+     *
+     * The context is captured along with its current principal and guarded target
+     * when this method is called. The task sees a snapshot of them, thus it is not
+     * affected if the calling thread {@link #clearContext() clears} the context
+     * before the task runs. The context is bound with
+     * {@link #runWith(AAAContext, Runnable)} and nothing is left on the worker
+     * thread after the task returns.
+     *
+     * Note within the task {@link #context()} does not return the original context
+     * instance but a view of it, which has the captured principal and guarded target
+     * and delegates everything else to the original context. Thus the task shall not
+     * cast the context to the application's context class, and methods of the
+     * original context that are not declared abstract in {@link AAAContext} are only
+     * called if they do not depend on the principal or guarded target, i.e. the
+     * service getters, the super user settings and the privilege, permission and
+     * role lookups. Use {@link #runWith(AAAContext, Runnable)} to bind a context
+     * instance as is.
+     *
+     * @param task the task
+     * @return the wrapped task, or the task itself if there is no current context
+     */
+    public static Runnable wrap(Runnable task) {
+        return ContextPropagation.wrap($.requireNotNull(task));
+    }
+
+    /**
+     * Wrap a task so that it runs with the {@link #context() current context}
+     * of the calling thread. See {@link #wrap(Runnable)}
+     *
+     * @param task the task
+     * @param <T> the result type
+     * @return the wrapped task, or the task itself if there is no current context
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        return ContextPropagation.wrap($.requireNotNull(task));
+    }
+
+    /**
+     * Wrap an executor so that every task runs with the {@link #context() current context}
+     * of the thread calling {@link Executor#execute(Runnable)}. See {@link #wrap(Runnable)}
+     *
+     * The returned executor could be passed to the async methods of
+     * `java.util.concurrent.CompletableFuture` to carry the context to the stages, e.g.
+     *
+     * ```java
+     * Executor executor = AAA.wrap(pool);
+     * CompletableFuture.supplyAsync(() -> AAA.hasPermission("doc:read"), executor);
+     * ```
+     *
+     * @param executor the executor
+     * @return the wrapped executor
+     */
+    public static Executor wrap(Executor executor) {
+        return new ContextPropagation.ContextExecutor($.requireNotNull(executor));
+    }
+
+    /**
+     * Wrap an executor service so that every task runs with the {@link #context() current context}
+     * of the thread submitting it. See {@link #wrap(Runnable)} and {@link #wrap(Executor)}
+     *
+     * @param executor the executor service
+     * @return the wrapped executor service
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        return new ContextPropagation.ContextExecutorService($.requireNotNull(executor));
+    }
+
     public static <T> void registerDynamicPermissionChecker(DynamicPermissionCheckHelper<T> checker, Class<T> clz) {
-        List<? extends Permission> l = checker.permissions();
-        if (l.isEmpty()) {
-            dynamicCheckers.put(dpchKey(NULL_PERMISSION, clz), checker);
-        } else {
-            for (Permission p : l) {
-                dynamicCheckers.put(dpchKey(p, clz), checker);
-            }
-        }
+        dynamicCheckers.register(checker, clz);
+    }
+
+    /**
+     * Drop the {@link Permission permissions} and {@link Privilege privileges} bound
+     * to enum constants.
+     *
+     * The first time an enum constant is used to check permission or privilege, the
+     * object with the same name is looked up from {@link AAAContext#getPersistentService()}
+     * and bound to the enum constant by its ordinal. Application shall call this
+     * method when permissions or privileges are changed in the persistent storage
+     */
+    public static void clearEnumBindings() {
+        permissionEnums.clear();
+        privilegeEnums.clear();
+    }
+
+    // changes each time the enum bindings are dropped, used by `AuthorizationCheck`
+    // to tell if the permission it looked up by name is stale
+    static Object enumBindingVersion() {
+        return permissionEnums.version();
     }
 
     /**
@@ -147,7 +346,7 @@ public enum  AAA {
      * @return `true` if the current principal has the permission on the target resource
      */
     public static boolean hasPermission(Enum<?> permissionEnum) {
-        return hasPermission(null, permissionEnum.name(), true, null);
+        return hasPermission(null, permissionEnum, true, null);
     }
 
     /**
@@ -189,7 +388,7 @@ public enum  AAA {
      * @return `true` if the current principal has the permission on the target resource
      */
     public static boolean hasPermission(Object guardedResource, Enum<?> permissionEnum) {
-        return hasPermission(guardedResource, permissionEnum.name(), true, null);
+        return hasPermission(guardedResource, permissionEnum, true, null);
     }
 
     /**
@@ -236,7 +435,7 @@ public enum  AAA {
      */
     @SuppressWarnings("unused")
     public static boolean hasPermission(Object guardedResource, Principal principal, Enum<?> permissionEnum) {
-        return hasPermission(guardedResource, principal, permissionEnum.name(), null);
+        return hasPermission(guardedResource, principal, permissionEnum, null);
     }
 
     /**
@@ -287,7 +486,7 @@ public enum  AAA {
      */
     @SuppressWarnings("unused")
     public static boolean hasPermission(Object guardedResource, Enum<?> permissionEnum, boolean allowSystem) {
-        return hasPermission(guardedResource, permissionEnum.name(), allowSystem, null);
+        return hasPermission(guardedResource, permissionEnum, allowSystem, null);
     }
 
     /**
@@ -345,7 +544,7 @@ public enum  AAA {
      * ```java
      * context = ensureContext(context);
      * Principal principal = context.getPrincipal(allowSystem);
-     * return hasPermission(guardedResource, principal, permissionEnum.name(), context);
+     * return hasPermission(guardedResource, principal, permissionEnum, context);
      * ```
      * @param guardedResource the guarded target
      * @param permissionEnum the enum that provides the name of the permission required
@@ -357,7 +556,7 @@ public enum  AAA {
     public static boolean hasPermission(Object guardedResource, Enum<?> permissionEnum, boolean allowSystem, AAAContext context) {
         context = ensureContext(context);
         Principal principal = context.getPrincipal(allowSystem);
-        return hasPermission(guardedResource, principal, permissionEnum.name(), context);
+        return hasPermission(guardedResource, principal, permissionEnum, context);
     }
 
     /**
@@ -378,25 +577,97 @@ public enum  AAA {
      * @see AAAContext#getCurrentPrincipal()
      */
     public static boolean hasPermission(Object guardedResource, Principal principal, Permission permission, AAAContext context) {
+        AAAMetrics m = metrics;
+        if (AAAMetrics.NOOP == m) {
+            return checkPermission(guardedResource, principal, permission, context, null);
+        }
+        boolean granted = checkPermission(guardedResource, principal, permission, context, m);
+        m.onPermissionCheck(permission.getName(), granted);
+        return granted;
+    }
+
+    // `m` is `null` when metrics is disabled
+    private static boolean checkPermission(Object guardedResource, Principal principal, Permission permission, AAAContext context, AAAMetrics m) {
         context = ensureContext(context);
         principal = ensurePrincipal(principal, context);
+        return checkPermission(guardedResource, principal, permission, context, dynamicCheckers, m);
+    }
+
+    /**
+     * Resolves the {@link DynamicPermissionCheckHelper} of a permission and a guarded
+     * resource type
+     */
+    interface HelperLookup {
+        DynamicPermissionCheckHelper get(Permission permission, Class<?> resourceType);
+    }
+
+    // the permission check shared by `hasPermission` and `AuthorizationCheck`. The
+    // context and principal must have been resolved, the guarded resource is taken
+    // from the context only when the permission is dynamic.
+    // `m` is `null` when metrics is disabled
+    static boolean checkPermission(Object guardedResource, Principal principal, Permission permission, AAAContext context, HelperLookup helpers, AAAMetrics m) {
         if (checkSuperUser(principal, context)) {
             return true;
         }
-
-        guardedResource = tryGetGuardedResource(guardedResource, context);
         AuthorizationService auth = context.getAuthorizationService();
-        Collection<Permission> allPermissions = auth.getAllPermissions(principal, context);
-        boolean hasAccess = allPermissions.contains(permission);
-        if (!hasAccess) return false;
-        if (!permission.isDynamic() || isSystem(principal)) return true;
-
+        Boolean decision = decideStatically(principal, permission, auth.getAllPermissions(principal, context));
+        if (null != decision) {
+            return decision;
+        }
+        guardedResource = requireGuardedResource(guardedResource, context);
+        decision = cachedDecision(principal, permission, guardedResource);
+        if (null != decision) {
+            return decision;
+        }
+        Class<?> resourceType = guardedResource.getClass();
+        DynamicPermissionCheckHelper dpch = helpers.get(permission, resourceType);
+        long start = null == m ? 0L : System.nanoTime();
+        boolean associated = dpch.isAssociated(guardedResource, principal);
+        onAssociated(principal, permission, guardedResource, start, associated, m);
+        return associated;
+    }
+
+    // decide on the permissions granted to the principal, returns `null` if
+    // the permission is dynamic and the dynamic permission check helper must
+    // be consulted
+    static Boolean decideStatically(Principal principal, Permission permission, Collection<Permission> allPermissions) {
+        if (null == allPermissions || !allPermissions.contains(permission)) {
+            return false;
+        }
         // in other words if permission is static then we do not need
         // a guarded resource instance
+        if (!permission.isDynamic() || isSystem(principal)) {
+            return true;
+        }
+        return null;
+    }
+
+    static Object requireGuardedResource(Object guardedResource, AAAContext context) {
+        guardedResource = tryGetGuardedResource(guardedResource, context);
         E.illegalStateIf(null == guardedResource, "Cannot determine guarded resource for dynamic permission");
-        Class<?> resourceType = guardedResource.getClass();
-        DynamicPermissionCheckHelper dpch = dynamicPermissionCheckHelper(permission, resourceType);
-        return dpch.isAssociated(guardedResource, principal);
+        return guardedResource;
+    }
+
+    // returns `null` if there is no decision cache or the decision is not cached
+    static Boolean cachedDecision(Principal principal, Permission permission, Object guardedResource) {
+        DecisionCache cache = decisionCache;
+        return null == cache ? null : cache.get(principal, permission, guardedResource);
+    }
+
+    // report the helper invocation started at `start` and cache the result.
+    // `m` is `null` when metrics is disabled
+    static void onAssociated(Principal principal, Permission permission, Object guardedResource, long start, boolean associated, AAAMetrics m) {
+        if (null != m) {
+            m.onHelperInvocation(permission.getName(), guardedResource.getClass(), System.nanoTime() - start);
+        }
+        putDecision(principal, permission, guardedResource, associated);
+    }
+
+    private static void putDecision(Principal principal, Permission permission, Object guardedResource, boolean associated) {
+        DecisionCache cache = decisionCache;
+        if (null != cache) {
+            cache.put(principal, permission, guardedResource, associated);
+        }
     }
 
     /**
@@ -420,6 +691,222 @@ public enum  AAA {
         return null != perm && hasPermission(guardedResource, principal, perm, context);
     }
 
+    /**
+     * Returns the elements of `resources` on which the current principal has the
+     * permission specified.
+     *
+     * @param resources the guarded resources
+     * @param permission the permission required
+     * @param <T> the type of the guarded resource
+     * @return a list of permitted resources in the iteration order of `resources`
+     * @see #filterPermitted(Collection, Principal, Permission, AAAContext)
+     */
+    public static <T> C.List<T> filterPermitted(Collection<T> resources, Permission permission) {
+        return filterPermitted(resources, null, permission, null);
+    }
+
+    /**
+     * Returns the elements of `resources` on which the current principal has the
+     * permission specified by name.
+     *
+     * @param resources the guarded resources
+     * @param permissionName the name of the permission required
+     * @param <T> the type of the guarded resource
+     * @return a list of permitted resources in the iteration order of `resources`
+     * @see #filterPermitted(Collection, Principal, Permission, AAAContext)
+     */
+    public static <T> C.List<T> filterPermitted(Collection<T> resources, String permissionName) {
+        AAAContext context = ensureContext(null);
+        Permission permission = context.getPersistentService().findByName(permissionName, Permission.class);
+        return filterPermitted(resources, null, permission, context);
+    }
+
+    /**
+     * Returns the elements of `resources` on which the current principal has the
+     * permission specified by enum.
+     *
+     * @param resources the guarded resources
+     * @param permissionEnum the enum that provides the name of the permission required
+     * @param <T> the type of the guarded resource
+     * @return a list of permitted resources in the iteration order of `resources`
+     * @see #filterPermitted(Collection, Principal, Permission, AAAContext)
+     */
+    public static <T> C.List<T> filterPermitted(Collection<T> resources, Enum<?> permissionEnum) {
+        AAAContext context = ensureContext(null);
+        return filterPermitted(resources, null, permissionOf(permissionEnum, context), context);
+    }
+
+    /**
+     * Returns the elements of `resources` on which the principal has the permission
+     * specified.
+     *
+     * The result is the same as calling {@link #hasPermission(Object, Principal, Permission, AAAContext)}
+     * on each element, however the context, the principal, the principal's permissions and
+     * the {@link DynamicPermissionCheckHelper} are resolved only once for the whole
+     * collection. `null` elements are never permitted.
+     *
+     * @param resources the guarded resources
+     * @param principal the principal, if `null` then the context's current principal is used
+     * @param permission the permission required
+     * @param context the {@link AAAContext context}
+     * @param <T> the type of the guarded resource
+     * @return a list of permitted resources in the iteration order of `resources`
+     */
+    public static <T> C.List<T> filterPermitted(Collection<T> resources, Principal principal, Permission permission, AAAContext context) {
+        C.List<T> permitted = C.newSizedList(resources.size());
+        partitionPermitted(resources, principal, permission, context, permitted, null);
+        return permitted;
+    }
+
+    /**
+     * Split `resources` into the elements on which the current principal has the
+     * permission specified and the elements on which the principal doesn't.
+     *
+     * @param resources the guarded resources
+     * @param permission the permission required
+     * @param <T> the type of the guarded resource
+     * @return a pair of permitted resources and denied resources
+     * @see #partitionPermitted(Collection, Principal, Permission, AAAContext)
+     */
+    public static <T> $.T2<C.List<T>, C.List<T>> partitionPermitted(Collection<T> resources, Permission permission) {
+        return partitionPermitted(resources, null, permission, null);
+    }
+
+    /**
+     * Split `resources` into the elements on which the current principal has the
+     * permission specified by name and the elements on which the principal doesn't.
+     *
+     * @param resources the guarded resources
+     * @param permissionName the name of the permission required
+     * @param <T> the type of the guarded resource
+     * @return a pair of permitted resources and denied resources
+     * @see #partitionPermitted(Collection, Principal, Permission, AAAContext)
+     */
+    public static <T> $.T2<C.List<T>, C.List<T>> partitionPermitted(Collection<T> resources, String permissionName) {
+        AAAContext context = ensureContext(null);
+        Permission permission = context.getPersistentService().findByName(permissionName, Permission.class);
+        return partitionPermitted(resources, null, permission, context);
+    }
+
+    /**
+     * Split `resources` into the elements on which the current principal has the
+     * permission specified by enum and the elements on which the principal doesn't.
+     *
+     * @param resources the guarded resources
+     * @param permissionEnum the enum that provides the name of the permission required
+     * @param <T> the type of the guarded resource
+     * @return a pair of permitted resources and denied resources
+     * @see #partitionPermitted(Collection, Principal, Permission, AAAContext)
+     */
+    public static <T> $.T2<C.List<T>, C.List<T>> partitionPermitted(Collection<T> resources, Enum<?> permissionEnum) {
+        AAAContext context = ensureContext(null);
+        return partitionPermitted(resources, null, permissionOf(permissionEnum, context), context);
+    }
+
+    /**
+     * Split `resources` into the elements on which the principal has the permission
+     * specified and the elements on which the principal doesn't.
+     *
+     * See {@link #filterPermitted(Collection, Principal, Permission, AAAContext)} for
+     * how the elements are evaluated.
+     *
+     * @param resources the guarded resources
+     * @param principal the principal, if `null` then the context's current principal is used
+     * @param permission the permission required
+     * @param context the {@link AAAContext context}
+     * @param <T> the type of the guarded resource
+     * @return a pair of permitted resources and denied resources, both in the iteration
+     *         order of `resources`
+     */
+    public static <T> $.T2<C.List<T>, C.List<T>> partitionPermitted(Collection<T> resources, Principal principal, Permission permission, AAAContext context) {
+        C.List<T> permitted = C.newList();
+        C.List<T> denied = C.newList();
+        partitionPermitted(resources, principal, permission, context, permitted, denied);
+        return $.T2(permitted, denied);
+    }
+
+    /**
+     * Create an {@link AuthorizationCheck} on the permission specified
+     *
+     * @param permission the permission required
+     * @return the authorization check
+     * @see #compile(Permission, Privilege, boolean)
+     */
+    public static AuthorizationCheck compile(Permission permission) {
+        return compile($.requireNotNull(permission), null, true);
+    }
+
+    /**
+     * Create an {@link AuthorizationCheck} on the permission specified by name. The
+     * permission is looked up in the context of each check and re-resolved after
+     * the enum bindings are dropped, thus the check can be created before any context
+     * is set up, e.g. in a static initializer. The check is denied if the permission
+     * cannot be found
+     *
+     * @param permissionName the name of the permission required
+     * @return the authorization check
+     * @see #compile(Permission, Privilege, boolean)
+     */
+    public static AuthorizationCheck compile(String permissionName) {
+        return new AuthorizationCheck(permissionName, true, dynamicCheckers);
+    }
+
+    /**
+     * Create an {@link AuthorizationCheck} on the permission specified by enum. The
+     * permission is looked up in the context of each check and re-resolved after
+     * the enum bindings are dropped, thus the check can be created before any context
+     * is set up, e.g. in a static initializer. The check is denied if the permission
+     * cannot be found
+     *
+     * @param permissionEnum the enum that provides the name of the permission required
+     * @return the authorization check
+     * @see #compile(Permission, Privilege, boolean)
+     */
+    public static AuthorizationCheck compile(Enum<?> permissionEnum) {
+        return compile(permissionEnum.name());
+    }
+
+    /**
+     * Create an {@link AuthorizationCheck} on the privilege specified
+     *
+     * @param privilege the privilege required
+     * @return the authorization check
+     * @see #compile(Permission, Privilege, boolean)
+     */
+    public static AuthorizationCheck compile(Privilege privilege) {
+        return compile(null, $.requireNotNull(privilege), true);
+    }
+
+    /**
+     * Create an {@link AuthorizationCheck} that passes if the principal has either
+     * the permission or the privilege specified
+     *
+     * @param permission the permission required
+     * @param privilege the privilege required
+     * @return the authorization check
+     * @see #compile(Permission, Privilege, boolean)
+     */
+    public static AuthorizationCheck compile(Permission permission, Privilege privilege) {
+        return compile(permission, privilege, true);
+    }
+
+    /**
+     * Create an {@link AuthorizationCheck} on the permission and/or privilege specified.
+     *
+     * The returned check is immutable and can be shared across threads and contexts.
+     * If both permission and privilege are specified then the check passes if the
+     * principal has either of them.
+     *
+     * @param permission the permission required, could be `null` if privilege is specified
+     * @param privilege the privilege required, could be `null` if permission is specified
+     * @param allowSystem whether the system principal shall be used when there is no
+     *                    current principal in the context
+     * @return the authorization check
+     */
+    public static AuthorizationCheck compile(Permission permission, Privilege privilege, boolean allowSystem) {
+        return new AuthorizationCheck(permission, privilege, allowSystem, dynamicCheckers);
+    }
+
     /**
      * Check if the specified principal has permission specified on the target resource.
      *
@@ -431,7 +918,9 @@ public enum  AAA {
      * @see #hasPermission(Object, Principal, String, AAAContext)
      */
     public static boolean hasPermission(Object guardedResource, Principal principal, Enum<?> permissionEnum, AAAContext context) {
-        return hasPermission(guardedResource, principal, permissionEnum.name(), context);
+        context = ensureContext(context);
+        Permission perm = permissionOf(permissionEnum, context);
+        return null != perm && hasPermission(guardedResource, principal, perm, context);
     }
 
     /**
@@ -473,7 +962,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Enum<?> permissionEnum) throws AccessDeniedException {
-        requirePermission(null, permissionEnum.name(), true, null);
+        requirePermission(null, permissionEnum, true, null);
     }
 
     /**
@@ -521,7 +1010,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Enum<?> permissionEnum, boolean allowSystem) throws AccessDeniedException {
-        requirePermission(null, permissionEnum.name(), allowSystem);
+        requirePermission(null, permissionEnum, allowSystem);
     }
 
     /**
@@ -568,7 +1057,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Enum<?> permissionEnum, AAAContext context) throws AccessDeniedException {
-        requirePermission(null, permissionEnum.name(), true, context);
+        requirePermission(null, permissionEnum, true, context);
     }
 
     /**
@@ -622,7 +1111,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Enum<?> permissionEnum, boolean allowSystem, AAAContext context) throws AccessDeniedException {
-        requirePermission(null, permissionEnum.name(), allowSystem, context);
+        requirePermission(null, permissionEnum, allowSystem, context);
     }
 
     /**
@@ -670,7 +1159,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Object guardedResource, Enum<?> permissionEnum) throws AccessDeniedException {
-        requirePermission(guardedResource, permissionEnum.name(), true, null);
+        requirePermission(guardedResource, permissionEnum, true, null);
     }
 
     /**
@@ -722,7 +1211,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Object guardedResource, Enum<?> permissionEnum, AAAContext context) throws AccessDeniedException {
-        requirePermission(guardedResource, permissionEnum.name(), true, context);
+        requirePermission(guardedResource, permissionEnum, true, context);
     }
 
     /**
@@ -777,7 +1266,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Object guardedResource, Enum<?> permissionEnum, boolean allowSystem) {
-        requirePermission(guardedResource, permissionEnum.name(), allowSystem, null);
+        requirePermission(guardedResource, permissionEnum, allowSystem, null);
     }
 
 
@@ -841,7 +1330,7 @@ public enum  AAA {
     public static void requirePermission(Object guardedResource, Enum<?> permissionEnum, boolean allowSystem, AAAContext context) {
         context = ensureContext(context);
         Principal user = context.getPrincipal(allowSystem);
-        requirePermission(guardedResource, user, permissionEnum.name(), context);
+        requirePermission(guardedResource, user, permissionEnum, context);
     }
 
     /**
@@ -859,11 +1348,7 @@ public enum  AAA {
      *         the target object
      */
     public static void requirePermission(Object guardedResource, Principal principal, Permission permission, AAAContext context) {
-        context = ensureContext(context);
-        Auditor auditor = context.getAuditor();
-        boolean hasPermission = hasPermission(guardedResource, principal, permission, context);
-        auditor.audit(guardedResource, principal, permission.getName(), null, hasPermission, null);
-        if (!hasPermission) {
+        if (tryRequirePermission(guardedResource, principal, permission, context).isDenied()) {
             noAccess();
         }
     }
@@ -904,10 +1389,284 @@ public enum  AAA {
      */
     public static void requirePermission(Object guardedResource, Principal principal, Enum<?> permissionEnum, AAAContext context) {
         context = ensureContext(context);
-        Permission permission = context.getPersistentService().findByName(permissionEnum.name(), Permission.class);
+        Permission permission = permissionOf(permissionEnum, context);
         requirePermission(guardedResource, principal, permission, context);
     }
 
+    /**
+     * Authorize by permission without throwing exception.
+     *
+     * This method will audit the success or failure of the authorizing the same way as
+     * {@link #requirePermission(Permission)} does
+     *
+     * @param permission the permission required
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePermission(Permission permission) {
+        return tryRequirePermission(null, permission);
+    }
+
+    /**
+     * Authorize by permission name without throwing exception.
+     *
+     * @param permissionName the name of the permission required
+     * @return the authorization decision
+     * @see #tryRequirePermission(Object, Principal, String, AAAContext)
+     */
+    public static AuthorizationDecision tryRequirePermission(String permissionName) {
+        return tryRequirePermission(null, permissionName);
+    }
+
+    /**
+     * Authorize by permission enum without throwing exception.
+     *
+     * @param permissionEnum the enum that provides the name of the permission required
+     * @return the authorization decision
+     * @see #tryRequirePermission(Object, Principal, Enum, AAAContext)
+     */
+    public static AuthorizationDecision tryRequirePermission(Enum<?> permissionEnum) {
+        return tryRequirePermission(null, permissionEnum);
+    }
+
+    /**
+     * Authorize by permission on the guarded resource without throwing exception.
+     *
+     * @param guardedResource the guarded resource
+     * @param permission the permission required
+     * @return the authorization decision
+     * @see #tryRequirePermission(Object, Principal, Permission, AAAContext)
+     */
+    public static AuthorizationDecision tryRequirePermission(Object guardedResource, Permission permission) {
+        AAAContext context = ensureContext(null);
+        return tryRequirePermission(guardedResource, context.getPrincipal(true), permission, context);
+    }
+
+    /**
+     * Authorize by permission name on the guarded resource without throwing exception.
+     *
+     * @param guardedResource the guarded resource
+     * @param permissionName the name of the permission required
+     * @return the authorization decision
+     * @see #tryRequirePermission(Object, Principal, String, AAAContext)
+     */
+    public static AuthorizationDecision tryRequirePermission(Object guardedResource, String permissionName) {
+        AAAContext context = ensureContext(null);
+        return tryRequirePermission(guardedResource, context.getPrincipal(true), permissionName, context);
+    }
+
+    /**
+     * Authorize by permission enum on the guarded resource without throwing exception.
+     *
+     * @param guardedResource the guarded resource
+     * @param permissionEnum the enum that provides the name of the permission required
+     * @return the authorization decision
+     * @see #tryRequirePermission(Object, Principal, Enum, AAAContext)
+     */
+    public static AuthorizationDecision tryRequirePermission(Object guardedResource, Enum<?> permissionEnum) {
+        AAAContext context = ensureContext(null);
+        return tryRequirePermission(guardedResource, context.getPrincipal(true), permissionEnum, context);
+    }
+
+    /**
+     * Authorize by permission name without throwing exception. If the permission cannot
+     * be found by name then {@link AuthorizationDecision#DENIED} is returned.
+     *
+     * @param guardedResource the guarded resource
+     * @param principal the principal
+     * @param permissionName the name of the permission required
+     * @param context the AAA context
+     * @return the authorization decision
+     * @see #tryRequirePermission(Object, Principal, Permission, AAAContext)
+     */
+    public static AuthorizationDecision tryRequirePermission(Object guardedResource, Principal principal, String permissionName, AAAContext context) {
+        context = ensureContext(context);
+        Permission permission = context.getPersistentService().findByName(permissionName, Permission.class);
+        return tryRequirePermission(guardedResource, principal, permission, permissionName, context);
+    }
+
+    /**
+     * Authorize by permission enum without throwing exception. If the permission cannot
+     * be found then {@link AuthorizationDecision#DENIED} is returned.
+     *
+     * @param guardedResource the guarded resource
+     * @param principal the principal
+     * @param permissionEnum the enum that provides the name of the permission required
+     * @param context the AAA context
+     * @return the authorization decision
+     * @see #tryRequirePermission(Object, Principal, Permission, AAAContext)
+     */
+    public static AuthorizationDecision tryRequirePermission(Object guardedResource, Principal principal, Enum<?> permissionEnum, AAAContext context) {
+        context = ensureContext(context);
+        Permission permission = permissionOf(permissionEnum, context);
+        return tryRequirePermission(guardedResource, principal, permission, permissionEnum.name(), context);
+    }
+
+    /**
+     * Authorize by permission without throwing exception.
+     *
+     * This method will audit the success or failure of the authorizing by calling
+     * {@link Auditor#audit(Object, Principal, String, String, boolean, String)}, where
+     * the auditor is retrieved from {@link AAAContext#getAuditor()}
+     *
+     * Unlike {@link #requirePermission(Object, Principal, Permission, AAAContext)} this
+     * method does not throw {@link AccessDeniedException} on failure, instead it returns
+     * {@link AuthorizationDecision#DENIED}
+     *
+     * @param guardedResource the guarded object
+     * @param principal the principal
+     * @param permission the permission
+     * @param context the AAA Context
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePermission(Object guardedResource, Principal principal, Permission permission, AAAContext context) {
+        return tryRequirePermission(guardedResource, principal, permission, null == permission ? null : permission.getName(), context);
+    }
+
+    private static AuthorizationDecision tryRequirePermission(Object guardedResource, Principal principal, Permission permission, String permissionName, AAAContext context) {
+        context = ensureContext(context);
+        boolean hasPermission = null != permission && hasPermission(guardedResource, principal, permission, context);
+        audit(context, guardedResource, principal, permissionName, null, hasPermission, null);
+        return AuthorizationDecision.of(hasPermission);
+    }
+
+    /**
+     * Check asynchronously if the current principal has the permission specified
+     * on the guarded resource.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param permission the permission required
+     * @param callback the callback to receive `true` if the principal has the permission
+     * @see #hasPermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)
+     */
+    public static void hasPermissionAsync(Object guardedResource, Permission permission, AsyncCallback<Boolean> callback) {
+        hasPermissionAsync(guardedResource, null, permission, null, callback);
+    }
+
+    /**
+     * Check asynchronously if the current principal has the permission specified
+     * by name on the guarded resource.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param permissionName the name of the permission required
+     * @param callback the callback to receive `true` if the principal has the permission
+     * @see #hasPermissionAsync(Object, Principal, String, AAAContext, AsyncCallback)
+     */
+    public static void hasPermissionAsync(Object guardedResource, String permissionName, AsyncCallback<Boolean> callback) {
+        hasPermissionAsync(guardedResource, null, permissionName, null, callback);
+    }
+
+    /**
+     * Check asynchronously if the principal has the permission specified on the
+     * guarded resource.
+     *
+     * The check produces the same result as {@link #hasPermission(Object, Principal, Permission, AAAContext)}.
+     * The {@link AuthorizationService} and the {@link DynamicPermissionCheckHelper}
+     * involved are called through {@link AuthorizationService.Async} and
+     * {@link DynamicPermissionCheckHelper.Async} if they implement it, in which case the
+     * calling thread does not wait for them, and are called synchronously otherwise.
+     *
+     * The context, principal and guarded resource are resolved on the calling thread
+     * as with {@link #hasPermission(Object, Principal, Permission, AAAContext)}. Any
+     * exception raised by the check, including the resolution, is passed to
+     * {@link AsyncCallback#onFailure(Throwable)} instead of being thrown to the caller.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param principal the principal, if `null` then the current principal of the context is used
+     * @param permission the permission required
+     * @param context the {@link AAAContext context}, if `null` then {@link #context()} is used
+     * @param callback the callback to receive `true` if the principal has the permission
+     */
+    public static void hasPermissionAsync(Object guardedResource, Principal principal, Permission permission, AAAContext context, AsyncCallback<Boolean> callback) {
+        checkPermissionAsync(guardedResource, principal, $.requireNotNull(permission), context, false, callback);
+    }
+
+    /**
+     * Check asynchronously if the principal has the permission specified by name
+     * on the guarded resource.
+     *
+     * The permission is looked up through {@link AAAPersistentService.Async} if the
+     * persistent service implements it. If the permission is not found then the
+     * callback receives `false`.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param principal the principal, if `null` then the current principal of the context is used
+     * @param permissionName the name of the permission required
+     * @param context the {@link AAAContext context}, if `null` then {@link #context()} is used
+     * @param callback the callback to receive `true` if the principal has the permission
+     * @see #hasPermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)
+     */
+    public static void hasPermissionAsync(Object guardedResource, Principal principal, String permissionName, AAAContext context, AsyncCallback<Boolean> callback) {
+        checkPermissionAsync(guardedResource, principal, permissionName, context, false, callback);
+    }
+
+    /**
+     * Authorize asynchronously the current principal by permission.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param permission the permission required
+     * @param callback the callback, see {@link #requirePermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)}
+     */
+    public static void requirePermissionAsync(Object guardedResource, Permission permission, AsyncCallback<Void> callback) {
+        requirePermissionAsync(guardedResource, null, permission, null, callback);
+    }
+
+    /**
+     * Authorize asynchronously the current principal by permission name.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param permissionName the name of the permission required
+     * @param callback the callback, see {@link #requirePermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)}
+     */
+    public static void requirePermissionAsync(Object guardedResource, String permissionName, AsyncCallback<Void> callback) {
+        requirePermissionAsync(guardedResource, null, permissionName, null, callback);
+    }
+
+    /**
+     * Authorize asynchronously by permission.
+     *
+     * The result is audited as with {@link #requirePermission(Object, Principal, Permission, AAAContext)}.
+     * If the principal has the permission then {@link AsyncCallback#onSuccess(Object)}
+     * is called with `null`, otherwise {@link AsyncCallback#onFailure(Throwable)} is
+     * called with the {@link AccessDeniedException} created by the {@link #denialMode() denial mode}.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param principal the principal, if `null` then the current principal of the context is used
+     * @param permission the permission required
+     * @param context the {@link AAAContext context}, if `null` then {@link #context()} is used
+     * @param callback the callback
+     * @see #hasPermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)
+     */
+    public static void requirePermissionAsync(Object guardedResource, Principal principal, Permission permission, AAAContext context, AsyncCallback<Void> callback) {
+        checkPermissionAsync(guardedResource, principal, permission, context, true,
+                AsyncPermissionCheck.ignoreResult($.requireNotNull(callback)));
+    }
+
+    /**
+     * Authorize asynchronously by permission name.
+     *
+     * @param guardedResource the guarded resource, could be `null` if the permission is not dynamic
+     * @param principal the principal, if `null` then the current principal of the context is used
+     * @param permissionName the name of the permission required
+     * @param context the {@link AAAContext context}, if `null` then {@link #context()} is used
+     * @param callback the callback
+     * @see #requirePermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)
+     * @see #hasPermissionAsync(Object, Principal, String, AAAContext, AsyncCallback)
+     */
+    public static void requirePermissionAsync(Object guardedResource, Principal principal, String permissionName, AAAContext context, AsyncCallback<Void> callback) {
+        checkPermissionAsync(guardedResource, principal, permissionName, context, true,
+                AsyncPermissionCheck.ignoreResult($.requireNotNull(callback)));
+    }
+
+    private static void checkPermissionAsync(Object guardedResource, Principal principal, String permissionName,
+                                             AAAContext context, boolean require, AsyncCallback<Boolean> callback) {
+        AsyncPermissionCheck.start(guardedResource, principal, permissionName, context, dynamicCheckers, require, $.requireNotNull(callback));
+    }
+
+    private static void checkPermissionAsync(Object guardedResource, Principal principal, Permission permission,
+                                             AAAContext context, boolean require, AsyncCallback<Boolean> callback) {
+        AsyncPermissionCheck.start(guardedResource, principal, permission, context, dynamicCheckers, require, $.requireNotNull(callback));
+    }
+
     /**
      * Check if the current principal has privilege required
      * @param privilege the privilege required
@@ -932,7 +1691,7 @@ public enum  AAA {
      * @return `true` if the current principal has the privilege
      */
     public static boolean hasPrivilege(Enum<?> privilegeEnum) {
-        return hasPrivilege(privilegeEnum.name(), true, null);
+        return hasPrivilege(privilegeEnum, true, null);
     }
 
     /**
@@ -980,7 +1739,7 @@ public enum  AAA {
      * @return `true` if the current principal or system user has privilege required
      */
     public static boolean hasPrivilege(Enum<?> privilegeEnum, boolean allowSystem) {
-        return hasPrivilege(privilegeEnum.name(), allowSystem, null);
+        return hasPrivilege(privilegeEnum, allowSystem, null);
     }
 
     /**
@@ -1039,7 +1798,9 @@ public enum  AAA {
      * @return `true` if the current principal or system user has privilege required
      */
     public static boolean hasPrivilege(Enum<?> privilegeEnum, boolean allowSystem, AAAContext context) {
-        return hasPrivilege(privilegeEnum.name(), allowSystem, context);
+        context = ensureContext(context);
+        Principal user = context.getPrincipal(allowSystem);
+        return (null != user) && hasPrivilege(user, privilegeEnum, context);
     }
 
     /**
@@ -1099,7 +1860,8 @@ public enum  AAA {
      * @return `true` if the principal or system user has privilege required
      */
     public static boolean hasPrivilege(Principal principal, Enum<?> privilegeEnum, AAAContext context) {
-        return hasPrivilege(principal, privilegeEnum.name(), context);
+        context = ensureContext(context);
+        return hasPrivilege(principal, privilegeOf(privilegeEnum, context), context);
     }
 
     /**
@@ -1115,7 +1877,12 @@ public enum  AAA {
     public static boolean hasPrivilege(Principal principal, int privilegeLevel, AAAContext context) {
         AuthorizationService auth = context.getAuthorizationService();
         Privilege userPrivilege = auth.getPrivilege(principal, context);
-        return null != userPrivilege && userPrivilege.getLevel() >= privilegeLevel;
+        boolean granted = null != userPrivilege && userPrivilege.getLevel() >= privilegeLevel;
+        AAAMetrics m = metrics;
+        if (AAAMetrics.NOOP != m) {
+            m.onPrivilegeCheck(privilegeLevel, granted);
+        }
+        return granted;
     }
 
     /**
@@ -1143,7 +1910,7 @@ public enum  AAA {
      * @see #hasPrivilege(Enum)
      */
     public static void requirePrivilege(Enum<?> privilegeEnum) {
-        requirePrivilege(privilegeEnum.name(), true, null);
+        requirePrivilege(privilegeEnum, true, null);
     }
 
     /**
@@ -1216,7 +1983,7 @@ public enum  AAA {
      * @see #hasPrivilege(Privilege)
      */
     public static void requirePrivilege(Enum<?> privilegeEnum, boolean allowSystem) {
-        requirePrivilege(privilegeEnum.name(), allowSystem, null);
+        requirePrivilege(privilegeEnum, allowSystem, null);
     }
 
     /**
@@ -1276,7 +2043,7 @@ public enum  AAA {
      * @see #hasPrivilege(Privilege)
      */
     public static void requirePrivilege(Enum<?> privilegeEnum, AAAContext context) {
-        requirePrivilege(privilegeEnum.name(), true, context);
+        requirePrivilege(privilegeEnum, true, context);
     }
 
     /**
@@ -1343,7 +2110,9 @@ public enum  AAA {
      * @see #hasPrivilege(Privilege)
      */
     public static void requirePrivilege(Enum<?> privilegeEnum, boolean allowSystem, AAAContext context) {
-        requirePrivilege(privilegeEnum.name(), allowSystem, context);
+        context = ensureContext(context);
+        Principal user = context.getPrincipal(allowSystem);
+        requirePrivilege(user, privilegeEnum, context);
     }
 
     /**
@@ -1409,7 +2178,9 @@ public enum  AAA {
      * @param context the AAAContext
      */
     public static void requirePrivilege(Principal principal, Enum<?> privilegeEnum, AAAContext context) {
-        requirePermission(privilegeEnum, privilegeEnum.name(), context);
+        context = ensureContext(context);
+        Privilege privilege = privilegeOf(privilegeEnum, context);
+        requirePrivilege(principal, privilege.getLevel(), privilege.getName(), context);
     }
 
     /**
@@ -1430,14 +2201,109 @@ public enum  AAA {
     }
 
     private static void requirePrivilege(Principal principal, int privilegeLevel, String privilegeName, AAAContext context) {
-        boolean authorized = hasPrivilege(principal, privilegeLevel, context);
-        Auditor auditor = context.getAuditor();
-        auditor.audit(null, principal, null, privilegeName, authorized, "");
-        if (!authorized) {
+        if (tryRequirePrivilege(principal, privilegeLevel, privilegeName, context).isDenied()) {
             noAccess();
         }
     }
 
+    /**
+     * Authorize by privilege without throwing exception.
+     *
+     * This method will audit the success or failure of the authorizing the same way as
+     * {@link #requirePrivilege(Privilege)} does
+     *
+     * @param privilege the privilege required
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePrivilege(Privilege privilege) {
+        AAAContext context = ensureContext(null);
+        return tryRequirePrivilege(context.getPrincipal(true), privilege.getLevel(), privilege.getName(), context);
+    }
+
+    /**
+     * Authorize by privilege name without throwing exception. If the privilege cannot
+     * be found by name then {@link AuthorizationDecision#DENIED} is returned.
+     *
+     * @param privilegeName the name of the privilege required
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePrivilege(String privilegeName) {
+        AAAContext context = ensureContext(null);
+        Privilege privilege = context.getPersistentService().findByName(privilegeName, Privilege.class);
+        return tryRequirePrivilege(context.getPrincipal(true), privilege, privilegeName, context);
+    }
+
+    /**
+     * Authorize by privilege enum without throwing exception. If the privilege cannot
+     * be found then {@link AuthorizationDecision#DENIED} is returned.
+     *
+     * @param privilegeEnum the enum that provides the name of the privilege required
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePrivilege(Enum<?> privilegeEnum) {
+        AAAContext context = ensureContext(null);
+        return tryRequirePrivilege(context.getPrincipal(true), privilegeOf(privilegeEnum, context), privilegeEnum.name(), context);
+    }
+
+    /**
+     * Authorize by privilege level without throwing exception.
+     *
+     * @param privilegeLevel the privilege level required
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePrivilege(int privilegeLevel) {
+        AAAContext context = ensureContext(null);
+        return tryRequirePrivilege(context.getPrincipal(true), privilegeLevel, context);
+    }
+
+    /**
+     * Authorize by privilege without throwing exception.
+     *
+     * This method will audit the success or failure of the authorizing by calling
+     * {@link Auditor#audit(Object, Principal, String, String, boolean, String)}, where
+     * the auditor is retrieved from {@link AAAContext#getAuditor()}
+     *
+     * @param principal the principal to be authorized
+     * @param privilege the privilege required
+     * @param context the AAAContext
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePrivilege(Principal principal, Privilege privilege, AAAContext context) {
+        return tryRequirePrivilege(principal, privilege.getLevel(), privilege.getName(), ensureContext(context));
+    }
+
+    /**
+     * Authorize by privilege level without throwing exception.
+     *
+     * This method will audit the success or failure of the authorizing by calling
+     * {@link Auditor#audit(Object, Principal, String, String, boolean, String)}, where
+     * the auditor is retrieved from {@link AAAContext#getAuditor()}
+     *
+     * @param principal the principal to be authorized
+     * @param privilegeLevel the privilege level required
+     * @param context the AAAContext
+     * @return the authorization decision
+     */
+    public static AuthorizationDecision tryRequirePrivilege(Principal principal, int privilegeLevel, AAAContext context) {
+        context = ensureContext(context);
+        Privilege privilege = context.findPrivilege(privilegeLevel);
+        return tryRequirePrivilege(principal, privilegeLevel, privilege.getName(), context);
+    }
+
+    private static AuthorizationDecision tryRequirePrivilege(Principal principal, Privilege privilege, String privilegeName, AAAContext context) {
+        if (null == privilege) {
+            audit(context, null, principal, null, privilegeName, false, "");
+            return AuthorizationDecision.DENIED;
+        }
+        return tryRequirePrivilege(principal, privilege.getLevel(), privilege.getName(), context);
+    }
+
+    private static AuthorizationDecision tryRequirePrivilege(Principal principal, int privilegeLevel, String privilegeName, AAAContext context) {
+        boolean authorized = hasPrivilege(principal, privilegeLevel, context);
+        audit(context, null, principal, null, privilegeName, authorized, "");
+        return AuthorizationDecision.of(authorized);
+    }
+
     public static boolean hasPermissionOrPrivilege(Permission permission, Privilege privilege) {
         return hasPrivilege(privilege) || hasPermission(permission);
     }
@@ -1611,11 +2477,11 @@ public enum  AAA {
     }
 
     public static void requirePermissionOrPrivilege(Enum<?> permissionEnum, Enum<?> privilegeEnum) {
-        requirePermissionOrPrivilege(null, permissionEnum.name(), privilegeEnum.name(), true, null);
+        requirePermissionOrPrivilege(null, permissionEnum, privilegeEnum, true, null);
     }
 
     public static void requirePermissionOrPrivilege(Enum<?> permissionEnum, int privilegeLevel) {
-        requirePermissionOrPrivilege(null, permissionEnum.name(), privilegeLevel, true, null);
+        requirePermissionOrPrivilege(null, permissionEnum, privilegeLevel, true, null);
     }
 
     public static void requirePermissionOrPrivilege(Permission permission, Privilege privilege, AAAContext context) {
@@ -1631,11 +2497,11 @@ public enum  AAA {
     }
 
     public static void requirePermissionOrPrivilege(Enum<?> permissionEnum, Enum<?> privilegeEnum, AAAContext context) {
-        requirePermissionOrPrivilege(null, permissionEnum.name(), privilegeEnum.name(), true, context);
+        requirePermissionOrPrivilege(null, permissionEnum, privilegeEnum, true, context);
     }
 
     public static void requirePermissionOrPrivilege(Enum<?> permissionEnum, int privilegeLevel, AAAContext context) {
-        requirePermissionOrPrivilege(null, permissionEnum.name(), privilegeLevel, true, context);
+        requirePermissionOrPrivilege(null, permissionEnum, privilegeLevel, true, context);
     }
 
     public static void requirePermissionOrPrivilege(Permission permission, Privilege privilege, boolean allowSystem, AAAContext context) {
@@ -1651,11 +2517,11 @@ public enum  AAA {
     }
 
     public static void requirePermissionOrPrivilege(Enum<?> permissionEnum, Enum<?> privilegeEnum, boolean allowSystem, AAAContext context) {
-        requirePermissionOrPrivilege(null, permissionEnum.name(), privilegeEnum.name(), allowSystem, context);
+        requirePermissionOrPrivilege(null, permissionEnum, privilegeEnum, allowSystem, context);
     }
 
     public static void requirePermissionOrPrivilege(Enum<?> permissionEnum, int privilegeLevel, boolean allowSystem, AAAContext context) {
-        requirePermissionOrPrivilege(null, permissionEnum.name(), privilegeLevel, allowSystem, context);
+        requirePermissionOrPrivilege(null, permissionEnum, privilegeLevel, allowSystem, context);
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource, Permission permission, Privilege privilege) {
@@ -1671,11 +2537,11 @@ public enum  AAA {
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource, Enum<?> permissionEnum, Enum<?> privilegeEnum) {
-        requirePermissionOrPrivilege(guardedResource, permissionEnum.name(), privilegeEnum.name(), true, null);
+        requirePermissionOrPrivilege(guardedResource, permissionEnum, privilegeEnum, true, null);
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource, Enum<?> permissionEnum, int privilegeLevel) {
-        requirePermissionOrPrivilege(guardedResource, permissionEnum.name(), privilegeLevel, true, null);
+        requirePermissionOrPrivilege(guardedResource, permissionEnum, privilegeLevel, true, null);
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource, Permission permission, Privilege privilege, AAAContext context) {
@@ -1691,11 +2557,11 @@ public enum  AAA {
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource, Enum<?> permissionEnum, Enum<?> privilegeEnum, AAAContext context) {
-        requirePermissionOrPrivilege(guardedResource, permissionEnum.name(), privilegeEnum.name(), true, context);
+        requirePermissionOrPrivilege(guardedResource, permissionEnum, privilegeEnum, true, context);
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource, Enum<?> permissionEnum, int privilegeLevel, AAAContext context) {
-        requirePermissionOrPrivilege(guardedResource, permissionEnum.name(), privilegeLevel, true, context);
+        requirePermissionOrPrivilege(guardedResource, permissionEnum, privilegeLevel, true, context);
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource,
@@ -1727,7 +2593,7 @@ public enum  AAA {
                                                     Enum<?> privilegeEnum,
                                                     boolean allowSystem
     ) {
-        requirePermissionOrPrivilege(guardedResource, permissionEnum.name(), privilegeEnum.name(), allowSystem, null);
+        requirePermissionOrPrivilege(guardedResource, permissionEnum, privilegeEnum, allowSystem, null);
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource,
@@ -1735,7 +2601,7 @@ public enum  AAA {
                                                     int privilegeLevel,
                                                     boolean allowSystem
     ) {
-        requirePermissionOrPrivilege(guardedResource, permissionEnum.name(), privilegeLevel, allowSystem, null);
+        requirePermissionOrPrivilege(guardedResource, permissionEnum, privilegeLevel, allowSystem, null);
     }
 
 
@@ -1772,7 +2638,8 @@ public enum  AAA {
                                                     boolean allowSystem,
                                                     AAAContext context
     ) {
-        requirePermissionOrPrivilege(guardedResource, context.getPrincipal(allowSystem), permissionEnum.name(), privilegeEnum.name(), context);
+        context = ensureContext(context);
+        requirePermissionOrPrivilege(guardedResource, context.getPrincipal(allowSystem), permissionEnum, privilegeEnum, context);
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource,
@@ -1782,7 +2649,7 @@ public enum  AAA {
                                                     AAAContext context
     ) {
         context = ensureContext(context);
-        requirePermissionOrPrivilege(guardedResource, context.getPrincipal(allowSystem), permissionEnum.name(), privilegeLevel, context);
+        requirePermissionOrPrivilege(guardedResource, context.getPrincipal(allowSystem), permissionEnum, privilegeLevel, context);
     }
 
 
@@ -1794,8 +2661,7 @@ public enum  AAA {
     ) {
         context = ensureContext(context);
         boolean authorized = hasPermissionOrPrivilege(guardedResource, user, permission, privilege, context);
-        Auditor auditor = context.getAuditor();
-        auditor.audit(guardedResource, user, permission.getName(), privilege.getName(), authorized, "");
+        audit(context, guardedResource, user, permission.getName(), privilege.getName(), authorized, "");
         if (!authorized) {
             noAccess();
         }
@@ -1809,8 +2675,7 @@ public enum  AAA {
     ) {
         context = ensureContext(context);
         boolean authorized = hasPermissionOrPrivilege(guardedResource, user, permissionName, privilegeLevel, context);
-        Auditor auditor = context.getAuditor();
-        auditor.audit(guardedResource, user, permissionName, privilegeLevel, authorized, "");
+        audit(context, guardedResource, user, permissionName, privilegeLevel, authorized, "");
         if (!authorized) {
             noAccess();
         }
@@ -1824,8 +2689,7 @@ public enum  AAA {
     ) {
         context = ensureContext(context);
         boolean authorized = hasPermissionOrPrivilege(guardedResource, principal, permissionName, privilegeLevel, context);
-        Auditor auditor = context.getAuditor();
-        auditor.audit(guardedResource, principal, permissionName, context.findPrivilege(privilegeLevel).getName(), authorized, "");
+        audit(context, guardedResource, principal, permissionName, context.findPrivilege(privilegeLevel).getName(), authorized, "");
         if (!authorized) {
             noAccess();
         }
@@ -1837,7 +2701,14 @@ public enum  AAA {
                                                     Enum<?> privilegeEnum,
                                                     AAAContext context
     ) {
-        requirePermissionOrPrivilege(guardedResource, principal, permissionEnum.name(), privilegeEnum.name(), context);
+        context = ensureContext(context);
+        Permission permission = permissionOf(permissionEnum, context);
+        boolean authorized = hasPrivilege(principal, privilegeOf(privilegeEnum, context), context)
+                || (null != permission && hasPermission(guardedResource, principal, permission, context));
+        audit(context, guardedResource, principal, permissionEnum.name(), privilegeEnum.name(), authorized, "");
+        if (!authorized) {
+            noAccess();
+        }
     }
 
     public static void requirePermissionOrPrivilege(Object guardedResource,
@@ -1846,7 +2717,14 @@ public enum  AAA {
                                                     int privilegeLevel,
                                                     AAAContext context
     ) {
-        requirePermissionOrPrivilege(guardedResource, principal, permissionEnum.name(), privilegeLevel, context);
+        context = ensureContext(context);
+        Permission permission = permissionOf(permissionEnum, context);
+        boolean authorized = hasPrivilege(principal, privilegeLevel, context)
+                || (null != permission && hasPermission(guardedResource, principal, permission, context));
+        audit(context, guardedResource, principal, permissionEnum.name(), context.findPrivilege(privilegeLevel).getName(), authorized, "");
+        if (!authorized) {
+            noAccess();
+        }
     }
     /**
      * Create a default super user principal with name "{@code su}"
@@ -1865,17 +2743,13 @@ public enum  AAA {
         return new SimplePrincipal.Builder(userName).grantPrivilege(new SimplePrivilege("root", SUPER_USER)).toPrincipal();
     }
 
-    private static $.T2<Permission, Class> dpchKey(Permission p, Class c) {
-        return $.T2(p, c);
-    }
-
-    private static AAAContext ensureContext(AAAContext context) {
+    static AAAContext ensureContext(AAAContext context) {
         context = null == context ? context() : context;
         E.illegalStateIf(null == context, "cannot determine the AAA context");
         return context;
     }
 
-    private static Principal ensurePrincipal(Principal principal, AAAContext context) {
+    static Principal ensurePrincipal(Principal principal, AAAContext context) {
         if (null == principal) {
             principal = context.getCurrentPrincipal();
             E.illegalArgumentIf(null == principal, "principal cannot be null");
@@ -1886,79 +2760,170 @@ public enum  AAA {
     // Note this method will NOT ensure guarded resource is NOT null. It will only
     // try to get the context's guarded resource if the passed in guarded resource
     // is null.
-    private static Object tryGetGuardedResource(Object guardedResource, AAAContext context) {
+    static Object tryGetGuardedResource(Object guardedResource, AAAContext context) {
         return null != guardedResource ? guardedResource : context.getGuardedTarget();
     }
 
 
-    private static DynamicPermissionCheckHelper searchForDynamicPermissionCheckHelper(Permission p, Class<?> c) {
-        DynamicPermissionCheckHelper dc;
-        while (c != Object.class && c != null) {
-            dc = searchDpchFromInterfaces(p, c);
-            if (null != dc) {
-                return dc;
+    // put permitted elements into `permitted` and denied elements into `denied` when it is not `null`
+    private static <T> void partitionPermitted(Collection<T> resources, Principal principal, Permission permission, AAAContext context, List<T> permitted, List<T> denied) {
+        context = ensureContext(context);
+        principal = ensurePrincipal(principal, context);
+        AAAMetrics m = metrics;
+        if (AAAMetrics.NOOP == m) {
+            m = null;
+        }
+        Boolean granted;
+        if (null == permission) {
+            granted = false;
+        } else if (checkSuperUser(principal, context)) {
+            granted = true;
+        } else {
+            AuthorizationService auth = context.getAuthorizationService();
+            granted = decideStatically(principal, permission, auth.getAllPermissions(principal, context));
+            if (null == granted) {
+                filterAssociated(resources, principal, permission, m, permitted, denied);
+                return;
+            }
+        }
+        for (T resource : resources) {
+            if (null == resource) {
+                if (null != denied) {
+                    denied.add(resource);
+                }
+                continue;
+            }
+            if (null != m && null != permission) {
+                m.onPermissionCheck(permission.getName(), granted);
+            }
+            if (granted) {
+                permitted.add(resource);
+            } else if (null != denied) {
+                denied.add(resource);
             }
-            c = c.getSuperclass();
         }
-        return null;
     }
 
-    private static DynamicPermissionCheckHelper searchDpchFromInterfaces(Permission p, Class<?> c) {
-        Class[] intfs = c.getInterfaces();
-        C.List<Class> cl = C.listOf(intfs).append(c);
-        for (Class c0: cl) {
-            DynamicPermissionCheckHelper dc = dynamicCheckers.get(dpchKey(p, c0));
-            if (null != dc) {
-                return dc;
+    // evaluate association per element the same way as `checkPermission` does, elements
+    // not found in the decision cache and handled by the same batch helper are checked
+    // in one call to the helper. `m` is `null` when metrics is disabled
+    private static <T> void filterAssociated(Collection<T> resources, Principal principal, Permission permission, AAAMetrics m, List<T> permitted, List<T> denied) {
+        int size = resources.size();
+        Object[] elements = resources.toArray();
+        boolean[] associated = new boolean[size];
+        Map<DynamicPermissionCheckHelper, BatchIndexes> batches = null;
+        Class<?> lastType = null;
+        DynamicPermissionCheckHelper dpch = null;
+        for (int i = 0; i < size; ++i) {
+            Object resource = elements[i];
+            if (null == resource) {
+                continue;
+            }
+            Boolean decision = cachedDecision(principal, permission, resource);
+            if (null != decision) {
+                associated[i] = decision;
+                continue;
+            }
+            Class<?> type = resource.getClass();
+            if (type != lastType) {
+                dpch = dynamicCheckers.get(permission, type);
+                lastType = type;
+            }
+            if (dpch instanceof DynamicPermissionCheckHelper.Batch) {
+                if (null == batches) {
+                    batches = new IdentityHashMap<DynamicPermissionCheckHelper, BatchIndexes>();
+                }
+                BatchIndexes indexes = batches.get(dpch);
+                if (null == indexes) {
+                    indexes = new BatchIndexes();
+                    batches.put(dpch, indexes);
+                }
+                indexes.add(i);
+            } else {
+                long start = null == m ? 0L : System.nanoTime();
+                associated[i] = dpch.isAssociated(resource, principal);
+                onAssociated(principal, permission, resource, start, associated[i], m);
             }
         }
-        if (NULL_PERMISSION != p) {
-            for (Class c0: cl) {
-                DynamicPermissionCheckHelper dc = dynamicCheckers.get(dpchKey(NULL_PERMISSION, c0));
-                if (null != dc) {
-                    return dc;
+        if (null != batches) {
+            for (Map.Entry<DynamicPermissionCheckHelper, BatchIndexes> entry : batches.entrySet()) {
+                BatchIndexes indexes = entry.getValue();
+                int count = indexes.size;
+                List<Object> targets = new ArrayList<Object>(count);
+                for (int j = 0; j < count; ++j) {
+                    targets.add(elements[indexes.values[j]]);
+                }
+                long start = null == m ? 0L : System.nanoTime();
+                BitSet bits = ((DynamicPermissionCheckHelper.Batch) entry.getKey()).isAssociated(targets, principal);
+                // the time of the batch call is shared by its elements
+                long elapsed = null == m ? 0L : (System.nanoTime() - start) / count;
+                for (int j = 0; j < count; ++j) {
+                    int index = indexes.values[j];
+                    boolean b = bits.get(j);
+                    associated[index] = b;
+                    Object resource = elements[index];
+                    if (null != m) {
+                        m.onHelperInvocation(permission.getName(), resource.getClass(), elapsed);
+                    }
+                    putDecision(principal, permission, resource, b);
                 }
             }
         }
-        return null;
+        for (int i = 0; i < size; ++i) {
+            T resource = $.cast(elements[i]);
+            if (null != m && null != resource) {
+                m.onPermissionCheck(permission.getName(), associated[i]);
+            }
+            if (associated[i]) {
+                permitted.add(resource);
+            } else if (null != denied) {
+                denied.add(resource);
+            }
+        }
     }
 
-    private static final DynamicPermissionCheckHelper NULL_DPCH = new DynamicPermissionCheckHelper() {
-        @Override
-        public List<Permission> permissions() {
-            return C.list();
-        }
+    // the indexes of the elements handled by a batch helper
+    private static final class BatchIndexes {
+        int[] values = new int[8];
+        int size;
 
-        @Override
-        public boolean isAssociated(Object guardedResource, Principal principal) {
-            return false;
-        }
-    };
-
-    private static DynamicPermissionCheckHelper dynamicPermissionCheckHelper(Permission p, Class<?> c) {
-        $.T2<Permission, Class> key = dpchKey(p, c);
-        DynamicPermissionCheckHelper dc = dynamicCheckers.get(key);
-        if (null == dc) {
-            dc = searchForDynamicPermissionCheckHelper(p, c);
-            if (null == dc) {
-                dc = NULL_DPCH;
+        void add(int index) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
             }
-            dynamicCheckers.put(key, dc);
+            values[size++] = index;
         }
-        return dc;
     }
 
-    private static boolean checkSuperUser(Principal principal, AAAContext context) {
+    private static Permission permissionOf(Enum<?> permissionEnum, AAAContext context) {
+        return permissionEnums.resolve(permissionEnum, context.getPersistentService());
+    }
+
+    private static Privilege privilegeOf(Enum<?> privilegeEnum, AAAContext context) {
+        return privilegeEnums.resolve(privilegeEnum, context.getPersistentService());
+    }
+
+    static boolean checkSuperUser(Principal principal, AAAContext context) {
         return context.allowSuperUser() && context.isSuperUser(principal);
     }
 
-    private static boolean isSystem(Principal principal) {
+    static boolean isSystem(Principal principal) {
         return S.eq(AAA.SYSTEM, principal.getName());
     }
 
-    private static void noAccess() {
-        //throw new AccessDeniedException();
-        throw new AccessDeniedException();
+    // audit the authorization result and report denial to metrics
+    static void audit(AAAContext context, Object guardedResource, Principal principal, String permissionName, String privilegeName, boolean authorized, String message) {
+        context.getAuditor().audit(guardedResource, principal, permissionName, privilegeName, authorized, message);
+        if (!authorized) {
+            AAAMetrics m = metrics;
+            if (AAAMetrics.NOOP != m) {
+                m.onDenial(permissionName, privilegeName);
+            }
+        }
+    }
+
+    static void noAccess() {
+        throw denialMode.exception();
     }
 
 
@@ -1971,6 +2936,16 @@ public enum  AAA {
         return ensureContext(null).findPrivilege(level);
     }
 
+    /**
+     * Get the {@link Privilege} with the greatest level that is less than or equal
+     * to the level specified
+     * @param level the privilege level
+     * @return the privilege found or `null` if not found
+     */
+    public static Privilege floorPrivilege(int level) {
+        return ensureContext(null).floorPrivilege(level);
+    }
+
     /**
      * Returns all {@link Privilege privileges}
      * @return all privileges in an {@link Iterable}
@@ -0,0 +1,152 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.util.S;
+
+import java.io.Serializable;
+
+/**
+ * Describes a change made to the AAA objects in a {@link AAAPersistentService}
+ *
+ * @see AAAChangeListener
+ * @see org.osgl.aaa.impl.ObservablePersistentService
+ */
+public final class AAAChangeEvent implements Serializable {
+
+    private static final long serialVersionUID = 3263815946207562094L;
+
+    /**
+     * The change operations
+     */
+    public enum Operation {
+        /**
+         * An AAA object is saved
+         */
+        SAVE,
+
+        /**
+         * An AAA object is removed
+         */
+        REMOVE,
+
+        /**
+         * All AAA objects of a type are removed
+         */
+        REMOVE_ALL
+    }
+
+    private final Class<? extends AAAObject> type;
+    private final String name;
+    private final Operation operation;
+
+    /**
+     * Construct a change event
+     *
+     * @param type the type of the object changed, e.g. `Role.class`
+     * @param name the name of the object changed, could be `null` for {@link Operation#REMOVE_ALL}
+     * @param operation the change operation
+     */
+    public AAAChangeEvent(Class<? extends AAAObject> type, String name, Operation operation) {
+        this.type = $.requireNotNull(type);
+        this.name = name;
+        this.operation = $.requireNotNull(operation);
+    }
+
+    /**
+     * Returns the type of the object changed, which is one of `Permission.class`,
+     * `Privilege.class`, `Role.class`, `Principal.class` or the class of the
+     * object if it is none of the above
+     * @return the object type
+     */
+    public Class<? extends AAAObject> type() {
+        return type;
+    }
+
+    /**
+     * Returns the name of the object changed
+     * @return the object name or `null` if the operation is {@link Operation#REMOVE_ALL}
+     */
+    public String name() {
+        return name;
+    }
+
+    public Operation operation() {
+        return operation;
+    }
+
+    /**
+     * Check if the object changed is of the type specified
+     * @param type the AAA object type, e.g. `Permission.class`
+     * @return `true` if the object changed is of the type specified
+     */
+    public boolean is(Class<? extends AAAObject> type) {
+        return type.isAssignableFrom(this.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return $.hc(type, name, operation);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof AAAChangeEvent) {
+            AAAChangeEvent that = (AAAChangeEvent) obj;
+            return type == that.type && operation == that.operation && S.eq(name, that.name);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return S.fmt("%s %s[%s]", operation, type.getSimpleName(), name);
+    }
+
+    public static AAAChangeEvent saved(AAAObject aaaObject) {
+        return new AAAChangeEvent(typeOf(aaaObject), aaaObject.getName(), Operation.SAVE);
+    }
+
+    public static AAAChangeEvent removed(AAAObject aaaObject) {
+        return new AAAChangeEvent(typeOf(aaaObject), aaaObject.getName(), Operation.REMOVE);
+    }
+
+    public static AAAChangeEvent removedAll(Class<? extends AAAObject> type) {
+        return new AAAChangeEvent(type, null, Operation.REMOVE_ALL);
+    }
+
+    private static Class<? extends AAAObject> typeOf(AAAObject aaaObject) {
+        if (aaaObject instanceof Permission) {
+            return Permission.class;
+        } else if (aaaObject instanceof Privilege) {
+            return Privilege.class;
+        } else if (aaaObject instanceof Role) {
+            return Role.class;
+        } else if (aaaObject instanceof Principal) {
+            return Principal.class;
+        }
+        return aaaObject.getClass();
+    }
+}
@@ -24,9 +24,21 @@ import org.osgl.aaa.impl.Anonymous;
 import org.osgl.aaa.impl.SimplePrivilege;
 import org.osgl.exception.AccessDeniedException;
 
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
 @SuppressWarnings("unused")
 public abstract class AAAContext {
 
+    // the privilege level indexes shared by the contexts on the same persistent service
+    private static final Map<AAAPersistentService, PrivilegeIndexHolder> privilegeIndexes = new WeakHashMap<AAAPersistentService, PrivilegeIndexHolder>();
+
+    // the holder of the index of the persistent service last used by this context
+    private volatile PrivilegeIndexHolder privilegeIndex;
+
     /**
      * Returns the {@link org.osgl.aaa.AuthenticationService} implementation
      *
@@ -136,13 +148,58 @@ public abstract class AAAContext {
     public abstract Object getGuardedTarget();
 
     /**
-     * Get a {@link Privilege} by level
+     * Get a {@link Privilege} by level.
+     *
+     * The privilege is looked up from a level index of the persistent service, which is
+     * built from {@link AAAPersistentService#allPrivileges()} and shared by the contexts
+     * on the same persistent service. If the level is not in the index then it is
+     * resolved by {@link AAAPersistentService#findPrivilege(int)} and the privilege
+     * found is added into the index, otherwise a privilege named `p-<level>` is
+     * returned without being indexed.
+     *
      * @param level the privilege level
      * @return a privilege object
+     * @see #refreshPrivilegeIndex()
      */
     public Privilege findPrivilege(int level) {
-        Privilege p = getPersistentService().findPrivilege(level);
-        return null != p ? p : new SimplePrivilege("p-" + level, level);
+        AAAPersistentService db = getPersistentService();
+        PrivilegeIndexHolder holder = privilegeIndexHolder(db);
+        PrivilegeIndex index = holder.get(db);
+        Privilege p = index.exact(level);
+        if (null != p) {
+            return p;
+        }
+        p = db.findPrivilege(level);
+        if (null == p) {
+            return new SimplePrivilege("p-" + level, level);
+        }
+        holder.index.compareAndSet(index, index.resolved(level, p));
+        return p;
+    }
+
+    /**
+     * Returns the {@link Privilege} with the greatest level that is less than or
+     * equal to the level specified.
+     *
+     * @param level the privilege level
+     * @return the privilege found or `null` if all privileges has a greater level
+     */
+    public Privilege floorPrivilege(int level) {
+        AAAPersistentService db = getPersistentService();
+        return privilegeIndexHolder(db).get(db).floor(level);
+    }
+
+    /**
+     * Drop the privilege level index of the {@link #getPersistentService() persistent service}
+     * of this context, which is shared by all contexts on the persistent service. The index
+     * will be rebuilt from the persistent service the next time a privilege is looked up by
+     * level.
+     *
+     * This method shall be called when privileges are changed in the
+     * persistent storage
+     */
+    public void refreshPrivilegeIndex() {
+        privilegeIndexHolder(getPersistentService()).index.set(null);
     }
 
     /**
@@ -585,4 +642,127 @@ public abstract class AAAContext {
         AAA.requirePermissionOrPrivilege(guardedResource, permissionEnum, privilegeLevel, allowSystem, this);
     }
 
+    private PrivilegeIndexHolder privilegeIndexHolder(AAAPersistentService db) {
+        PrivilegeIndexHolder holder = privilegeIndex;
+        if (null != holder && holder.db.get() == db) {
+            return holder;
+        }
+        synchronized (privilegeIndexes) {
+            holder = privilegeIndexes.get(db);
+            if (null == holder || holder.db.get() != db) {
+                holder = new PrivilegeIndexHolder(db);
+                privilegeIndexes.put(db, holder);
+            }
+        }
+        privilegeIndex = holder;
+        return holder;
+    }
+
+    // refers to the persistent service weakly so that it can be the value of the
+    // weak keyed `privilegeIndexes`
+    private static final class PrivilegeIndexHolder {
+        final WeakReference<AAAPersistentService> db;
+        final AtomicReference<PrivilegeIndex> index = new AtomicReference<PrivilegeIndex>();
+
+        PrivilegeIndexHolder(AAAPersistentService db) {
+            this.db = new WeakReference<AAAPersistentService>(db);
+        }
+
+        PrivilegeIndex get(AAAPersistentService db) {
+            PrivilegeIndex i = index.get();
+            if (null == i) {
+                i = new PrivilegeIndex(db);
+                if (!index.compareAndSet(null, i)) {
+                    PrivilegeIndex current = index.get();
+                    if (null != current) {
+                        i = current;
+                    }
+                }
+            }
+            return i;
+        }
+    }
+
+    /**
+     * An immutable index of privileges sorted by level
+     */
+    private static final class PrivilegeIndex {
+        // privileges from the persistent service, used for floor lookup
+        final int[] levels;
+        final Privilege[] privileges;
+        // levels resolved so far, including the ones found by `findPrivilege` only
+        final int[] resolvedLevels;
+        final Privilege[] resolvedPrivileges;
+
+        PrivilegeIndex(AAAPersistentService db) {
+            Privilege[] sorted = new Privilege[0];
+            Iterable<Privilege> all = db.allPrivileges();
+            if (null != all) {
+                int n = 0;
+                for (Privilege p : all) {
+                    if (null == p) {
+                        continue;
+                    }
+                    if (n == sorted.length) {
+                        sorted = Arrays.copyOf(sorted, Math.max(8, n << 1));
+                    }
+                    sorted[n++] = p;
+                }
+                sorted = Arrays.copyOf(sorted, n);
+                Arrays.sort(sorted);
+            }
+            int[] levels = new int[sorted.length];
+            for (int i = 0; i < sorted.length; ++i) {
+                levels[i] = sorted[i].getLevel();
+            }
+            this.levels = levels;
+            this.privileges = sorted;
+            this.resolvedLevels = levels;
+            this.resolvedPrivileges = sorted;
+        }
+
+        private PrivilegeIndex(PrivilegeIndex copy, int[] resolvedLevels, Privilege[] resolvedPrivileges) {
+            this.levels = copy.levels;
+            this.privileges = copy.privileges;
+            this.resolvedLevels = resolvedLevels;
+            this.resolvedPrivileges = resolvedPrivileges;
+        }
+
+        Privilege exact(int level) {
+            int i = Arrays.binarySearch(resolvedLevels, level);
+            return i < 0 ? null : resolvedPrivileges[i];
+        }
+
+        Privilege floor(int level) {
+            int i = Arrays.binarySearch(levels, level);
+            if (i < 0) {
+                i = -i - 2;
+            } else {
+                // in case there are multiple privileges with the same level
+                while (i + 1 < levels.length && levels[i + 1] == level) {
+                    i++;
+                }
+            }
+            return i < 0 ? null : privileges[i];
+        }
+
+        PrivilegeIndex resolved(int level, Privilege privilege) {
+            int i = Arrays.binarySearch(resolvedLevels, level);
+            if (i >= 0) {
+                return this;
+            }
+            int pos = -i - 1;
+            int n = resolvedLevels.length;
+            int[] newLevels = new int[n + 1];
+            Privilege[] newPrivileges = new Privilege[n + 1];
+            System.arraycopy(resolvedLevels, 0, newLevels, 0, pos);
+            System.arraycopy(resolvedPrivileges, 0, newPrivileges, 0, pos);
+            newLevels[pos] = level;
+            newPrivileges[pos] = privilege;
+            System.arraycopy(resolvedLevels, pos, newLevels, pos + 1, n - pos);
+            System.arraycopy(resolvedPrivileges, pos, newPrivileges, pos + 1, n - pos);
+            return new PrivilegeIndex(this, newLevels, newPrivileges);
+        }
+    }
+
 }
@@ -0,0 +1,85 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Receives the metrics of the authorization checks done by {@link AAA}.
+ *
+ * A metrics implementation is set by {@link AAA#setMetrics(AAAMetrics)}. When it is
+ * not set, {@link #NOOP} is used and no metrics, including timing, is collected.
+ *
+ * Implementation shall be thread safe and cheap, as the methods are called on the
+ * authorization hot path.
+ *
+ * @see org.osgl.aaa.impl.SimpleMetrics
+ */
+public interface AAAMetrics {
+
+    /**
+     * Called after a permission is checked
+     * @param permission the permission name
+     * @param granted whether the permission is granted
+     */
+    void onPermissionCheck(String permission, boolean granted);
+
+    /**
+     * Called after a privilege is checked
+     * @param privilegeLevel the privilege level required
+     * @param granted whether the privilege is granted
+     */
+    void onPrivilegeCheck(int privilegeLevel, boolean granted);
+
+    /**
+     * Called when a `requireXxx` authorization fails
+     * @param permission the name of the permission required, could be `null`
+     * @param privilege the name of the privilege required, could be `null`
+     */
+    void onDenial(String permission, String privilege);
+
+    /**
+     * Called after a {@link DynamicPermissionCheckHelper} is invoked
+     * @param permission the permission name
+     * @param resourceType the guarded resource type
+     * @param nanos the time spent on the helper in nanoseconds
+     */
+    void onHelperInvocation(String permission, Class<?> resourceType, long nanos);
+
+    /**
+     * The metrics implementation that does nothing
+     */
+    AAAMetrics NOOP = new AAAMetrics() {
+        @Override
+        public void onPermissionCheck(String permission, boolean granted) {
+        }
+
+        @Override
+        public void onPrivilegeCheck(int privilegeLevel, boolean granted) {
+        }
+
+        @Override
+        public void onDenial(String permission, String privilege) {
+        }
+
+        @Override
+        public void onHelperInvocation(String permission, Class<?> resourceType, long nanos) {
+        }
+    };
+}
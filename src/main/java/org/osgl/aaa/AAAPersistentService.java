@@ -106,4 +106,25 @@ public interface AAAPersistentService {
      * @return all role names in an {@link Iterable}
      */
     Iterable<String> allRoleNames();
+
+    /**
+     * A persistent service that looks up objects without blocking the calling thread.
+     *
+     * {@link AAA} uses the asynchronous method in the `xxxAsync` authorization API
+     * to resolve a permission by name, see
+     * {@link AAA#hasPermissionAsync(Object, Principal, String, AAAContext, AsyncCallback)}.
+     * Persistent services that do not implement this interface are called synchronously.
+     */
+    interface Async extends AAAPersistentService {
+        /**
+         * Look up an object by {@link #findByName(String, Class) name} and pass
+         * it to the callback
+         *
+         * @param name the name of the object
+         * @param clz the class of the object
+         * @param callback the callback to receive the object found or `null` if not found
+         * @param <T> the object type
+         */
+        <T extends AAAObject> void findByName(String name, Class<T> clz, AsyncCallback<T> callback);
+    }
 }
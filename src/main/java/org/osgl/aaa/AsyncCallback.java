@@ -0,0 +1,57 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Receives the result of an asynchronous operation, e.g.
+ * {@link AAA#hasPermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)}.
+ *
+ * Exactly one of the methods is called once the operation completes. It might be
+ * called on the thread that started the operation, e.g. when none of the services
+ * involved are asynchronous, or on the thread that completes the asynchronous
+ * service call. Thus the implementation shall not block.
+ *
+ * On Java 8 or later, the callback could complete a `CompletableFuture`:
+ *
+ * ```java
+ * final CompletableFuture<Boolean> future = new CompletableFuture<>();
+ * AAA.hasPermissionAsync(doc, "doc:read", new AsyncCallback<Boolean>() {
+ *     public void onSuccess(Boolean granted) { future.complete(granted); }
+ *     public void onFailure(Throwable cause) { future.completeExceptionally(cause); }
+ * });
+ * ```
+ *
+ * @param <T> the result type
+ */
+public interface AsyncCallback<T> {
+
+    /**
+     * Called when the operation completes with a result
+     * @param result the result
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the operation fails
+     * @param cause the cause of the failure
+     */
+    void onFailure(Throwable cause);
+}
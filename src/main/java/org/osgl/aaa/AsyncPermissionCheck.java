@@ -0,0 +1,309 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks a permission without blocking on the asynchronous services.
+ *
+ * The check runs the same steps as {@link AAA#hasPermission(Object, Principal, Permission, AAAContext)},
+ * sharing the decision steps with it. A step that calls into {@link AAAPersistentService.Async},
+ * {@link AuthorizationService.Async} or {@link DynamicPermissionCheckHelper.Async} continues
+ * in the callback of the service, the synchronous services are called in place. The result,
+ * or any exception raised by the check including the resolution of the context and principal,
+ * is passed to the callback exactly once. An exception raised by the callback is not
+ * taken as a failure of the check, it is thrown to the thread that completes the check.
+ *
+ * When `require` is `true` the result is audited, and a denial is passed to the
+ * callback as the {@link AAA#denialMode() denial} exception.
+ */
+final class AsyncPermissionCheck {
+
+    private final String permissionName;
+    private final DynamicPermissionCheckHelperRegistry registry;
+    private final boolean require;
+    private final AsyncCallback<Boolean> callback;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    // resolved on the calling thread before any service is called
+    private AAAContext context;
+    private Principal principal;
+    private Object guardedResource;
+
+    private Permission permission;
+
+    private AsyncPermissionCheck(String permissionName, DynamicPermissionCheckHelperRegistry registry,
+                                 boolean require, AsyncCallback<Boolean> callback) {
+        this.permissionName = permissionName;
+        this.registry = registry;
+        this.require = require;
+        this.callback = callback;
+    }
+
+    /**
+     * Start the check of a permission
+     *
+     * @param guardedResource the guarded resource, if `null` then the context's guarded target is used
+     * @param principal the principal, if `null` then the context's current principal is used
+     * @param permission the permission required, `null` means the permission is not found
+     * @param context the context, if `null` then {@link AAA#context()} is used
+     * @param registry the dynamic permission check helper registry
+     * @param require whether to audit the result and report denial as failure
+     * @param callback the callback
+     */
+    static void start(Object guardedResource, Principal principal, Permission permission, AAAContext context,
+                      DynamicPermissionCheckHelperRegistry registry, boolean require, AsyncCallback<Boolean> callback) {
+        AsyncPermissionCheck check = new AsyncPermissionCheck(null == permission ? null : permission.getName(), registry, require, callback);
+        if (check.resolve(guardedResource, principal, context)) {
+            check.onPermission(permission);
+        }
+    }
+
+    /**
+     * Start the check of a permission specified by name. The permission is looked up
+     * from the context's persistent service.
+     *
+     * @param guardedResource the guarded resource, if `null` then the context's guarded target is used
+     * @param principal the principal, if `null` then the context's current principal is used
+     * @param permissionName the name of the permission required
+     * @param context the context, if `null` then {@link AAA#context()} is used
+     * @param registry the dynamic permission check helper registry
+     * @param require whether to audit the result and report denial as failure
+     * @param callback the callback
+     */
+    static void start(Object guardedResource, Principal principal, String permissionName, AAAContext context,
+                      DynamicPermissionCheckHelperRegistry registry, boolean require, AsyncCallback<Boolean> callback) {
+        AsyncPermissionCheck check = new AsyncPermissionCheck(permissionName, registry, require, callback);
+        if (check.resolve(guardedResource, principal, context)) {
+            check.lookupPermission();
+        }
+    }
+
+    /**
+     * Adapt a callback of `requireXxx` API, which receives nothing on success
+     * @param callback the callback
+     * @return a callback that receives the check result
+     */
+    static AsyncCallback<Boolean> ignoreResult(final AsyncCallback<Void> callback) {
+        return new AsyncCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                callback.onSuccess(null);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                callback.onFailure(cause);
+            }
+        };
+    }
+
+    // returns `false` if the check has failed
+    private boolean resolve(Object guardedResource, Principal principal, AAAContext context) {
+        try {
+            this.context = AAA.ensureContext(context);
+            this.principal = AAA.ensurePrincipal(principal, this.context);
+            this.guardedResource = AAA.tryGetGuardedResource(guardedResource, this.context);
+            return true;
+        } catch (RuntimeException e) {
+            failOrRethrow(e);
+            return false;
+        }
+    }
+
+    // Each step calls the next step, and eventually the callback, outside of its
+    // `try` block, so an exception raised by the callback is not taken as a failure
+    // of the check
+
+    private void lookupPermission() {
+        Permission found;
+        try {
+            AAAPersistentService db = context.getPersistentService();
+            if (db instanceof AAAPersistentService.Async) {
+                ((AAAPersistentService.Async) db).findByName(permissionName, Permission.class, new AsyncCallback<Permission>() {
+                    @Override
+                    public void onSuccess(Permission result) {
+                        onPermission(result);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable cause) {
+                        fail(cause);
+                    }
+                });
+                return;
+            }
+            found = db.findByName(permissionName, Permission.class);
+        } catch (RuntimeException e) {
+            failOrRethrow(e);
+            return;
+        }
+        onPermission(found);
+    }
+
+    private void onPermission(Permission permission) {
+        this.permission = permission;
+        if (null == permission) {
+            complete(false);
+            return;
+        }
+        boolean superUser;
+        Collection<Permission> allPermissions = null;
+        try {
+            superUser = AAA.checkSuperUser(principal, context);
+            if (!superUser) {
+                AuthorizationService auth = context.getAuthorizationService();
+                if (auth instanceof AuthorizationService.Async) {
+                    ((AuthorizationService.Async) auth).getAllPermissions(principal, context, new AsyncCallback<Collection<Permission>>() {
+                        @Override
+                        public void onSuccess(Collection<Permission> result) {
+                            onPermissions(result);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable cause) {
+                            fail(cause);
+                        }
+                    });
+                    return;
+                }
+                allPermissions = auth.getAllPermissions(principal, context);
+            }
+        } catch (RuntimeException e) {
+            failOrRethrow(e);
+            return;
+        }
+        if (superUser) {
+            complete(true);
+        } else {
+            onPermissions(allPermissions);
+        }
+    }
+
+    private void onPermissions(Collection<Permission> allPermissions) {
+        Boolean decision;
+        Object resource = null;
+        try {
+            decision = AAA.decideStatically(principal, permission, allPermissions);
+            if (null == decision) {
+                resource = AAA.requireGuardedResource(guardedResource, context);
+                decision = AAA.cachedDecision(principal, permission, resource);
+            }
+        } catch (RuntimeException e) {
+            failOrRethrow(e);
+            return;
+        }
+        if (null != decision) {
+            complete(decision);
+        } else {
+            checkAssociation(resource);
+        }
+    }
+
+    private void checkAssociation(final Object resource) {
+        final long start = System.nanoTime();
+        boolean associated;
+        try {
+            DynamicPermissionCheckHelper dpch = registry.get(permission, resource.getClass());
+            if (dpch instanceof DynamicPermissionCheckHelper.Async) {
+                ((DynamicPermissionCheckHelper.Async) dpch).isAssociated(resource, principal, new AsyncCallback<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean result) {
+                        onAssociated(resource, start, Boolean.TRUE.equals(result));
+                    }
+
+                    @Override
+                    public void onFailure(Throwable cause) {
+                        fail(cause);
+                    }
+                });
+                return;
+            }
+            associated = dpch.isAssociated(resource, principal);
+        } catch (RuntimeException e) {
+            failOrRethrow(e);
+            return;
+        }
+        onAssociated(resource, start, associated);
+    }
+
+    private void onAssociated(Object resource, long start, boolean associated) {
+        try {
+            AAAMetrics m = AAA.metrics();
+            AAA.onAssociated(principal, permission, resource, start, associated, AAAMetrics.NOOP == m ? null : m);
+        } catch (RuntimeException e) {
+            failOrRethrow(e);
+            return;
+        }
+        complete(associated);
+    }
+
+    private void complete(boolean granted) {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        Throwable denial = null;
+        try {
+            if (null != permission) {
+                AAAMetrics m = AAA.metrics();
+                if (AAAMetrics.NOOP != m) {
+                    m.onPermissionCheck(permission.getName(), granted);
+                }
+            }
+            if (require) {
+                AAA.audit(context, guardedResource, principal, permissionName, null, granted, "");
+                if (!granted) {
+                    denial = AAA.denialMode().exception();
+                }
+            }
+        } catch (RuntimeException e) {
+            callback.onFailure(e);
+            return;
+        }
+        if (null == denial) {
+            callback.onSuccess(granted);
+        } else {
+            callback.onFailure(denial);
+        }
+    }
+
+    // called with the failure reported by an asynchronous service
+    private void fail(Throwable cause) {
+        if (done.compareAndSet(false, true)) {
+            callback.onFailure(cause);
+        } else {
+            AAA.logger.warn(cause, "failure reported after the check of permission %s is done", permissionName);
+        }
+    }
+
+    // called with the exception caught by a step. If the check is done then the exception
+    // is raised by the callback, which an asynchronous service might call on the current
+    // thread inside the `try` block of the step, and it is rethrown to the caller
+    private void failOrRethrow(RuntimeException e) {
+        if (done.compareAndSet(false, true)) {
+            callback.onFailure(e);
+        } else {
+            throw e;
+        }
+    }
+}
@@ -20,6 +20,8 @@ package org.osgl.aaa;
  * #L%
  */
 
+import java.util.List;
+
 /**
  * The implementation of this interface shall provide the underline infrastructure
  * to log the authorizing process
@@ -40,6 +42,42 @@ public interface Auditor {
      */
     void audit(Object target, Principal principal, String permission, String privilege, boolean success, String message);
 
+    /**
+     * An audit event, carrying the arguments of {@link Auditor#audit(Object, Principal, String, String, boolean, String)}
+     */
+    interface Event {
+        Object target();
+
+        Principal principal();
+
+        String permission();
+
+        String privilege();
+
+        boolean success();
+
+        String message();
+    }
+
+    /**
+     * An auditor that can log a list of audit events in one call, e.g. with a single
+     * batch insert.
+     *
+     * {@link org.osgl.aaa.impl.AsyncAuditor} uses the batch method to deliver the
+     * events it drains at a time
+     */
+    interface Batch extends Auditor {
+        /**
+         * Log a list of audit events in the order they happen.
+         *
+         * The events might be reused by the caller after this method returns, the
+         * implementation shall not keep them
+         *
+         * @param events the audit events
+         */
+        void audit(List<? extends Event> events);
+    }
+
     /**
      * It is recommended that the object which can be a {@code target} of auditing
      * to implement this interface
@@ -0,0 +1,317 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.impl.PermissionRegistry;
+import org.osgl.exception.AccessDeniedException;
+import org.osgl.util.E;
+
+/**
+ * An immutable authorization check on a fixed permission and/or privilege requirement.
+ *
+ * A check created by {@link AAA#compile(Permission, Privilege, boolean)} uses the
+ * permission and privilege passed in. A check created by {@link AAA#compile(String)}
+ * or {@link AAA#compile(Enum)} looks up the permission by name on the first call in
+ * a context, thus it can be created before any context is set up, and binds it to
+ * the persistent service of the context. The binding is dropped together with the
+ * enum bindings, see {@link AAA#clearEnumBindings()}, so the permission is looked
+ * up again after it is changed. The dynamic permission check helpers are cached
+ * per guarded resource type. The check does not need to repeat the name lookup and
+ * helper search on each call. A check is typically kept in a static field:
+ *
+ * ```java
+ * private static final AuthorizationCheck EDIT_ORDER = AAA.compile(Perms.EDIT_ORDER);
+ *
+ * public void update(Order order) {
+ *     EDIT_ORDER.require(order);
+ *     ...
+ * }
+ * ```
+ *
+ * The principal and the {@link AAAContext} are still resolved on each call as they
+ * are specific to the current request.
+ *
+ * If both permission and privilege are specified then the check passes if the principal
+ * has either the privilege or the permission.
+ */
+public final class AuthorizationCheck {
+
+    private final Permission permission;
+    private final String permissionName;
+    private final int permissionId;
+    private final Privilege privilege;
+    private final boolean allowSystem;
+    private final DynamicPermissionCheckHelperRegistry registry;
+    private volatile PermissionBinding binding;
+    private volatile HelperCache helperCache;
+
+    // resolves the helper of the permission through the per type helper cache
+    private final AAA.HelperLookup helpers = new AAA.HelperLookup() {
+        @Override
+        public DynamicPermissionCheckHelper get(Permission permission, Class<?> resourceType) {
+            return helperOf(resourceType);
+        }
+    };
+
+    AuthorizationCheck(Permission permission, Privilege privilege, boolean allowSystem, DynamicPermissionCheckHelperRegistry registry) {
+        this(permission, null == permission ? null : permission.getName(), privilege, allowSystem, registry);
+    }
+
+    AuthorizationCheck(String permissionName, boolean allowSystem, DynamicPermissionCheckHelperRegistry registry) {
+        this(null, $.requireNotNull(permissionName), null, allowSystem, registry);
+    }
+
+    private AuthorizationCheck(Permission permission, String permissionName, Privilege privilege, boolean allowSystem, DynamicPermissionCheckHelperRegistry registry) {
+        E.illegalArgumentIf(null == permissionName && null == privilege, "permission and privilege cannot be both null");
+        this.permission = permission;
+        this.permissionName = permissionName;
+        this.permissionId = null == permissionName ? -1 : PermissionRegistry.idOf(permissionName);
+        this.privilege = privilege;
+        this.allowSystem = allowSystem;
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the permission required by this check. If the check is created on a
+     * permission name then the permission is looked up in the {@link AAA#context()
+     * current context}
+     *
+     * @return the permission or `null` if no permission is required or it cannot be found
+     */
+    public Permission permission() {
+        return null == permissionName ? null : permissionOf(ensureContext(null));
+    }
+
+    /**
+     * Returns the name of the permission required by this check
+     * @return the permission name or `null` if no permission is required
+     */
+    public String permissionName() {
+        return permissionName;
+    }
+
+    /**
+     * Returns the privilege required by this check
+     * @return the privilege or `null` if no privilege is required
+     */
+    public Privilege privilege() {
+        return privilege;
+    }
+
+    /**
+     * Check the current principal against the context's guarded target
+     * @return `true` if the current principal is authorized
+     */
+    public boolean check() {
+        return check(null, null, null);
+    }
+
+    /**
+     * Check the current principal against the guarded resource specified
+     * @param guardedResource the guarded resource
+     * @return `true` if the current principal is authorized
+     */
+    public boolean check(Object guardedResource) {
+        return check(guardedResource, null, null);
+    }
+
+    /**
+     * Check the principal against the guarded resource specified
+     *
+     * @param guardedResource the guarded resource, if `null` then the context's guarded target is used
+     * @param principal the principal, if `null` then the context's principal is used
+     * @param context the context, if `null` then {@link AAA#context()} is used
+     * @return `true` if the principal is authorized
+     */
+    public boolean check(Object guardedResource, Principal principal, AAAContext context) {
+        context = ensureContext(context);
+        if (null == principal) {
+            principal = context.getPrincipal(allowSystem);
+        }
+        return authorize(guardedResource, principal, context);
+    }
+
+    /**
+     * Authorize the current principal against the context's guarded target.
+     *
+     * The result is audited through the context's {@link Auditor}
+     *
+     * @throws AccessDeniedException if the current principal is not authorized
+     */
+    public void require() throws AccessDeniedException {
+        require(null, null, null);
+    }
+
+    /**
+     * Authorize the current principal against the guarded resource specified.
+     *
+     * The result is audited through the context's {@link Auditor}
+     *
+     * @param guardedResource the guarded resource
+     * @throws AccessDeniedException if the current principal is not authorized
+     */
+    public void require(Object guardedResource) throws AccessDeniedException {
+        require(guardedResource, null, null);
+    }
+
+    /**
+     * Authorize the principal against the guarded resource specified.
+     *
+     * The result is audited through the context's {@link Auditor}
+     *
+     * @param guardedResource the guarded resource, if `null` then the context's guarded target is used
+     * @param principal the principal, if `null` then the context's principal is used
+     * @param context the context, if `null` then {@link AAA#context()} is used
+     * @throws AccessDeniedException if the principal is not authorized
+     */
+    public void require(Object guardedResource, Principal principal, AAAContext context) throws AccessDeniedException {
+        if (tryRequire(guardedResource, principal, context).isDenied()) {
+            AAA.noAccess();
+        }
+    }
+
+    /**
+     * Authorize the current principal against the guarded resource specified without
+     * throwing exception.
+     *
+     * The result is audited through the context's {@link Auditor}
+     *
+     * @param guardedResource the guarded resource
+     * @return the authorization decision
+     */
+    public AuthorizationDecision tryRequire(Object guardedResource) {
+        return tryRequire(guardedResource, null, null);
+    }
+
+    /**
+     * Authorize the principal against the guarded resource specified without
+     * throwing exception.
+     *
+     * The result is audited through the context's {@link Auditor}
+     *
+     * @param guardedResource the guarded resource, if `null` then the context's guarded target is used
+     * @param principal the principal, if `null` then the context's principal is used
+     * @param context the context, if `null` then {@link AAA#context()} is used
+     * @return the authorization decision
+     */
+    public AuthorizationDecision tryRequire(Object guardedResource, Principal principal, AAAContext context) {
+        context = ensureContext(context);
+        if (null == principal) {
+            principal = context.getPrincipal(allowSystem);
+        }
+        boolean authorized = authorize(guardedResource, principal, context);
+        AAA.audit(context, guardedResource, principal, permissionName,
+                null == privilege ? null : privilege.getName(),
+                authorized, "");
+        return AuthorizationDecision.of(authorized);
+    }
+
+    private boolean authorize(Object guardedResource, Principal principal, AAAContext context) {
+        boolean granted = doAuthorize(guardedResource, principal, context);
+        AAAMetrics m = AAA.metrics();
+        if (AAAMetrics.NOOP != m) {
+            if (null != permissionName) {
+                m.onPermissionCheck(permissionName, granted);
+            } else {
+                m.onPrivilegeCheck(privilege.getLevel(), granted);
+            }
+        }
+        return granted;
+    }
+
+    private boolean doAuthorize(Object guardedResource, Principal principal, AAAContext context) {
+        if (null != privilege) {
+            Privilege userPrivilege = context.getAuthorizationService().getPrivilege(principal, context);
+            if (null != userPrivilege && userPrivilege.getLevel() >= privilege.getLevel()) {
+                return true;
+            }
+        }
+        if (null == permissionName) {
+            return false;
+        }
+        Permission p = permissionOf(context);
+        if (null == p) {
+            return false;
+        }
+        AAAMetrics m = AAA.metrics();
+        return AAA.checkPermission(guardedResource, principal, p, context, helpers, AAAMetrics.NOOP == m ? null : m);
+    }
+
+    private Permission permissionOf(AAAContext context) {
+        if (null != permission) {
+            return permission;
+        }
+        AAAPersistentService db = context.getPersistentService();
+        Object version = AAA.enumBindingVersion();
+        PermissionBinding b = binding;
+        if (null != b && b.db == db && b.version == version) {
+            return b.permission;
+        }
+        Permission p = db.findByName(permissionName, Permission.class);
+        if (null != p) {
+            binding = new PermissionBinding(db, version, p);
+        }
+        return p;
+    }
+
+    private DynamicPermissionCheckHelper helperOf(Class<?> type) {
+        Object version = registry.version();
+        HelperCache cache = helperCache;
+        if (null == cache || cache.version != version) {
+            cache = new HelperCache(version);
+            helperCache = cache;
+        }
+        return cache.get(type);
+    }
+
+    private static AAAContext ensureContext(AAAContext context) {
+        context = null == context ? AAA.context() : context;
+        E.illegalStateIf(null == context, "cannot determine the AAA context");
+        return context;
+    }
+
+    private static final class PermissionBinding {
+        final AAAPersistentService db;
+        final Object version;
+        final Permission permission;
+
+        PermissionBinding(AAAPersistentService db, Object version, Permission permission) {
+            this.db = db;
+            this.version = version;
+            this.permission = permission;
+        }
+    }
+
+    // the helpers of the permission by guarded resource type, bound to a registry version
+    private final class HelperCache extends ClassValue<DynamicPermissionCheckHelper> {
+        final Object version;
+
+        HelperCache(Object version) {
+            this.version = version;
+        }
+
+        @Override
+        protected DynamicPermissionCheckHelper computeValue(Class<?> type) {
+            return registry.get(permissionId, type);
+        }
+    }
+}
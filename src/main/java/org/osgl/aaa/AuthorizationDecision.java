@@ -0,0 +1,63 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.exception.AccessDeniedException;
+
+/**
+ * The result of an audited authorization returned by the `tryRequireXxx` API of {@link AAA},
+ * which lets callers handle a denial without the cost of an exception.
+ *
+ * @see AAA#tryRequirePermission(Object, Principal, Permission, AAAContext)
+ * @see AAA#tryRequirePrivilege(Principal, int, AAAContext)
+ */
+public enum AuthorizationDecision {
+    GRANTED, DENIED;
+
+    /**
+     * @return `true` if this decision is {@link #GRANTED}
+     */
+    public boolean isGranted() {
+        return GRANTED == this;
+    }
+
+    /**
+     * @return `true` if this decision is {@link #DENIED}
+     */
+    public boolean isDenied() {
+        return DENIED == this;
+    }
+
+    /**
+     * Throws {@link AccessDeniedException}, according to {@link AAA#denialMode() denial mode},
+     * if this decision is {@link #DENIED}
+     * @throws AccessDeniedException if this decision is {@link #DENIED}
+     */
+    public void orThrow() throws AccessDeniedException {
+        if (DENIED == this) {
+            AAA.noAccess();
+        }
+    }
+
+    public static AuthorizationDecision of(boolean granted) {
+        return granted ? GRANTED : DENIED;
+    }
+}
@@ -72,4 +72,24 @@ public interface AuthorizationService {
      */
     Collection<Permission> getPermissions(Role role, AAAContext context);
 
+    /**
+     * An authorization service that resolves the permissions of a principal
+     * without blocking the calling thread.
+     *
+     * {@link AAA} uses the asynchronous method in the `xxxAsync` authorization API,
+     * see {@link AAA#hasPermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)}.
+     * Authorization services that do not implement this interface are called synchronously.
+     */
+    interface Async extends AuthorizationService {
+        /**
+         * Resolves {@link #getAllPermissions(Principal, AAAContext) all permissions}
+         * of the principal and pass them to the callback
+         *
+         * @param principal the principal
+         * @param context the AAA context
+         * @param callback the callback to receive all permissions the principal implied
+         */
+        void getAllPermissions(Principal principal, AAAContext context, AsyncCallback<Collection<Permission>> callback);
+    }
+
 }
@@ -0,0 +1,218 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Wrappers that carry the {@link AAA#context() current context} of the thread
+ * creating the wrapper to the thread running the task.
+ *
+ * The context is captured together with its current principal and guarded
+ * target. When the task runs, a {@link ContextSnapshot} of them is bound with
+ * {@link ContextScope}, so nothing is left on the worker thread after the task
+ * returns, and the task is not affected by the changes made to the original
+ * context afterwards.
+ */
+final class ContextPropagation {
+
+    private ContextPropagation() {}
+
+    /**
+     * The context captured from the current thread
+     */
+    static final class Captured {
+        private final AAAContext context;
+        private final Principal principal;
+        private final Object guarded;
+
+        private Captured(AAAContext context) {
+            this.context = context;
+            this.principal = context.getCurrentPrincipal();
+            this.guarded = context.getGuardedTarget();
+        }
+
+        /**
+         * Capture the current context
+         * @return the captured context or `null` if there is no current context
+         */
+        static Captured current() {
+            AAAContext context = AAA.context();
+            return null == context ? null : new Captured(context);
+        }
+
+        void run(Runnable task) {
+            ContextScope.run(new ContextSnapshot(context, principal, guarded), task);
+        }
+
+        <T> T call(Callable<T> task) throws Exception {
+            return ContextScope.call(new ContextSnapshot(context, principal, guarded), task);
+        }
+    }
+
+    static Runnable wrap(Runnable task) {
+        Captured captured = Captured.current();
+        return null == captured ? task : new ContextRunnable(captured, task);
+    }
+
+    static <T> Callable<T> wrap(Callable<T> task) {
+        Captured captured = Captured.current();
+        return null == captured ? task : new ContextCallable<T>(captured, task);
+    }
+
+    private static final class ContextRunnable implements Runnable {
+        private final Captured captured;
+        private final Runnable task;
+
+        ContextRunnable(Captured captured, Runnable task) {
+            this.captured = captured;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            captured.run(task);
+        }
+    }
+
+    private static final class ContextCallable<T> implements Callable<T> {
+        private final Captured captured;
+        private final Callable<T> task;
+
+        ContextCallable(Captured captured, Callable<T> task) {
+            this.captured = captured;
+            this.task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            return captured.call(task);
+        }
+    }
+
+    /**
+     * An {@link Executor} that wraps the task with the context of the
+     * thread calling {@link #execute(Runnable)}
+     */
+    static class ContextExecutor implements Executor {
+        private final Executor executor;
+
+        ContextExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            executor.execute(wrap(command));
+        }
+    }
+
+    /**
+     * An {@link ExecutorService} that wraps the tasks with the context of the
+     * thread submitting them
+     */
+    static final class ContextExecutorService extends ContextExecutor implements ExecutorService {
+        private final ExecutorService executor;
+
+        ContextExecutorService(ExecutorService executor) {
+            super(executor);
+            this.executor = executor;
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return executor.submit(wrap(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return executor.submit(wrap(task), result);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return executor.submit(wrap(task));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return executor.invokeAll(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+            return executor.invokeAny(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return executor.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+            Captured captured = Captured.current();
+            List<Callable<T>> list = new ArrayList<Callable<T>>(tasks.size());
+            for (Callable<T> task : tasks) {
+                list.add(null == captured ? task : new ContextCallable<T>(captured, task));
+            }
+            return list;
+        }
+    }
+}
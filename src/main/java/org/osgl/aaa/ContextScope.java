@@ -0,0 +1,184 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.util.E;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Callable;
+
+/**
+ * Binds an {@link AAAContext} to the execution of a task.
+ *
+ * When `java.lang.ScopedValue` is available in the running JVM the context is
+ * bound to a scoped value, which is inherited by nothing but the task, needs no
+ * per thread storage and is unbound automatically when the task returns. Otherwise
+ * the context is set to a thread local and the previous value is restored when
+ * the task returns.
+ *
+ * `ScopedValue` is looked up reflectively as this library is built for Java 7.
+ * Set system property `osgl.aaa.scoped_value` to `false` to always use the thread
+ * local binding.
+ */
+final class ContextScope {
+
+    private static final ThreadLocal<AAAContext> local = new ThreadLocal<AAAContext>();
+
+    private static final Object KEY;
+    private static final MethodHandle IS_BOUND;
+    private static final MethodHandle GET;
+    private static final MethodHandle WHERE;
+    private static final MethodHandle RUN;
+
+    static {
+        Object key = null;
+        MethodHandle isBound = null, get = null, where = null, run = null;
+        if (!"false".equalsIgnoreCase(System.getProperty("osgl.aaa.scoped_value"))) {
+            try {
+                Class<?> svType = Class.forName("java.lang.ScopedValue");
+                Class<?> carrierType = Class.forName("java.lang.ScopedValue$Carrier");
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodType objectToBoolean = MethodType.methodType(boolean.class, Object.class);
+                MethodType objectToObject = MethodType.methodType(Object.class, Object.class);
+                isBound = lookup.findVirtual(svType, "isBound", MethodType.methodType(boolean.class)).asType(objectToBoolean);
+                get = lookup.findVirtual(svType, "get", MethodType.methodType(Object.class)).asType(objectToObject);
+                where = lookup.findStatic(svType, "where", MethodType.methodType(carrierType, svType, Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+                run = lookup.findVirtual(carrierType, "run", MethodType.methodType(void.class, Runnable.class))
+                        .asType(MethodType.methodType(void.class, Object.class, Runnable.class));
+                key = lookup.findStatic(svType, "newInstance", MethodType.methodType(svType)).invoke();
+                // make sure the API is usable, e.g. it is not a preview API that is disabled
+                final boolean[] bound = new boolean[1];
+                final MethodHandle isBound0 = isBound;
+                final Object key0 = key;
+                run.invoke(where.invoke(key, "probe"), new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            bound[0] = (boolean) isBound0.invoke(key0);
+                        } catch (Throwable e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+                if (!bound[0]) {
+                    key = null;
+                }
+            } catch (Throwable e) {
+                key = null;
+            }
+        }
+        KEY = key;
+        IS_BOUND = null == key ? null : isBound;
+        GET = null == key ? null : get;
+        WHERE = null == key ? null : where;
+        RUN = null == key ? null : run;
+    }
+
+    private ContextScope() {}
+
+    /**
+     * Returns whether the context is bound to a `ScopedValue`
+     * @return `true` if `ScopedValue` is used, `false` if thread local is used
+     */
+    static boolean scopedValueEnabled() {
+        return null != KEY;
+    }
+
+    /**
+     * Returns the context bound to the current scope
+     * @return the context or `null` if no context is bound
+     */
+    static AAAContext current() {
+        if (null == KEY) {
+            return local.get();
+        }
+        try {
+            return (boolean) IS_BOUND.invokeExact(KEY) ? (AAAContext) (Object) GET.invokeExact(KEY) : null;
+        } catch (Throwable e) {
+            throw E.unexpected(e);
+        }
+    }
+
+    static void run(AAAContext context, Runnable task) {
+        if (null == KEY) {
+            AAAContext prev = local.get();
+            local.set(context);
+            try {
+                task.run();
+            } finally {
+                restore(prev);
+            }
+            return;
+        }
+        try {
+            RUN.invokeExact(WHERE.invokeExact(KEY, (Object) context), task);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw E.unexpected(e);
+        }
+    }
+
+    static <T> T call(AAAContext context, final Callable<T> task) throws Exception {
+        if (null == KEY) {
+            AAAContext prev = local.get();
+            local.set(context);
+            try {
+                return task.call();
+            } finally {
+                restore(prev);
+            }
+        }
+        final Object[] result = new Object[1];
+        final Exception[] failure = new Exception[1];
+        run(context, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = task.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (null != failure[0]) {
+            throw failure[0];
+        }
+        @SuppressWarnings("unchecked")
+        T t = (T) result[0];
+        return t;
+    }
+
+    private static void restore(AAAContext prev) {
+        if (null == prev) {
+            local.remove();
+        } else {
+            local.set(prev);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.impl.Anonymous;
+
+/**
+ * A {@link AAAContext} that delegates to another context, except for the
+ * current principal and guarded target, which are captured when the
+ * snapshot is created and are private to the snapshot afterwards.
+ *
+ * It is used to carry the context of a request to tasks that run on other
+ * threads, which might still run after the request thread has
+ * {@link AAA#clearContext() cleared} the current principal of its context.
+ *
+ * Every method that does not read the principal or guarded target is delegated,
+ * including the non-abstract lookups that the original context might override.
+ * See the limitation documented on {@link AAA#wrap(Runnable)}.
+ */
+final class ContextSnapshot extends AAAContext {
+
+    private final AAAContext delegate;
+    private Principal principal;
+    private Object guarded;
+
+    ContextSnapshot(AAAContext delegate, Principal principal, Object guarded) {
+        this.delegate = delegate;
+        this.principal = principal;
+        this.guarded = guarded;
+    }
+
+    @Override
+    public AuthenticationService getAuthenticationService() {
+        return delegate.getAuthenticationService();
+    }
+
+    @Override
+    public AuthorizationService getAuthorizationService() {
+        return delegate.getAuthorizationService();
+    }
+
+    @Override
+    public AAAPersistentService getPersistentService() {
+        return delegate.getPersistentService();
+    }
+
+    @Override
+    public Auditor getAuditor() {
+        return delegate.getAuditor();
+    }
+
+    @Override
+    public Principal getSystemPrincipal() {
+        return delegate.getSystemPrincipal();
+    }
+
+    @Override
+    protected Anonymous getAnonymousPrincipal() {
+        return delegate.getAnonymousPrincipal();
+    }
+
+    @Override
+    public int getSuperUserLevel() {
+        return delegate.getSuperUserLevel();
+    }
+
+    @Override
+    public boolean allowSuperUser() {
+        return delegate.allowSuperUser();
+    }
+
+    @Override
+    public boolean isSuperUser(Principal principal) {
+        return delegate.isSuperUser(principal);
+    }
+
+    @Override
+    public void setCurrentPrincipal(Principal user) {
+        principal = user;
+    }
+
+    @Override
+    public Principal getCurrentPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public Object setGuardedTarget(Object target) {
+        Object prev = guarded;
+        guarded = target;
+        return prev;
+    }
+
+    @Override
+    public Object getGuardedTarget() {
+        return guarded;
+    }
+
+    @Override
+    public Privilege findPrivilege(int level) {
+        return delegate.findPrivilege(level);
+    }
+
+    @Override
+    public Privilege floorPrivilege(int level) {
+        return delegate.floorPrivilege(level);
+    }
+
+    @Override
+    public void refreshPrivilegeIndex() {
+        delegate.refreshPrivilegeIndex();
+    }
+
+    @Override
+    public Iterable<Privilege> allPrivileges() {
+        return delegate.allPrivileges();
+    }
+
+    @Override
+    public Iterable<Permission> allPermissions() {
+        return delegate.allPermissions();
+    }
+
+    @Override
+    public Iterable<Role> allRoles() {
+        return delegate.allRoles();
+    }
+
+    @Override
+    public Iterable<String> allPrivilegeNames() {
+        return delegate.allPrivilegeNames();
+    }
+
+    @Override
+    public Iterable<String> allPermissionNames() {
+        return delegate.allPermissionNames();
+    }
+
+    @Override
+    public Iterable<String> allRoleNames() {
+        return delegate.allRoleNames();
+    }
+}
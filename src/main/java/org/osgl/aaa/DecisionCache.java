@@ -0,0 +1,101 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Caches the result of dynamic permission checks, i.e. the result of
+ * {@link DynamicPermissionCheckHelper#isAssociated(Object, Principal)}, keyed by
+ * principal, permission and guarded resource.
+ *
+ * Once a decision cache is set by {@link AAA#setDecisionCache(DecisionCache)}, it is
+ * consulted by {@link AAA#hasPermission(Object, Principal, Permission, AAAContext)} and
+ * {@link AuthorizationCheck} before calling the dynamic permission check helper. The static
+ * part of the permission check, i.e. whether the principal has been granted the permission,
+ * is always evaluated and is not cached here.
+ *
+ * A guarded resource that implements {@link Identifiable} is keyed by its type and
+ * {@link Identifiable#resourceId() id}, so that decisions are shared by all instances
+ * loaded for the same record. Other resources are keyed by identity, and an implementation
+ * shall not keep them reachable, e.g. by holding them through weak references. Application
+ * shall call the invalidation methods when the association between resource and principal
+ * changes, e.g. when the owner of a resource changes.
+ *
+ * @see org.osgl.aaa.impl.SimpleDecisionCache
+ */
+public interface DecisionCache {
+
+    /**
+     * Implemented by guarded resources that have a stable id, e.g. an entity
+     * and its primary key.
+     */
+    interface Identifiable {
+        /**
+         * Returns the id of the resource. The id shall be unique among resources
+         * of the same type and shall not change during the life of the resource
+         *
+         * @return the resource id, must not be `null`
+         */
+        Object resourceId();
+    }
+
+    /**
+     * Returns the cached decision
+     *
+     * @param principal the principal
+     * @param permission the dynamic permission
+     * @param resource the guarded resource
+     * @return `Boolean.TRUE` or `Boolean.FALSE` if the decision is cached, or `null` otherwise
+     */
+    Boolean get(Principal principal, Permission permission, Object resource);
+
+    /**
+     * Cache a decision
+     *
+     * @param principal the principal
+     * @param permission the dynamic permission
+     * @param resource the guarded resource
+     * @param associated the result of the dynamic permission check
+     */
+    void put(Principal principal, Permission permission, Object resource, boolean associated);
+
+    /**
+     * Remove all decisions cached for the principal specified
+     * @param principalName the principal name
+     */
+    void invalidatePrincipal(String principalName);
+
+    /**
+     * Remove all decisions cached for the permission specified
+     * @param permissionName the permission name
+     */
+    void invalidatePermission(String permissionName);
+
+    /**
+     * Remove all decisions cached for the guarded resource specified
+     * @param resource the guarded resource
+     */
+    void invalidateResource(Object resource);
+
+    /**
+     * Remove all cached decisions
+     */
+    void invalidateAll();
+}
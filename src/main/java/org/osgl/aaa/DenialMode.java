@@ -0,0 +1,81 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.exception.AccessDeniedException;
+
+/**
+ * Defines how {@link AAA} raises {@link AccessDeniedException} when an
+ * authorization fails.
+ *
+ * @see AAA#setDenialMode(DenialMode)
+ */
+public enum DenialMode {
+
+    /**
+     * Throw a new {@link AccessDeniedException} with full stack trace. This is the default mode
+     */
+    FULL_STACK() {
+        @Override
+        public AccessDeniedException exception() {
+            return new AccessDeniedException();
+        }
+    },
+
+    /**
+     * Throw a new {@link StacklessAccessDeniedException}
+     */
+    STACKLESS() {
+        @Override
+        public AccessDeniedException exception() {
+            return new StacklessAccessDeniedException();
+        }
+    },
+
+    /**
+     * Throw a shared preallocated {@link StacklessAccessDeniedException}.
+     *
+     * The same instance is thrown on every denial. The exception cannot be created with
+     * suppression disabled as {@link AccessDeniedException} does not expose the constructor,
+     * instead once the shared instance is modified, e.g. a suppressed exception is added by
+     * a try-with-resources block or a cause is set by `initCause`, it is replaced by a new
+     * instance, so that the change does not leak to the following denials
+     */
+    PREALLOCATED() {
+        private volatile AccessDeniedException exception = new StacklessAccessDeniedException();
+
+        @Override
+        public AccessDeniedException exception() {
+            AccessDeniedException e = exception;
+            if (null != e.getCause() || e.getSuppressed().length > 0) {
+                e = new StacklessAccessDeniedException();
+                exception = e;
+            }
+            return e;
+        }
+    };
+
+    /**
+     * Returns the exception to be thrown on an authorization failure
+     * @return the exception
+     */
+    public abstract AccessDeniedException exception();
+}
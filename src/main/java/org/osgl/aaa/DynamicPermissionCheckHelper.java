@@ -20,6 +20,7 @@ package org.osgl.aaa;
  * #L%
  */
 
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -47,4 +48,46 @@ public interface DynamicPermissionCheckHelper<T> {
      * @return {@code true} if the resource is associated with the user
      */
     boolean isAssociated(T target, Principal user);
+
+    /**
+     * A dynamic permission check helper that can check a list of target resources
+     * in one call, e.g. with a single `IN (...)` query.
+     *
+     * {@link AAA} uses the batch method when it checks many resources at a time,
+     * see {@link AAA#filterPermitted(java.util.Collection, Principal, Permission, AAAContext)}
+     *
+     * @param <T> the type of the target resource
+     */
+    interface Batch<T> extends DynamicPermissionCheckHelper<T> {
+        /**
+         * Check which target resources in the list are associated with a principal.
+         *
+         * @param targets the target resources been guarded
+         * @param user the principal who want to access the resources
+         * @return a bit set in which bit `i` is set if `targets.get(i)` is associated with the user
+         */
+        BitSet isAssociated(List<T> targets, Principal user);
+    }
+
+    /**
+     * A dynamic permission check helper that checks the association without
+     * blocking the calling thread, e.g. with a non-blocking database driver.
+     *
+     * {@link AAA} uses the asynchronous method in the `xxxAsync` authorization API,
+     * see {@link AAA#hasPermissionAsync(Object, Principal, Permission, AAAContext, AsyncCallback)}.
+     * Helpers that do not implement this interface are called synchronously.
+     *
+     * @param <T> the type of the target resource
+     */
+    interface Async<T> extends DynamicPermissionCheckHelper<T> {
+        /**
+         * Check if a target resource is associated with a principal and pass
+         * the result to the callback
+         *
+         * @param target the target resource been guarded
+         * @param user the principal who want to access the resource
+         * @param callback the callback to receive `true` if the resource is associated with the user
+         */
+        void isAssociated(T target, Principal user, AsyncCallback<Boolean> callback);
+    }
 }
@@ -0,0 +1,219 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.impl.PermissionRegistry;
+import org.osgl.util.C;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the {@link DynamicPermissionCheckHelper dynamic permission check helpers}
+ * registered and dispatches a permission check to the helper registered for
+ * a guarded resource type.
+ *
+ * The helper search on the resource type hierarchy is done once per resource
+ * class and permission, the result is cached in a {@link ClassValue} indexed by
+ * {@link PermissionRegistry#idOf(Permission) permission ID}. Registering a helper
+ * drops all cached dispatch results.
+ */
+final class DynamicPermissionCheckHelperRegistry implements AAA.HelperLookup {
+
+    static final DynamicPermissionCheckHelper NULL_DPCH = new DynamicPermissionCheckHelper() {
+        @Override
+        public List<Permission> permissions() {
+            return C.list();
+        }
+
+        @Override
+        public boolean isAssociated(Object guardedResource, Principal principal) {
+            return false;
+        }
+    };
+
+    private volatile Map<Class<?>, Registration> registrations = new HashMap<Class<?>, Registration>();
+
+    private volatile ClassValue<Dispatch> dispatches = newDispatches();
+
+    synchronized void register(DynamicPermissionCheckHelper<?> checker, Class<?> clz) {
+        Map<Class<?>, Registration> map = new HashMap<Class<?>, Registration>(registrations);
+        Registration registration = map.get(clz);
+        registration = null == registration ? new Registration() : registration.copy();
+        List<? extends Permission> l = checker.permissions();
+        if (l.isEmpty()) {
+            registration.any = checker;
+        } else {
+            for (Permission p : l) {
+                registration.put(PermissionRegistry.idOf(p), checker);
+            }
+        }
+        map.put(clz, registration);
+        registrations = map;
+        dispatches = newDispatches();
+    }
+
+    /**
+     * Returns the dynamic permission check helper for the permission and resource type
+     * specified, or {@link #NULL_DPCH} if no helper found
+     *
+     * @param permission the permission
+     * @param resourceType the guarded resource type
+     * @return the helper as described above
+     */
+    @Override
+    public DynamicPermissionCheckHelper get(Permission permission, Class<?> resourceType) {
+        return get(PermissionRegistry.idOf(permission), resourceType);
+    }
+
+    /**
+     * Returns the dynamic permission check helper for the permission ID and resource type
+     * specified, or {@link #NULL_DPCH} if no helper found
+     *
+     * @param permissionId the {@link PermissionRegistry#idOf(Permission) permission ID}
+     * @param resourceType the guarded resource type
+     * @return the helper as described above
+     */
+    DynamicPermissionCheckHelper get(int permissionId, Class<?> resourceType) {
+        return dispatches.get(resourceType).get(permissionId);
+    }
+
+    /**
+     * Returns a token that changes each time a helper is registered. It can be
+     * used to tell if a helper returned by {@link #get(Permission, Class)} is stale
+     *
+     * @return the version token
+     */
+    Object version() {
+        return dispatches;
+    }
+
+    private ClassValue<Dispatch> newDispatches() {
+        return new ClassValue<Dispatch>() {
+            @Override
+            protected Dispatch computeValue(Class<?> type) {
+                return new Dispatch(type, registrations);
+            }
+        };
+    }
+
+    private static class Registration {
+        DynamicPermissionCheckHelper any;
+        DynamicPermissionCheckHelper[] byPermission = new DynamicPermissionCheckHelper[0];
+
+        void put(int permissionId, DynamicPermissionCheckHelper checker) {
+            if (permissionId >= byPermission.length) {
+                byPermission = Arrays.copyOf(byPermission, permissionId + 1);
+            }
+            byPermission[permissionId] = checker;
+        }
+
+        DynamicPermissionCheckHelper get(int permissionId) {
+            return permissionId < byPermission.length ? byPermission[permissionId] : null;
+        }
+
+        Registration copy() {
+            Registration copy = new Registration();
+            copy.any = any;
+            copy.byPermission = byPermission.clone();
+            return copy;
+        }
+    }
+
+    // the resolved dispatch of a resource type
+    private static class Dispatch {
+        // the registration on the resource type itself
+        private final Registration self;
+        // registrations on the type hierarchy, from the resource type up to
+        // its top super class. For each class, registrations of its interfaces
+        // come before the registration of the class itself
+        private final Registration[][] levels;
+        private volatile DynamicPermissionCheckHelper[] resolved;
+
+        Dispatch(Class<?> type, Map<Class<?>, Registration> registrations) {
+            self = registrations.get(type);
+            List<Registration[]> list = new ArrayList<Registration[]>();
+            Class<?> c = type;
+            while (c != Object.class && c != null) {
+                List<Registration> level = new ArrayList<Registration>();
+                for (Class<?> intf : c.getInterfaces()) {
+                    Registration r = registrations.get(intf);
+                    if (null != r) {
+                        level.add(r);
+                    }
+                }
+                Registration r = registrations.get(c);
+                if (null != r) {
+                    level.add(r);
+                }
+                list.add(level.toArray(new Registration[level.size()]));
+                c = c.getSuperclass();
+            }
+            levels = list.toArray(new Registration[list.size()][]);
+            resolved = new DynamicPermissionCheckHelper[PermissionRegistry.size()];
+        }
+
+        DynamicPermissionCheckHelper get(int permissionId) {
+            DynamicPermissionCheckHelper[] r = resolved;
+            if (permissionId < r.length) {
+                DynamicPermissionCheckHelper dc = r[permissionId];
+                if (null != dc) {
+                    return dc;
+                }
+            }
+            DynamicPermissionCheckHelper dc = resolve(permissionId);
+            synchronized (this) {
+                r = resolved;
+                if (permissionId >= r.length) {
+                    r = Arrays.copyOf(r, Math.max(permissionId + 1, PermissionRegistry.size()));
+                }
+                r[permissionId] = dc;
+                resolved = r;
+            }
+            return dc;
+        }
+
+        private DynamicPermissionCheckHelper resolve(int permissionId) {
+            DynamicPermissionCheckHelper dc = null == self ? null : self.get(permissionId);
+            if (null != dc) {
+                return dc;
+            }
+            for (Registration[] level : levels) {
+                for (Registration r : level) {
+                    dc = r.get(permissionId);
+                    if (null != dc) {
+                        return dc;
+                    }
+                }
+                for (Registration r : level) {
+                    if (null != r.any) {
+                        return r.any;
+                    }
+                }
+            }
+            return NULL_DPCH;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Binds enum constants to the {@link AAAObject} with the same
+ * {@link Enum#name() name} found in the {@link AAAPersistentService}.
+ *
+ * The object resolved for an enum constant is cached in a table indexed by
+ * {@link Enum#ordinal() ordinal}, so the following lookups of the same
+ * enum constant do not need to hash the name nor hit the persistent service.
+ * A table is bound to the persistent service it resolves objects from, and
+ * is rebuilt when the enum is resolved against another persistent service.
+ *
+ * @param <T> the AAA object type, e.g. {@link Permission} or {@link Privilege}
+ */
+final class EnumBinding<T extends AAAObject> {
+
+    private final Class<T> type;
+
+    private volatile ClassValue<Holder> holders = newHolders();
+
+    EnumBinding(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the AAA object bound to the enum constant specified.
+     *
+     * @param e the enum constant
+     * @param db the persistent service to resolve the object when it is not bound yet
+     * @return the object bound or `null` if not found in the persistent service
+     */
+    T resolve(Enum<?> e, AAAPersistentService db) {
+        Holder holder = holders.get(e.getDeclaringClass());
+        Table table = holder.table;
+        if (table.db != db) {
+            table = new Table(db, table.objects.length());
+            holder.table = table;
+        }
+        int ordinal = e.ordinal();
+        T t = table.objects.get(ordinal);
+        if (null == t) {
+            t = db.findByName(e.name(), type);
+            if (null != t) {
+                table.objects.set(ordinal, t);
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Returns a token that changes each time the bindings are dropped. It can be
+     * used to tell if an object resolved before is stale
+     *
+     * @return the version token
+     */
+    Object version() {
+        return holders;
+    }
+
+    /**
+     * Drop all bindings
+     */
+    void clear() {
+        holders = newHolders();
+    }
+
+    private ClassValue<Holder> newHolders() {
+        return new ClassValue<Holder>() {
+            @Override
+            protected Holder computeValue(Class<?> enumType) {
+                return new Holder(new Table(null, enumType.getEnumConstants().length));
+            }
+        };
+    }
+
+    private class Holder {
+        volatile Table table;
+
+        Holder(Table table) {
+            this.table = table;
+        }
+    }
+
+    private class Table {
+        final AAAPersistentService db;
+        final AtomicReferenceArray<T> objects;
+
+        Table(AAAPersistentService db, int size) {
+            this.db = db;
+            this.objects = new AtomicReferenceArray<T>(size);
+        }
+    }
+
+}
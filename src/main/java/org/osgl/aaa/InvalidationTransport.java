@@ -0,0 +1,55 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Transports {@link AAAChangeEvent change events} between JVMs so that the caches
+ * on every node can be invalidated when AAA objects are changed on one node.
+ *
+ * A transport shall not deliver the events sent by itself back to its own receiver.
+ *
+ * @see org.osgl.aaa.impl.InvalidationBroadcaster
+ * @see org.osgl.aaa.impl.LoopbackInvalidationTransport
+ * @see org.osgl.aaa.impl.MulticastInvalidationTransport
+ */
+public interface InvalidationTransport extends Closeable {
+
+    /**
+     * Send a batch of change events to the other nodes
+     * @param events the change events
+     */
+    void send(List<AAAChangeEvent> events);
+
+    /**
+     * Set the listener to be called with the change events received from other nodes
+     * @param receiver the receiver listener
+     */
+    void setReceiver(AAAChangeListener receiver);
+
+    /**
+     * Stop sending and receiving change events
+     */
+    @Override
+    void close();
+}
@@ -24,7 +24,12 @@ import org.osgl.$;
 import org.osgl.exception.NotAppliedException;
 import org.osgl.util.C;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This interface represents the abstract notion of a principal, which
@@ -54,6 +59,22 @@ public interface Principal extends AAAObject, java.security.Principal {
      */
     List<Permission> getPermissions();
 
+    /**
+     * Implemented by principals that keep the list of permissions granted
+     * directly and through the roles, which is used by
+     * {@link F#allPermissionsOf(Principal)} instead of collecting the permissions
+     * on each call
+     */
+    interface AllPermissionsAware extends Principal {
+        /**
+         * Returns the permissions granted to the principal directly and through
+         * the roles, without duplicates
+         *
+         * @return an immutable list of all permissions granted
+         */
+        List<Permission> getAllPermissions();
+    }
+
     public static abstract class F extends AAAObject.F {
 
         public static $.F1<Principal, C.List<Role>> ROLE_GETTER = new $.F1<Principal, C.List<Role>>() {
@@ -104,10 +125,39 @@ public interface Principal extends AAAObject, java.security.Principal {
             };
         }
 
+        /**
+         * Returns the permissions granted to the principal directly and through the roles,
+         * including the roles inherited by {@link Role.Hierarchical hierarchical} roles
+         *
+         * @param principal the principal
+         * @return the permissions granted without duplicates
+         */
         public static List<Permission> allPermissionsOf(Principal principal) {
+            if (principal instanceof AllPermissionsAware) {
+                return ((AllPermissionsAware) principal).getAllPermissions();
+            }
             final C.Set<Permission> set = C.newSet(principal.getPermissions());
+            // walk the role hierarchy, visited roles are tracked by identity to stop on cycles
+            Set<Role> visited = Collections.newSetFromMap(new IdentityHashMap<Role, Boolean>());
+            Deque<Role> pending = new ArrayDeque<Role>();
             for (Role role : principal.getRoles()) {
+                if (null != role) {
+                    pending.push(role);
+                }
+            }
+            while (!pending.isEmpty()) {
+                Role role = pending.pop();
+                if (!visited.add(role)) {
+                    continue;
+                }
                 set.addAll(role.getPermissions());
+                if (role instanceof Role.Hierarchical) {
+                    for (Role parent : ((Role.Hierarchical) role).getParentRoles()) {
+                        if (null != parent) {
+                            pending.push(parent);
+                        }
+                    }
+                }
             }
             return C.list(set);
         }
@@ -58,6 +58,26 @@ public interface Role extends AAAObject {
      */
     boolean hasPermission(Permission permission);
 
+    /**
+     * A role that inherits the permissions of its parent roles, e.g. an `admin` role
+     * with parent role `editor` has all permissions granted to `editor` and to the
+     * parent roles of `editor`.
+     *
+     * {@link #getPermissions()} returns only the permissions granted to the role
+     * directly, while {@link #hasPermission(Permission)} shall take the inherited
+     * permissions into consideration.
+     *
+     * Cycles in the role hierarchy are allowed and ignored
+     */
+    interface Hierarchical extends Role {
+        /**
+         * Returns the roles this role inherits permissions from
+         *
+         * @return the parent roles
+         */
+        List<Role> getParentRoles();
+    }
+
     public static abstract class F extends AAAObject.F {
 
         public static $.F1<Role, C.List<Permission>> PERMISSION_GETTER = new $.F1<Role, C.List<Permission>>() {
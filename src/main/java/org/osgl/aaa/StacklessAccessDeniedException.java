@@ -0,0 +1,47 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.exception.AccessDeniedException;
+
+/**
+ * An {@link AccessDeniedException} that does not capture the stack trace.
+ *
+ * Capturing the stack trace is the major cost of throwing an exception. When
+ * denials are frequent, e.g. during a credential stuffing attack, this exception
+ * can be used to cut the cost. See {@link DenialMode#STACKLESS}
+ */
+public class StacklessAccessDeniedException extends AccessDeniedException {
+
+    private static final long serialVersionUID = -4390217512766401573L;
+
+    public StacklessAccessDeniedException() {
+    }
+
+    public StacklessAccessDeniedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
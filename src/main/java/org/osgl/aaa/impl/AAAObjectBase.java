@@ -26,6 +26,7 @@ import org.osgl.aaa.Privilege;
 import org.osgl.util.C;
 import org.osgl.util.S;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,6 +38,9 @@ public class AAAObjectBase implements AAAObject {
 
     private final Map<String, String> props = C.newMap();
 
+    // cached hash code, `0` means not calculated yet
+    private transient int hash;
+
     /**
      * This constructor is designed to be used by tools like ORM to deserialize the object from
      * a certain persistent storage
@@ -59,6 +63,13 @@ public class AAAObjectBase implements AAAObject {
      * properties are not considered here on the assumption that name is a unique identifier
      * for a certain type of AAAObject
      * </p>
+     * <p>
+     * The hash code is calculated once the name is set and then cached as the name
+     * of an AAAObject does not change after it is constructed or loaded. It is not
+     * cached while the name is `null`, e.g. before a tool like ORM populates the
+     * object created by the no-arg constructor. The hash code of a {@link Privilege}
+     * is its level and is not cached
+     * </p>
      * @return hashcode
      */
     @Override
@@ -66,7 +77,15 @@ public class AAAObjectBase implements AAAObject {
         if (this instanceof Privilege) {
             return ((Privilege) this).getLevel();
         }
-        return $.hc(name, getClass());
+        int h = hash;
+        if (0 == h) {
+            String name = this.name;
+            h = $.hc(name, getClass());
+            if (null != name) {
+                hash = h;
+            }
+        }
+        return h;
     }
 
     /**
@@ -82,13 +101,12 @@ public class AAAObjectBase implements AAAObject {
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
-        if ($.eq(obj.getClass(), getClass())) {
-            if (this instanceof Privilege) {
-                return $.eq(((Privilege) this).getLevel(),((Privilege)obj).getLevel());
-            }
-            return $.eq(((AAAObject) obj).getName(), getName());
+        if (null == obj || obj.getClass() != getClass()) return false;
+        if (this instanceof Privilege) {
+            return ((Privilege) this).getLevel() == ((Privilege) obj).getLevel();
         }
-        return false;
+        if (obj.hashCode() != hashCode()) return false;
+        return $.eq(((AAAObject) obj).getName(), getName());
     }
 
     @Override
@@ -119,4 +137,24 @@ public class AAAObjectBase implements AAAObject {
     public Set<String> propertyKeys() {
         return props.keySet();
     }
+
+    /**
+     * Returns an immutable list with the elements of the collection specified. If the
+     * collection is already an immutable {@link C.List} then it is returned directly,
+     * otherwise the elements are copied into a new array backed immutable list
+     *
+     * @param col the collection
+     * @param <T> the element type
+     * @return an immutable list as described above
+     */
+    protected static <T> C.List<T> immutableList(Collection<? extends T> col) {
+        if (null == col || col.isEmpty()) {
+            return C.list();
+        }
+        if (col instanceof C.List && ((C.List) col).is(C.Feature.IMMUTABLE)) {
+            return $.cast(col);
+        }
+        Object[] array = col.toArray(new Object[col.size()]);
+        return $.cast(C.listOf(array));
+    }
 }
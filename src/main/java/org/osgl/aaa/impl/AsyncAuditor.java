@@ -0,0 +1,476 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.Auditor;
+import org.osgl.aaa.Principal;
+import org.osgl.logging.LogManager;
+import org.osgl.logging.Logger;
+import org.osgl.util.E;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An {@link Auditor} decorator that takes the audit work off the calling thread.
+ *
+ * Audit events are put into a bounded lock free ring buffer and drained in batches
+ * by a background thread which calls the decorated auditor. If the decorated auditor
+ * implements {@link Auditor.Batch} then each batch is delivered in one call,
+ * otherwise the events are delivered one by one. When the buffer is full the
+ * {@link OverflowPolicy overflow policy} decides what to do with the new event.
+ *
+ * Application shall call {@link #close()} on shutdown so that all pending
+ * events are delivered to the decorated auditor. After the auditor is closed
+ * events are delivered synchronously on the calling thread, following the events
+ * left in the buffer.
+ */
+public class AsyncAuditor implements Auditor, Closeable {
+
+    /**
+     * Defines what to do when an event comes in while the buffer is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * The calling thread waits until there is room in the buffer
+         */
+        BLOCK,
+
+        /**
+         * The event is dropped
+         */
+        DROP,
+
+        /**
+         * One out of every {@link Builder#sampleRate(int) sample rate} overflowed
+         * events waits for room in the buffer, the other overflowed events are dropped
+         */
+        SAMPLE
+    }
+
+    private static final Logger logger = LogManager.get(AsyncAuditor.class);
+
+    private static final long IDLE_NANOS = 10L * 1000 * 1000;
+
+    private final Auditor auditor;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final int batchSize;
+    private final int mask;
+    private final Entry[] events;
+    // the entries of the batch being delivered to a batch auditor, accessed by the consumer only
+    private final List<Entry> batch;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // accessed by the worker thread only, or by the threads calling
+    // `drainTerminated()` once the worker has stopped
+    private long head;
+    private volatile long processed;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+    // set once the worker has stopped after close
+    private volatile boolean terminated;
+    private final Thread worker;
+
+    private AsyncAuditor(Builder builder) {
+        int capacity = Integer.highestOneBit(builder.capacity - 1) << 1;
+        this.auditor = builder.auditor;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.sampleRate = builder.sampleRate;
+        this.batchSize = builder.batchSize;
+        this.mask = capacity - 1;
+        this.events = new Entry[capacity];
+        this.batch = auditor instanceof Auditor.Batch ? new ArrayList<Entry>(Math.min(batchSize, capacity)) : null;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            events[i] = new Entry();
+            sequences.set(i, i);
+        }
+        this.worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "osgl-aaa-auditor");
+        this.worker.setDaemon(true);
+    }
+
+    @Override
+    public void audit(Object target, Principal principal, String permission, String privilege, boolean success, String message) {
+        if (terminated) {
+            auditTerminated(target, principal, permission, privilege, success, message);
+            return;
+        }
+        if (offer(target, principal, permission, privilege, success, message)) {
+            if (terminated) {
+                // the auditor is closed after the event is offered
+                drainTerminated();
+            }
+            return;
+        }
+        if (closed) {
+            // the worker is delivering the pending events, keep the order
+            offerBlocking(target, principal, permission, privilege, success, message);
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP:
+                dropped.incrementAndGet();
+                return;
+            case SAMPLE:
+                if (overflowed.incrementAndGet() % sampleRate != 0) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                // the sampled event waits for room as BLOCK does
+                offerBlocking(target, principal, permission, privilege, success, message);
+                return;
+            default:
+                offerBlocking(target, principal, permission, privilege, success, message);
+        }
+    }
+
+    private void offerBlocking(Object target, Principal principal, String permission, String privilege, boolean success, String message) {
+        while (!offer(target, principal, permission, privilege, success, message)) {
+            if (terminated || !worker.isAlive()) {
+                auditTerminated(target, principal, permission, privilege, success, message);
+                return;
+            }
+            wakeUp();
+            LockSupport.parkNanos(1000L);
+        }
+        if (terminated) {
+            drainTerminated();
+        }
+    }
+
+    /**
+     * Returns the number of events dropped because of buffer overflow
+     * @return the number of events dropped
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Wait until all events audited before calling this method have been
+     * delivered to the decorated auditor
+     */
+    public void flush() {
+        long target = tail.get();
+        while (processed < target && worker.isAlive()) {
+            wakeUp();
+            LockSupport.parkNanos(100L * 1000);
+        }
+    }
+
+    /**
+     * Deliver all pending events to the decorated auditor and stop the
+     * background thread. This method is idempotent.
+     *
+     * If the calling thread is interrupted, it still waits until all pending
+     * events are delivered, and then returns with the interrupt status set
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(worker);
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        terminated = true;
+        // deliver the events offered after the final drain of the worker
+        drainTerminated();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // drains on the calling thread after the worker has stopped
+    private synchronized void drainTerminated() {
+        while (head < tail.get()) {
+            if (0 == drain()) {
+                // an event is being offered
+                Thread.yield();
+            }
+        }
+    }
+
+    // delivers the event after the events left in the buffer once the worker has stopped
+    private synchronized void auditTerminated(Object target, Principal principal, String permission, String privilege, boolean success, String message) {
+        drainTerminated();
+        auditor.audit(target, principal, permission, privilege, success, message);
+    }
+
+    private void start() {
+        worker.start();
+    }
+
+    private boolean offer(Object target, Principal principal, String permission, String privilege, boolean success, String message) {
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long dif = sequences.get(idx) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    events[idx].set(target, principal, permission, privilege, success, message);
+                    sequences.set(idx, pos + 1);
+                    if (sleeping) {
+                        wakeUp();
+                    }
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private void wakeUp() {
+        LockSupport.unpark(worker);
+    }
+
+    private void drainLoop() {
+        for (;;) {
+            int n = drain();
+            if (n > 0) {
+                continue;
+            }
+            if (closed) {
+                if (0 == drain()) {
+                    return;
+                }
+                continue;
+            }
+            sleeping = true;
+            if (0 == drain()) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    // deliver a batch of events, returns the number of events delivered
+    private int drain() {
+        if (null != batch) {
+            return drainBatch();
+        }
+        int n = 0;
+        while (n < batchSize) {
+            long pos = head;
+            int idx = (int) (pos & mask);
+            if (sequences.get(idx) != pos + 1) {
+                break;
+            }
+            Entry e = events[idx];
+            try {
+                auditor.audit(e.target, e.principal, e.permission, e.privilege, e.success, e.message);
+            } catch (Throwable ex) {
+                // keep the worker alive, otherwise producers of BLOCK policy wait forever
+                logger.error(ex, "error auditing event");
+            }
+            e.clear();
+            sequences.set(idx, pos + mask + 1);
+            head = pos + 1;
+            n++;
+        }
+        if (n > 0) {
+            processed = head;
+        }
+        return n;
+    }
+
+    // deliver the events ready in one call to the batch auditor, the entries are
+    // released after the call
+    private int drainBatch() {
+        long start = head;
+        int n = 0;
+        while (n < batchSize) {
+            long pos = start + n;
+            int idx = (int) (pos & mask);
+            if (sequences.get(idx) != pos + 1) {
+                break;
+            }
+            batch.add(events[idx]);
+            n++;
+        }
+        if (0 == n) {
+            return 0;
+        }
+        try {
+            ((Auditor.Batch) auditor).audit(batch);
+        } catch (Throwable ex) {
+            // keep the worker alive, otherwise producers of BLOCK policy wait forever
+            logger.error(ex, "error auditing %s events", n);
+        }
+        batch.clear();
+        for (int i = 0; i < n; ++i) {
+            long pos = start + i;
+            int idx = (int) (pos & mask);
+            events[idx].clear();
+            sequences.set(idx, pos + mask + 1);
+        }
+        head = start + n;
+        processed = head;
+        return n;
+    }
+
+    private static class Entry implements Auditor.Event {
+        Object target;
+        Principal principal;
+        String permission;
+        String privilege;
+        boolean success;
+        String message;
+
+        @Override
+        public Object target() {
+            return target;
+        }
+
+        @Override
+        public Principal principal() {
+            return principal;
+        }
+
+        @Override
+        public String permission() {
+            return permission;
+        }
+
+        @Override
+        public String privilege() {
+            return privilege;
+        }
+
+        @Override
+        public boolean success() {
+            return success;
+        }
+
+        @Override
+        public String message() {
+            return message;
+        }
+
+        void set(Object target, Principal principal, String permission, String privilege, boolean success, String message) {
+            this.target = target;
+            this.principal = principal;
+            this.permission = permission;
+            this.privilege = privilege;
+            this.success = success;
+            this.message = message;
+        }
+
+        void clear() {
+            set(null, null, null, null, false, null);
+        }
+    }
+
+    /**
+     * The Builder can be used to build up an async auditor
+     */
+    public static class Builder {
+        private Auditor auditor;
+        private int capacity = 8192;
+        private int batchSize = 256;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private int sampleRate = 100;
+
+        /**
+         * Construct a builder with the auditor to be decorated
+         * @param auditor the auditor that does the real audit work
+         */
+        public Builder(Auditor auditor) {
+            this.auditor = $.requireNotNull(auditor);
+        }
+
+        /**
+         * Set the capacity of the buffer. It will be rounded up to power of two.
+         * Default value: `8192`
+         * @param capacity the buffer capacity
+         * @return this builder
+         */
+        public Builder capacity(int capacity) {
+            E.illegalArgumentIf(capacity < 2 || capacity > (1 << 30), "invalid capacity: %s", capacity);
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of events delivered in one batch. Default value: `256`
+         * @param batchSize the batch size
+         * @return this builder
+         */
+        public Builder batchSize(int batchSize) {
+            E.illegalArgumentIf(batchSize < 1, "batch size shall be positive");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Set the overflow policy. Default value: {@link OverflowPolicy#BLOCK}
+         * @param overflowPolicy the overflow policy
+         * @return this builder
+         */
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = $.requireNotNull(overflowPolicy);
+            return this;
+        }
+
+        /**
+         * Set the sample rate used by {@link OverflowPolicy#SAMPLE}. Default value: `100`
+         * @param sampleRate keep one out of every `sampleRate` overflowed events
+         * @return this builder
+         */
+        public Builder sampleRate(int sampleRate) {
+            E.illegalArgumentIf(sampleRate < 1, "sample rate shall be positive");
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        public AsyncAuditor toAuditor() {
+            AsyncAuditor auditor = new AsyncAuditor(this);
+            // started after the auditor is constructed so that the worker never sees it partially built
+            auditor.start();
+            return auditor;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.*;
+
+/**
+ * An {@link AAAChangeListener} that invalidates the caches kept by osgl-aaa
+ * when AAA objects are changed:
+ *
+ * * the {@link SimpleAuthorizationService} permission snapshots
+ * * the {@link PermissionClosure} cache
+ * * the enum bindings, see {@link AAA#clearEnumBindings()}
+ * * the privilege level index, see {@link AAAContext#refreshPrivilegeIndex()}
+ * * the {@link DecisionCache} set in {@link AAA#decisionCache()}
+ * * the {@link CachedPersistentService} found in the context's persistent service chain
+ *
+ * Only the entries affected by the change are invalidated where possible.
+ */
+public class CacheInvalidationListener implements AAAChangeListener {
+
+    private final AAAContext context;
+
+    public CacheInvalidationListener(AAAContext context) {
+        this.context = $.requireNotNull(context);
+    }
+
+    @Override
+    public void onChange(AAAChangeEvent event) {
+        boolean removeAll = AAAChangeEvent.Operation.REMOVE_ALL == event.operation();
+        AuthorizationService auth = context.getAuthorizationService();
+        SimpleAuthorizationService snapshots = auth instanceof SimpleAuthorizationService ? (SimpleAuthorizationService) auth : null;
+        DecisionCache decisionCache = AAA.decisionCache();
+        if (event.is(Permission.class)) {
+            PermissionClosure.clear();
+            AAA.clearEnumBindings();
+            if (null != snapshots) {
+                snapshots.invalidateAll();
+            }
+            if (null != decisionCache) {
+                if (removeAll) {
+                    decisionCache.invalidateAll();
+                } else {
+                    decisionCache.invalidatePermission(event.name());
+                }
+            }
+        } else if (event.is(Privilege.class)) {
+            AAA.clearEnumBindings();
+            context.refreshPrivilegeIndex();
+        } else if (event.is(Role.class)) {
+            if (null != snapshots) {
+                snapshots.invalidateAll();
+            }
+        } else if (event.is(Principal.class)) {
+            if (null != snapshots) {
+                if (removeAll) {
+                    snapshots.invalidateAll();
+                } else {
+                    snapshots.invalidate(event.name());
+                }
+            }
+            if (null != decisionCache) {
+                if (removeAll) {
+                    decisionCache.invalidateAll();
+                } else {
+                    decisionCache.invalidatePrincipal(event.name());
+                }
+            }
+        }
+        CachedPersistentService cached = cachedPersistentService(context.getPersistentService());
+        if (null != cached) {
+            cached.onChange(event);
+        }
+    }
+
+    private static CachedPersistentService cachedPersistentService(AAAPersistentService db) {
+        while (null != db) {
+            if (db instanceof CachedPersistentService) {
+                return (CachedPersistentService) db;
+            } else if (db instanceof ObservablePersistentService) {
+                db = ((ObservablePersistentService) db).getPersistentService();
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,366 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.*;
+import org.osgl.cache.CacheService;
+import org.osgl.cache.CacheServiceProvider;
+import org.osgl.util.S;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link AAAPersistentService} decorator that caches the result of
+ * {@link #findByName(String, Class)} in a {@link CacheService}.
+ *
+ * Both found and not found results are cached. The cached entry of an
+ * object is evicted when the object is {@link #save(AAAObject) saved} or
+ * {@link #remove(AAAObject) removed} through this service, and all entries of
+ * a type are dropped on {@link #removeAll(Class)}. Changes made to the underline
+ * persistent storage without going through this service will not be seen
+ * until the cached entry expires, {@link #clear()} is called or the change
+ * is notified through {@link #onChange(AAAChangeEvent)}.
+ *
+ * Names are cached by exact match, as the lookups of the decorated service,
+ * e.g. {@link InMemoryPersistentService} and {@link MappedPersistentService}. If
+ * the decorated service looks up names case insensitively, as recommended by
+ * {@link AAAPersistentService#findByName(String, Class)}, construct the service
+ * with `ignoreCase` set to `true` so that names differing only by case share the
+ * cached entry.
+ *
+ * The cache service might be shared with other users, including other instances
+ * of this class, thus each instance has a unique key prefix. Each type has a
+ * generation that is part of the cache key, dropping the entries of a type
+ * bumps the generation instead of clearing the cache service. The entries of the
+ * previous generations expire with the ttl.
+ *
+ * Cached objects refer to each other: a principal holds its roles and privileges,
+ * a role holds its permissions and parent roles, and a permission holds its implied
+ * permissions. When a permission, privilege or role changes, the entries of the
+ * types that might refer to it are dropped together with the entry of the object.
+ *
+ * The service implements {@link AAAPersistentService.Async}. A cache miss is
+ * passed to the asynchronous lookup of the decorated service if it implements
+ * {@link AAAPersistentService.Async}, otherwise it is loaded synchronously.
+ */
+public class CachedPersistentService implements AAAPersistentService.Async, AAAChangeListener {
+
+    /**
+     * The name of the default cache service used to cache AAA objects
+     */
+    public static final String CACHE_NAME = "osgl-aaa";
+
+    // marks a name that cannot be found in the persistent storage
+    private static final String NOT_FOUND = "__aaa_not_found__";
+
+    // the slots of generations
+    private static final int PERMISSION = 0;
+    private static final int PRIVILEGE = 1;
+    private static final int ROLE = 2;
+    private static final int PRINCIPAL = 3;
+    private static final int OTHER = 4;
+
+    private final AAAPersistentService db;
+    private final CacheService cache;
+    private final int ttl;
+    private final boolean ignoreCase;
+
+    // distinguishes the entries of this instance in a shared cache service
+    private final String keyPrefix = S.concat(UUID.randomUUID().toString(), "/");
+
+    private final AtomicIntegerArray generations = new AtomicIntegerArray(OTHER + 1);
+
+    // bumped before an entry is evicted, so that a concurrent lookup that loaded the
+    // object before the change can tell its result might be stale
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Construct a `CachedPersistentService` with the default
+     * {@link CacheServiceProvider.Impl#Simple simple} cache service
+     *
+     * @param persistentService the persistent service to be decorated
+     */
+    public CachedPersistentService(AAAPersistentService persistentService) {
+        this(persistentService, CacheServiceProvider.Impl.Simple.get(CACHE_NAME), 0);
+    }
+
+    /**
+     * Construct a `CachedPersistentService` with the cache service and ttl specified
+     *
+     * @param persistentService the persistent service to be decorated
+     * @param cache the cache service
+     * @param ttl the time to live in seconds of the cached entries. If `ttl` is
+     *            not positive then the default ttl of the cache service is used
+     */
+    public CachedPersistentService(AAAPersistentService persistentService, CacheService cache, int ttl) {
+        this(persistentService, cache, ttl, false);
+    }
+
+    /**
+     * Construct a `CachedPersistentService` with the cache service, ttl and case policy specified
+     *
+     * @param persistentService the persistent service to be decorated
+     * @param cache the cache service
+     * @param ttl the time to live in seconds of the cached entries. If `ttl` is
+     *            not positive then the default ttl of the cache service is used
+     * @param ignoreCase `true` if the decorated service looks up names case insensitively
+     */
+    public CachedPersistentService(AAAPersistentService persistentService, CacheService cache, int ttl, boolean ignoreCase) {
+        this.db = $.requireNotNull(persistentService);
+        this.cache = $.requireNotNull(cache);
+        this.ttl = ttl;
+        this.ignoreCase = ignoreCase;
+        if (!cache.state().isStarted()) {
+            cache.startup();
+        }
+    }
+
+    /**
+     * Returns the decorated persistent service
+     * @return the persistent service decorated
+     */
+    public AAAPersistentService getPersistentService() {
+        return db;
+    }
+
+    @Override
+    public void save(AAAObject aaaObject) {
+        db.save(aaaObject);
+        evict(aaaObject);
+    }
+
+    @Override
+    public void remove(AAAObject aaaObject) {
+        db.remove(aaaObject);
+        evict(aaaObject);
+    }
+
+    @Override
+    public <T extends AAAObject> void removeAll(Class<T> clz) {
+        db.removeAll(clz);
+        evictAll(clz);
+    }
+
+    @Override
+    public <T extends AAAObject> T findByName(String name, Class<T> clz) {
+        String key = key(clz, name);
+        Object cached = cache.get(key);
+        if (null != cached) {
+            return NOT_FOUND.equals(cached) ? null : clz.cast(cached);
+        }
+        long v = version.get();
+        T found = db.findByName(name, clz);
+        cacheLoaded(key, found, v);
+        return found;
+    }
+
+    @Override
+    public <T extends AAAObject> void findByName(String name, final Class<T> clz, final AsyncCallback<T> callback) {
+        $.requireNotNull(callback);
+        if (!(db instanceof AAAPersistentService.Async)) {
+            T found;
+            try {
+                found = findByName(name, clz);
+            } catch (RuntimeException e) {
+                callback.onFailure(e);
+                return;
+            }
+            callback.onSuccess(found);
+            return;
+        }
+        final String key = key(clz, name);
+        Object cached = cache.get(key);
+        if (null != cached) {
+            callback.onSuccess(NOT_FOUND.equals(cached) ? null : clz.cast(cached));
+            return;
+        }
+        final long v = version.get();
+        ((AAAPersistentService.Async) db).findByName(name, clz, new AsyncCallback<T>() {
+            @Override
+            public void onSuccess(T found) {
+                cacheLoaded(key, found, v);
+                callback.onSuccess(found);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                callback.onFailure(cause);
+            }
+        });
+    }
+
+    @Override
+    public Privilege findPrivilege(int level) {
+        return db.findPrivilege(level);
+    }
+
+    @Override
+    public Iterable<Privilege> allPrivileges() {
+        return db.allPrivileges();
+    }
+
+    @Override
+    public Iterable<Permission> allPermissions() {
+        return db.allPermissions();
+    }
+
+    @Override
+    public Iterable<Role> allRoles() {
+        return db.allRoles();
+    }
+
+    @Override
+    public Iterable<String> allPrivilegeNames() {
+        return db.allPrivilegeNames();
+    }
+
+    @Override
+    public Iterable<String> allPermissionNames() {
+        return db.allPermissionNames();
+    }
+
+    @Override
+    public Iterable<String> allRoleNames() {
+        return db.allRoleNames();
+    }
+
+    /**
+     * Evict the cached entry of the object changed and the entries that might
+     * refer to it, or drop all entries of the type if all objects of the type
+     * are removed
+     *
+     * @param event the change event
+     */
+    @Override
+    public void onChange(AAAChangeEvent event) {
+        if (AAAChangeEvent.Operation.REMOVE_ALL == event.operation()) {
+            evictAll(event.type());
+        } else {
+            version.incrementAndGet();
+            cache.evict(key(event.type(), event.name()));
+            evictDependents(event.type());
+        }
+    }
+
+    /**
+     * Drop all cached entries of this service
+     */
+    public void clear() {
+        version.incrementAndGet();
+        for (int i = 0; i < generations.length(); ++i) {
+            generations.incrementAndGet(i);
+        }
+    }
+
+    // `v` is the version read before the object is loaded
+    private void cacheLoaded(String key, Object found, long v) {
+        cache.put(key, null == found ? NOT_FOUND : found, ttl);
+        if (v != version.get()) {
+            // the object might have been changed after it is loaded
+            cache.evict(key);
+        }
+    }
+
+    private void evictAll(Class<?> clz) {
+        version.incrementAndGet();
+        int slot = slotOf(clz);
+        generations.incrementAndGet(slot);
+        if (OTHER != slot) {
+            // the objects of the type might be cached by their implementation class
+            generations.incrementAndGet(OTHER);
+        }
+        evictDependents(clz);
+    }
+
+    // drop the entries of the types whose objects might refer to
+    // an object of the type specified
+    private void evictDependents(Class<?> clz) {
+        boolean permission = Permission.class.isAssignableFrom(clz);
+        boolean role = Role.class.isAssignableFrom(clz);
+        boolean privilege = Privilege.class.isAssignableFrom(clz);
+        if (permission) {
+            // implied permissions
+            generations.incrementAndGet(PERMISSION);
+        }
+        if (permission || role) {
+            // role permissions and parent roles
+            generations.incrementAndGet(ROLE);
+        }
+        if (permission || role || privilege) {
+            generations.incrementAndGet(PRINCIPAL);
+            generations.incrementAndGet(OTHER);
+        }
+    }
+
+    private void evict(AAAObject aaaObject) {
+        version.incrementAndGet();
+        String name = aaaObject.getName();
+        if (aaaObject instanceof Permission) {
+            cache.evict(key(Permission.class, name));
+        }
+        if (aaaObject instanceof Privilege) {
+            cache.evict(key(Privilege.class, name));
+        }
+        if (aaaObject instanceof Role) {
+            cache.evict(key(Role.class, name));
+        }
+        if (aaaObject instanceof Principal) {
+            cache.evict(key(Principal.class, name));
+        }
+        cache.evict(key(aaaObject.getClass(), name));
+        evictDependents(aaaObject.getClass());
+    }
+
+    private String key(Class<?> clz, String name) {
+        String keyName = ignoreCase && null != name ? name.toLowerCase(Locale.ROOT) : name;
+        return S.concat(keyPrefix, typeKey(clz), String.valueOf(generations.get(slotOf(clz))), ":", keyName);
+    }
+
+    private static int slotOf(Class<?> clz) {
+        if (Permission.class == clz) {
+            return PERMISSION;
+        } else if (Privilege.class == clz) {
+            return PRIVILEGE;
+        } else if (Role.class == clz) {
+            return ROLE;
+        } else if (Principal.class == clz) {
+            return PRINCIPAL;
+        }
+        return OTHER;
+    }
+
+    private static String typeKey(Class<?> clz) {
+        if (Permission.class == clz) {
+            return "aaa-perm:";
+        } else if (Privilege.class == clz) {
+            return "aaa-priv:";
+        } else if (Role.class == clz) {
+            return "aaa-role:";
+        } else if (Principal.class == clz) {
+            return "aaa-principal:";
+        }
+        return S.concat("aaa-", clz.getName(), ":");
+    }
+}
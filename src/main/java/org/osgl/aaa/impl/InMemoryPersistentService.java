@@ -0,0 +1,268 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.*;
+import org.osgl.util.C;
+import org.osgl.util.E;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A thread safe {@link AAAPersistentService} that keeps the AAA objects in memory.
+ *
+ * Each of {@link Permission}, {@link Privilege}, {@link Role} and {@link Principal}
+ * is indexed by name in a `ConcurrentHashMap`, and privileges are also indexed by
+ * level in a `ConcurrentSkipListMap`. Lookups do not lock.
+ *
+ * Names are matched exactly, i.e. {@link #findByName(String, Class)} is case
+ * sensitive, as {@link MappedPersistentService} and the default
+ * {@link CachedPersistentService}. A privilege is indexed at the level it has when
+ * it is saved, if the level of a stored privilege is changed then the privilege
+ * must be saved again to move it to the new level.
+ *
+ * The `allXxx` methods return an immutable snapshot of the objects or names of
+ * a type. The snapshot is built on the first call after the type is changed and
+ * then shared by the following calls, so iterating it neither copies nor sees a
+ * concurrent change. Writes to and snapshot builds of the same type are serialized.
+ *
+ * It could be used as the persistent service of tests and small deployments, where
+ * the model fits in memory and is loaded on start up.
+ */
+public class InMemoryPersistentService implements AAAPersistentService {
+
+    private final Store<Permission> permissions = new Store<Permission>();
+    private final Store<Privilege> privileges = new Store<Privilege>();
+    private final Store<Role> roles = new Store<Role>();
+    private final Store<Principal> principals = new Store<Principal>();
+
+    private final ConcurrentNavigableMap<Integer, Privilege> levels = new ConcurrentSkipListMap<Integer, Privilege>();
+    // the level each privilege is indexed at, guarded by the privileges store lock
+    private final Map<String, Integer> indexedLevels = new HashMap<String, Integer>();
+
+    @Override
+    public void save(AAAObject aaaObject) {
+        E.NPE(aaaObject);
+        Store<AAAObject> store = storeOf(aaaObject.getClass());
+        if (store == (Object) privileges) {
+            savePrivilege((Privilege) aaaObject);
+        } else {
+            synchronized (store) {
+                store.put(aaaObject);
+            }
+        }
+    }
+
+    @Override
+    public void remove(AAAObject aaaObject) {
+        E.NPE(aaaObject);
+        Store<AAAObject> store = storeOf(aaaObject.getClass());
+        synchronized (store) {
+            AAAObject removed = store.remove(aaaObject.getName());
+            if (removed instanceof Privilege) {
+                unindex((Privilege) removed);
+            }
+        }
+    }
+
+    @Override
+    public <T extends AAAObject> void removeAll(Class<T> clz) {
+        Store<AAAObject> store = storeOf(clz);
+        synchronized (store) {
+            store.clear();
+            if (store == (Object) privileges) {
+                levels.clear();
+                indexedLevels.clear();
+            }
+        }
+    }
+
+    @Override
+    public <T extends AAAObject> T findByName(String name, Class<T> clz) {
+        AAAObject found = storeOf(clz).byName.get(name);
+        return clz.isInstance(found) ? clz.cast(found) : null;
+    }
+
+    @Override
+    public Privilege findPrivilege(int level) {
+        return levels.get(level);
+    }
+
+    /**
+     * Returns the privilege with the greatest level that is less than or equal to
+     * the level specified
+     *
+     * @param level the privilege level
+     * @return the privilege found or `null` if all privileges has a greater level
+     */
+    public Privilege floorPrivilege(int level) {
+        Map.Entry<Integer, Privilege> entry = levels.floorEntry(level);
+        return null == entry ? null : entry.getValue();
+    }
+
+    @Override
+    public Iterable<Privilege> allPrivileges() {
+        return privileges.snapshot().objects;
+    }
+
+    @Override
+    public Iterable<Permission> allPermissions() {
+        return permissions.snapshot().objects;
+    }
+
+    @Override
+    public Iterable<Role> allRoles() {
+        return roles.snapshot().objects;
+    }
+
+    /**
+     * Returns all {@link Principal principals}
+     * @return all principals in an {@link Iterable}
+     */
+    public Iterable<Principal> allPrincipals() {
+        return principals.snapshot().objects;
+    }
+
+    @Override
+    public Iterable<String> allPrivilegeNames() {
+        return privileges.snapshot().names;
+    }
+
+    @Override
+    public Iterable<String> allPermissionNames() {
+        return permissions.snapshot().names;
+    }
+
+    @Override
+    public Iterable<String> allRoleNames() {
+        return roles.snapshot().names;
+    }
+
+    private void savePrivilege(Privilege privilege) {
+        synchronized (privileges) {
+            Privilege prev = privileges.put(privilege);
+            if (null != prev) {
+                unindex(prev);
+            }
+            int level = privilege.getLevel();
+            levels.put(level, privilege);
+            indexedLevels.put(privilege.getName(), level);
+        }
+    }
+
+    // called with privileges store locked. The level indexed is used instead of
+    // the current level of the privilege which might have been changed in place
+    private void unindex(Privilege privilege) {
+        Integer level = indexedLevels.remove(privilege.getName());
+        if (null != level && levels.remove(level, privilege)) {
+            // another privilege might share the same level
+            for (Map.Entry<String, Integer> entry : indexedLevels.entrySet()) {
+                if (level.equals(entry.getValue())) {
+                    levels.put(level, privileges.byName.get(entry.getKey()));
+                    break;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Store<AAAObject> storeOf(Class<?> type) {
+        Store<?> store;
+        if (Permission.class.isAssignableFrom(type)) {
+            store = permissions;
+        } else if (Privilege.class.isAssignableFrom(type)) {
+            store = privileges;
+        } else if (Role.class.isAssignableFrom(type)) {
+            store = roles;
+        } else if (Principal.class.isAssignableFrom(type)) {
+            store = principals;
+        } else {
+            throw E.invalidArg("Unknown AAA object type: %s", type);
+        }
+        return (Store<AAAObject>) store;
+    }
+
+    private static final class Store<T extends AAAObject> {
+        final ConcurrentHashMap<String, T> byName = new ConcurrentHashMap<String, T>();
+        // updated with the store locked, after `byName` is changed
+        private volatile int version;
+        // built with the store locked, thus it is consistent with `version`
+        private volatile Snapshot<T> snapshot;
+
+        T put(T object) {
+            T prev = byName.put(object.getName(), object);
+            version++;
+            return prev;
+        }
+
+        T remove(String name) {
+            T removed = byName.remove(name);
+            if (null != removed) {
+                version++;
+            }
+            return removed;
+        }
+
+        void clear() {
+            byName.clear();
+            version++;
+        }
+
+        Snapshot<T> snapshot() {
+            Snapshot<T> s = snapshot;
+            if (null != s && s.version == version) {
+                return s;
+            }
+            synchronized (this) {
+                s = snapshot;
+                if (null == s || s.version != version) {
+                    s = new Snapshot<T>(version, byName);
+                    snapshot = s;
+                }
+                return s;
+            }
+        }
+    }
+
+    private static final class Snapshot<T extends AAAObject> {
+        final int version;
+        final C.List<T> objects;
+        final C.List<String> names;
+
+        Snapshot(int version, Map<String, T> byName) {
+            this.version = version;
+            C.List<T> objectList = C.newSizedList(byName.size());
+            C.List<String> nameList = C.newSizedList(byName.size());
+            for (Map.Entry<String, T> entry : byName.entrySet()) {
+                nameList.add(entry.getKey());
+                objectList.add(entry.getValue());
+            }
+            // copied into immutable lists, the read only view returned by `C.list(List)`
+            // lets its iterator remove elements from the shared snapshot
+            this.objects = C.list(objectList.iterator());
+            this.names = C.list(nameList.iterator());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.AAAChangeEvent;
+import org.osgl.aaa.AAAChangeListener;
+import org.osgl.aaa.InvalidationTransport;
+import org.osgl.logging.LogManager;
+import org.osgl.logging.Logger;
+import org.osgl.util.E;
+import org.osgl.util.S;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects an {@link ObservablePersistentService} to an {@link InvalidationTransport}.
+ *
+ * Change events published by the local persistent service are buffered, coalesced
+ * and sent to the other nodes in batches. Change events received from the other
+ * nodes are {@link ObservablePersistentService#publish(AAAChangeEvent) published} to
+ * the local listeners, e.g. a {@link CacheInvalidationListener}, but are not sent
+ * back to the transport.
+ *
+ * Coalescing keeps only the last event of an object in a batch, and a
+ * {@link AAAChangeEvent.Operation#REMOVE_ALL} event supersedes all other events
+ * of the same type in the batch.
+ *
+ * ```java
+ * ObservablePersistentService db = new ObservablePersistentService(myDb);
+ * AAAContext context = new SimpleAAAContext(authen, author, db);
+ * db.addListener(new CacheInvalidationListener(context));
+ * InvalidationBroadcaster broadcaster = new InvalidationBroadcaster(db, new MulticastInvalidationTransport());
+ * ...
+ * broadcaster.close(); // on shutdown
+ * ```
+ */
+public class InvalidationBroadcaster implements AAAChangeListener, Closeable {
+
+    /**
+     * The default interval in milliseconds between two batches
+     */
+    public static final int DEF_FLUSH_INTERVAL = 100;
+
+    /**
+     * The default maximum number of events in a batch
+     */
+    public static final int DEF_MAX_BATCH_SIZE = 256;
+
+    private static final Logger logger = LogManager.get(InvalidationBroadcaster.class);
+
+    private final ObservablePersistentService db;
+    private final InvalidationTransport transport;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadLocal<Boolean> receiving = new ThreadLocal<Boolean>();
+    // keyed by type and name, guarded by `this`
+    private Map<String, AAAChangeEvent> pending = new LinkedHashMap<String, AAAChangeEvent>();
+    private boolean closed;
+
+    public InvalidationBroadcaster(ObservablePersistentService db, InvalidationTransport transport) {
+        this(db, transport, DEF_FLUSH_INTERVAL, TimeUnit.MILLISECONDS, DEF_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Construct an `InvalidationBroadcaster`
+     *
+     * @param db the observable persistent service
+     * @param transport the invalidation transport
+     * @param flushInterval the interval between two batches
+     * @param unit the time unit of `flushInterval`
+     * @param maxBatchSize the number of pending events that triggers a batch immediately
+     */
+    public InvalidationBroadcaster(ObservablePersistentService db, InvalidationTransport transport, long flushInterval, TimeUnit unit, int maxBatchSize) {
+        E.illegalArgumentIf(flushInterval < 1, "flushInterval shall be positive");
+        E.illegalArgumentIf(maxBatchSize < 1, "maxBatchSize shall be positive");
+        this.db = $.requireNotNull(db);
+        this.transport = $.requireNotNull(transport);
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "osgl-aaa-invalidation-sender");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, flushInterval, flushInterval, unit);
+        transport.setReceiver(new AAAChangeListener() {
+            @Override
+            public void onChange(AAAChangeEvent event) {
+                receive(event);
+            }
+        });
+        db.addListener(this);
+    }
+
+    /**
+     * Buffer a local change event to be sent to the other nodes
+     * @param event the change event
+     */
+    @Override
+    public void onChange(AAAChangeEvent event) {
+        if (Boolean.TRUE == receiving.get()) {
+            return;
+        }
+        boolean full;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (AAAChangeEvent.Operation.REMOVE_ALL == event.operation()) {
+                Iterator<AAAChangeEvent> itr = pending.values().iterator();
+                while (itr.hasNext()) {
+                    if (itr.next().type() == event.type()) {
+                        itr.remove();
+                    }
+                }
+            } else if (pending.containsKey(key(event.type(), null))) {
+                return;
+            }
+            String key = key(event.type(), event.name());
+            // remove first so that the key moves to the end
+            pending.remove(key);
+            pending.put(key, event);
+            full = pending.size() >= maxBatchSize;
+        }
+        if (full) {
+            scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    /**
+     * Send all pending change events to the other nodes
+     */
+    public void flush() {
+        List<AAAChangeEvent> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<AAAChangeEvent>(pending.values());
+            pending = new LinkedHashMap<String, AAAChangeEvent>();
+        }
+        try {
+            transport.send(batch);
+        } catch (RuntimeException e) {
+            logger.error(e, "error sending change events");
+        }
+    }
+
+    /**
+     * Send the pending change events, stop listening to the persistent service and
+     * close the transport
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        db.removeListener(this);
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        transport.close();
+    }
+
+    private void receive(AAAChangeEvent event) {
+        receiving.set(Boolean.TRUE);
+        try {
+            db.publish(event);
+        } finally {
+            receiving.remove();
+        }
+    }
+
+    private static String key(Class<?> type, String name) {
+        return null == name ? S.concat(type.getName(), "#") : S.concat(type.getName(), "|", name);
+    }
+}
@@ -0,0 +1,100 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.AAAChangeEvent;
+import org.osgl.aaa.AAAChangeListener;
+import org.osgl.aaa.InvalidationTransport;
+import org.osgl.logging.LogManager;
+import org.osgl.logging.Logger;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-JVM {@link InvalidationTransport}. Events sent by a transport are delivered
+ * synchronously to all other transports on the same channel.
+ *
+ * It is useful to run multiple AAA setups in one JVM, e.g. in tests.
+ */
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger = LogManager.get(LoopbackInvalidationTransport.class);
+
+    private static final ConcurrentMap<String, List<LoopbackInvalidationTransport>> channels =
+            new ConcurrentHashMap<String, List<LoopbackInvalidationTransport>>();
+
+    private final String channel;
+    private final List<LoopbackInvalidationTransport> peers;
+    private volatile AAAChangeListener receiver;
+
+    /**
+     * Construct a loopback transport on the channel specified
+     * @param channel the channel name
+     */
+    public LoopbackInvalidationTransport(String channel) {
+        this.channel = $.requireNotNull(channel);
+        List<LoopbackInvalidationTransport> list = new CopyOnWriteArrayList<LoopbackInvalidationTransport>();
+        List<LoopbackInvalidationTransport> existing = channels.putIfAbsent(channel, list);
+        this.peers = null == existing ? list : existing;
+        this.peers.add(this);
+    }
+
+    public String channel() {
+        return channel;
+    }
+
+    @Override
+    public void send(List<AAAChangeEvent> events) {
+        for (LoopbackInvalidationTransport peer : peers) {
+            if (peer != this) {
+                peer.receive(events);
+            }
+        }
+    }
+
+    @Override
+    public void setReceiver(AAAChangeListener receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void close() {
+        peers.remove(this);
+    }
+
+    private void receive(List<AAAChangeEvent> events) {
+        AAAChangeListener listener = receiver;
+        if (null == listener) {
+            return;
+        }
+        for (AAAChangeEvent event : events) {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                logger.error(e, "error receiving change event: %s", event);
+            }
+        }
+    }
+}
@@ -0,0 +1,839 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.*;
+import org.osgl.exception.UnexpectedException;
+import org.osgl.util.C;
+import org.osgl.util.E;
+import org.osgl.util.IO;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A read only {@link AAAPersistentService} backed by a memory mapped snapshot file.
+ *
+ * The snapshot is created by {@link #write(File, AAAPersistentService, Iterable)} from
+ * another persistent service, e.g. the database backed one, and opened by the
+ * constructor. Opening a snapshot maps the file and reads a fixed size header,
+ * thus it takes constant time no matter how large the model is. The pages of the
+ * file are loaded by the operating system when they are accessed.
+ *
+ * Each type of objects is stored in a section where the records are sorted by name,
+ * followed by an index of the record offsets, so {@link #findByName(String, Class)}
+ * is a binary search on the mapped file. Privileges also have a level index for
+ * {@link #findPrivilege(int)}. An object is decoded into a `SimpleXxx` instance when
+ * it is looked up the first time and then cached, the objects never looked up stay
+ * in the file. The referenced objects, e.g. the roles of a principal, are resolved
+ * by name in the same way.
+ *
+ * The lengths and offsets read from the records are checked against the end of the
+ * file, a corrupted record is reported by `IllegalStateException` when it is read.
+ *
+ * A snapshot file is limited to 2GB. Mutating methods throw `UnsupportedException`,
+ * a new snapshot shall be written and opened to pick up changes.
+ */
+public class MappedPersistentService implements AAAPersistentService {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // "OAAA"
+    private static final int MAGIC = 0x4F414141;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int PERMISSION = 0;
+    private static final int PRIVILEGE = 1;
+    private static final int ROLE = 2;
+    private static final int PRINCIPAL = 3;
+    private static final int SECTIONS = 4;
+
+    // magic, version, index offset and count of each section, level index offset and count
+    private static final int HEADER_SIZE = 8 + 8 * SECTIONS + 8;
+
+    private final File file;
+    private final ByteBuffer buf;
+    private final Section[] sections = new Section[SECTIONS];
+    private final int levelIndexOffset;
+    private final int levelCount;
+
+    // the objects being decoded by the current thread, used to cut reference cycles
+    private final ThreadLocal<DecodeStack> decoding = new ThreadLocal<DecodeStack>();
+
+    /**
+     * Open a snapshot file written by {@link #write(File, AAAPersistentService, Iterable)}
+     *
+     * @param file the snapshot file
+     * @throws IllegalArgumentException if the file is not a snapshot file, or the
+     *                                  indexes in the header are out of the file
+     */
+    public MappedPersistentService(File file) {
+        this.file = $.requireNotNull(file);
+        ByteBuffer mapped;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            E.illegalArgumentIf(size < HEADER_SIZE || size > Integer.MAX_VALUE, "invalid AAA snapshot file size: %s", file);
+            // the mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new UnexpectedException(e, "error opening AAA snapshot file %s", file);
+        } finally {
+            IO.close(raf);
+        }
+        E.illegalArgumentIf(mapped.getInt(0) != MAGIC, "not an AAA snapshot file: %s", file);
+        E.illegalArgumentIf(mapped.getInt(4) != FORMAT_VERSION, "unsupported AAA snapshot format version %s: %s", mapped.getInt(4), file);
+        this.buf = mapped;
+        int size = mapped.capacity();
+        for (int i = 0; i < SECTIONS; ++i) {
+            int indexOffset = mapped.getInt(8 + 8 * i);
+            int count = mapped.getInt(12 + 8 * i);
+            checkIndex(indexOffset, count, 4, size);
+            sections[i] = new Section(i, indexOffset, count);
+        }
+        this.levelIndexOffset = mapped.getInt(8 + 8 * SECTIONS);
+        this.levelCount = mapped.getInt(12 + 8 * SECTIONS);
+        checkIndex(levelIndexOffset, levelCount, 8, size);
+    }
+
+    /**
+     * Returns the snapshot file
+     * @return the file
+     */
+    public File file() {
+        return file;
+    }
+
+    @Override
+    public void save(AAAObject aaaObject) {
+        throw E.unsupport("%s is read only", getClass().getSimpleName());
+    }
+
+    @Override
+    public void remove(AAAObject aaaObject) {
+        throw E.unsupport("%s is read only", getClass().getSimpleName());
+    }
+
+    @Override
+    public <T extends AAAObject> void removeAll(Class<T> clz) {
+        throw E.unsupport("%s is read only", getClass().getSimpleName());
+    }
+
+    @Override
+    public <T extends AAAObject> T findByName(String name, Class<T> clz) {
+        if (null == name) {
+            return null;
+        }
+        Section section = sectionOf(clz);
+        int idx = section.search(name.getBytes(UTF_8));
+        if (idx < 0) {
+            return null;
+        }
+        AAAObject found = section.object(idx);
+        return clz.isInstance(found) ? clz.cast(found) : null;
+    }
+
+    @Override
+    public Privilege findPrivilege(int level) {
+        int pos = searchLevel(level);
+        return pos < 0 ? null : privilegeAt(pos);
+    }
+
+    /**
+     * Returns the privilege with the greatest level that is less than or equal to
+     * the level specified
+     *
+     * @param level the privilege level
+     * @return the privilege found or `null` if all privileges has a greater level
+     */
+    public Privilege floorPrivilege(int level) {
+        int pos = searchLevel(level);
+        if (pos < 0) {
+            // insertion point - 1 is the greatest level below
+            pos = -pos - 2;
+        }
+        return pos < 0 ? null : privilegeAt(pos);
+    }
+
+    @Override
+    public Iterable<Privilege> allPrivileges() {
+        return sections[PRIVILEGE].all();
+    }
+
+    @Override
+    public Iterable<Permission> allPermissions() {
+        return sections[PERMISSION].all();
+    }
+
+    @Override
+    public Iterable<Role> allRoles() {
+        return sections[ROLE].all();
+    }
+
+    /**
+     * Returns all {@link Principal principals}
+     * @return all principals in an {@link Iterable}
+     */
+    public Iterable<Principal> allPrincipals() {
+        return sections[PRINCIPAL].all();
+    }
+
+    @Override
+    public Iterable<String> allPrivilegeNames() {
+        return sections[PRIVILEGE].names();
+    }
+
+    @Override
+    public Iterable<String> allPermissionNames() {
+        return sections[PERMISSION].names();
+    }
+
+    @Override
+    public Iterable<String> allRoleNames() {
+        return sections[ROLE].names();
+    }
+
+    /**
+     * Write a snapshot file of the permissions, privileges and roles in the persistent
+     * service and the principals specified.
+     *
+     * The objects referenced by those objects, e.g. the implied permissions, are written
+     * as well. If two objects of the same type have the same name then the first one
+     * is written.
+     *
+     * The snapshot is written to a temporary file in the same directory, which is then
+     * renamed to `file` atomically, so the file is never seen partially written, and
+     * the services that have the previous snapshot opened keep reading the previous
+     * content, as the mapping stays on the replaced file. Open a new service to pick
+     * up the new snapshot.
+     *
+     * @param file the snapshot file
+     * @param source the persistent service to take the objects from
+     * @param principals the principals to be written
+     */
+    public static void write(File file, AAAPersistentService source, Iterable<? extends Principal> principals) {
+        E.NPE(file, source);
+        Model model = new Model();
+        for (Permission permission : source.allPermissions()) {
+            model.add(permission);
+        }
+        for (Privilege privilege : source.allPrivileges()) {
+            model.add(privilege);
+        }
+        for (Role role : source.allRoles()) {
+            model.add(role);
+        }
+        if (null != principals) {
+            for (Principal principal : principals) {
+                model.add(principal);
+            }
+        }
+        File target = file.getAbsoluteFile();
+        File tmp = null;
+        FileOutputStream os = null;
+        boolean written = false;
+        try {
+            tmp = File.createTempFile("." + target.getName() + ".", ".tmp", target.getParentFile());
+            os = new FileOutputStream(tmp);
+            model.writeTo(os);
+            os.close();
+            os = null;
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            written = true;
+        } catch (IOException e) {
+            throw new UnexpectedException(e, "error writing AAA snapshot file %s", file);
+        } finally {
+            IO.close(os);
+            if (!written && null != tmp && !tmp.delete() && tmp.exists()) {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+    // makes sure an index of `count` entries of `entrySize` bytes at `offset` is in the file
+    private void checkIndex(int offset, int count, int entrySize, int size) {
+        E.illegalArgumentIf(offset < HEADER_SIZE || count < 0 || offset + (long) entrySize * count > size,
+                "corrupted AAA snapshot file: %s", file);
+    }
+
+    // makes sure `length` bytes at `offset` are in the records area of the file
+    private void checkRange(int offset, long length) {
+        E.illegalStateIf(offset < HEADER_SIZE || length < 0 || offset + length > buf.limit(),
+                "corrupted AAA snapshot file: %s", file);
+    }
+
+    private Section sectionOf(Class<?> type) {
+        if (Permission.class.isAssignableFrom(type)) {
+            return sections[PERMISSION];
+        } else if (Privilege.class.isAssignableFrom(type)) {
+            return sections[PRIVILEGE];
+        } else if (Role.class.isAssignableFrom(type)) {
+            return sections[ROLE];
+        } else if (Principal.class.isAssignableFrom(type)) {
+            return sections[PRINCIPAL];
+        }
+        throw E.invalidArg("Unknown AAA object type: %s", type);
+    }
+
+    // returns the position in the level index, or `-(insertion point) - 1` if not found
+    private int searchLevel(int level) {
+        int lo = 0, hi = levelCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int l = buf.getInt(levelIndexOffset + 8 * mid);
+            if (l < level) {
+                lo = mid + 1;
+            } else if (l > level) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private Privilege privilegeAt(int levelPos) {
+        Section section = sections[PRIVILEGE];
+        int idx = buf.getInt(levelIndexOffset + 8 * levelPos + 4);
+        E.illegalStateIf(idx < 0 || idx >= section.count, "corrupted AAA snapshot file: %s", file);
+        return (Privilege) section.object(idx);
+    }
+
+    private <T extends AAAObject> C.List<T> resolve(int type, List<String> names) {
+        Section section = sections[type];
+        C.List<T> list = C.newSizedList(names.size());
+        for (String name : names) {
+            int idx = section.search(name.getBytes(UTF_8));
+            if (idx >= 0) {
+                list.add($.<T>cast(section.object(idx)));
+            }
+        }
+        return list;
+    }
+
+    private AAAObject decode(int type, int offset, boolean stub) {
+        Record r = new Record(offset);
+        String name = r.readString();
+        AAAObjectBase object;
+        switch (type) {
+            case PERMISSION: {
+                boolean dynamic = r.readByte() != 0;
+                List<String> implied = r.readStrings();
+                object = stub ? new SimplePermission(name, dynamic)
+                        : new SimplePermission(name, this.<Permission>resolve(PERMISSION, implied), dynamic);
+                break;
+            }
+            case PRIVILEGE:
+                object = new SimplePrivilege(name, r.readInt());
+                break;
+            case ROLE: {
+                C.List<Permission> perms = resolve(PERMISSION, r.readStrings());
+                List<String> parents = r.readStrings();
+                object = stub ? new SimpleRole(name, perms) : new SimpleRole(name, perms, this.<Role>resolve(ROLE, parents));
+                break;
+            }
+            case PRINCIPAL: {
+                String privilege = r.readByte() != 0 ? r.readString() : null;
+                C.List<Privilege> privileges = null == privilege ? C.<Privilege>list() : this.<Privilege>resolve(PRIVILEGE, C.list(privilege));
+                C.List<Role> roles = resolve(ROLE, r.readStrings());
+                C.List<Permission> perms = resolve(PERMISSION, r.readStrings());
+                object = new SimplePrincipal(name, privileges.isEmpty() ? null : privileges.get(0), roles, perms);
+                break;
+            }
+            default:
+                throw E.unexpected("unknown section: %s", type);
+        }
+        for (int i = r.readInt(); i > 0; --i) {
+            object.setProperty(r.readString(), r.readString());
+        }
+        return object;
+    }
+
+    private final class Section {
+        private final int type;
+        private final int indexOffset;
+        private final int count;
+        private final AtomicReferenceArray<AAAObject> objects;
+        private volatile C.List<String> names;
+        private volatile C.List<?> all;
+
+        Section(int type, int indexOffset, int count) {
+            this.type = type;
+            this.indexOffset = indexOffset;
+            this.count = count;
+            this.objects = new AtomicReferenceArray<AAAObject>(count);
+        }
+
+        // binary search the name index, returns the index of the record or `-1` if not found
+        int search(byte[] name) {
+            int lo = 0, hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compare(offsetOf(mid), name);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        AAAObject object(int idx) {
+            AAAObject object = objects.get(idx);
+            if (null != object) {
+                return object;
+            }
+            DecodeStack stack = decoding.get();
+            if (null == stack) {
+                stack = new DecodeStack();
+                decoding.set(stack);
+            }
+            long key = ((long) type << 32) | idx;
+            int depth = stack.indexOf(key);
+            if (depth >= 0) {
+                // reference cycle, returns an object without the references
+                // back to the objects being decoded
+                stack.cutAt(depth);
+                return decode(type, offsetOf(idx), true);
+            }
+            stack.push(key);
+            boolean complete = false;
+            try {
+                object = decode(type, offsetOf(idx), false);
+            } finally {
+                complete = stack.pop();
+                if (stack.isEmpty()) {
+                    decoding.remove();
+                }
+            }
+            if (complete && !objects.compareAndSet(idx, null, object)) {
+                object = objects.get(idx);
+            }
+            return object;
+        }
+
+        <T> C.List<T> all() {
+            C.List<?> list = all;
+            if (null == list) {
+                C.List<AAAObject> objectList = C.newSizedList(count);
+                for (int i = 0; i < count; ++i) {
+                    objectList.add(object(i));
+                }
+                list = C.list(objectList);
+                all = list;
+            }
+            return $.cast(list);
+        }
+
+        C.List<String> names() {
+            C.List<String> list = names;
+            if (null == list) {
+                C.List<String> nameList = C.newSizedList(count);
+                for (int i = 0; i < count; ++i) {
+                    nameList.add(new Record(offsetOf(i)).readString());
+                }
+                list = C.list(nameList);
+                names = list;
+            }
+            return list;
+        }
+
+        private int offsetOf(int idx) {
+            return buf.getInt(indexOffset + 4 * idx);
+        }
+
+        // compares the UTF-8 encoded name of the record with the name specified as unsigned bytes
+        private int compare(int offset, byte[] name) {
+            checkRange(offset, 4);
+            int len = buf.getInt(offset);
+            int pos = offset + 4;
+            checkRange(pos, len);
+            int n = Math.min(len, name.length);
+            for (int i = 0; i < n; ++i) {
+                int a = buf.get(pos + i) & 0xFF;
+                int b = name[i] & 0xFF;
+                if (a != b) {
+                    return a - b;
+                }
+            }
+            return len - name.length;
+        }
+    }
+
+    /**
+     * Keeps track of the objects being decoded by a thread. An object is cached
+     * only if none of the objects it references has been cut from a reference
+     * cycle that is closed by one of the objects that reference it.
+     */
+    private static final class DecodeStack {
+        private long[] keys = new long[8];
+        // the lowest depth at which a cycle is closed under each frame
+        private int[] cuts = new int[8];
+        private int size;
+
+        int indexOf(long key) {
+            for (int i = 0; i < size; ++i) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void push(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                cuts = Arrays.copyOf(cuts, size * 2);
+            }
+            keys[size] = key;
+            cuts[size] = Integer.MAX_VALUE;
+            size++;
+        }
+
+        void cutAt(int depth) {
+            int top = size - 1;
+            cuts[top] = Math.min(cuts[top], depth);
+        }
+
+        // returns whether the popped object is complete
+        boolean pop() {
+            int depth = --size;
+            int cut = cuts[depth];
+            if (depth > 0) {
+                cuts[depth - 1] = Math.min(cuts[depth - 1], cut);
+            }
+            return cut >= depth;
+        }
+
+        boolean isEmpty() {
+            return 0 == size;
+        }
+    }
+
+    // reads a record, the lengths and counts read are checked against the end of the
+    // file before they are used to allocate or read
+    private final class Record {
+        private final ByteBuffer in;
+
+        Record(int offset) {
+            checkRange(offset, 0);
+            this.in = buf.duplicate();
+            this.in.position(offset);
+        }
+
+        byte readByte() {
+            ensure(1);
+            return in.get();
+        }
+
+        int readInt() {
+            ensure(4);
+            return in.getInt();
+        }
+
+        String readString() {
+            int len = readInt();
+            ensure(len);
+            byte[] bytes = new byte[len];
+            in.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+
+        List<String> readStrings() {
+            int n = readInt();
+            if (0 == n) {
+                return C.list();
+            }
+            // each string takes at least 4 bytes for its length
+            ensure(4L * n);
+            List<String> list = new ArrayList<String>(n);
+            for (int i = 0; i < n; ++i) {
+                list.add(readString());
+            }
+            return list;
+        }
+
+        private void ensure(long length) {
+            E.illegalStateIf(length < 0 || length > in.remaining(), "corrupted AAA snapshot file: %s", file);
+        }
+    }
+
+    /**
+     * Collects the objects to be written and encodes the snapshot
+     */
+    private static final class Model {
+        private final List<Map<String, AAAObject>> sections = new ArrayList<Map<String, AAAObject>>(SECTIONS);
+
+        Model() {
+            for (int i = 0; i < SECTIONS; ++i) {
+                sections.add(new HashMap<String, AAAObject>());
+            }
+        }
+
+        void add(Permission permission) {
+            if (null == permission || !put(PERMISSION, permission)) {
+                return;
+            }
+            Collection<Permission> implied = permission.implied();
+            if (null != implied) {
+                for (Permission p : implied) {
+                    add(p);
+                }
+            }
+        }
+
+        void add(Privilege privilege) {
+            if (null != privilege) {
+                put(PRIVILEGE, privilege);
+            }
+        }
+
+        void add(Role role) {
+            if (null == role || !put(ROLE, role)) {
+                return;
+            }
+            addAll(role.getPermissions());
+            if (role instanceof Role.Hierarchical) {
+                for (Role parent : nonNull(((Role.Hierarchical) role).getParentRoles())) {
+                    add(parent);
+                }
+            }
+        }
+
+        void add(Principal principal) {
+            if (null == principal || !put(PRINCIPAL, principal)) {
+                return;
+            }
+            add(principal.getPrivilege());
+            for (Role role : nonNull(principal.getRoles())) {
+                add(role);
+            }
+            addAll(principal.getPermissions());
+        }
+
+        private void addAll(Collection<Permission> permissions) {
+            for (Permission p : nonNull(permissions)) {
+                add(p);
+            }
+        }
+
+        private boolean put(int type, AAAObject object) {
+            Map<String, AAAObject> section = sections.get(type);
+            if (section.containsKey(object.getName())) {
+                return false;
+            }
+            section.put(object.getName(), object);
+            return true;
+        }
+
+        // streams the sections to the file after a placeholder of the header, the header
+        // is written in place once the offsets are known
+        void writeTo(FileOutputStream os) throws IOException {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+            out.write(new byte[HEADER_SIZE]);
+            int[][] offsets = new int[SECTIONS][];
+            List<AAAObject> privileges = null;
+            for (int type = 0; type < SECTIONS; ++type) {
+                List<AAAObject> objects = sort(sections.get(type).values());
+                if (PRIVILEGE == type) {
+                    privileges = objects;
+                }
+                int[] sectionOffsets = new int[objects.size()];
+                for (int i = 0; i < sectionOffsets.length; ++i) {
+                    sectionOffsets[i] = out.size();
+                    encode(type, objects.get(i), out);
+                }
+                offsets[type] = sectionOffsets;
+            }
+            int[] indexOffsets = new int[SECTIONS];
+            for (int type = 0; type < SECTIONS; ++type) {
+                indexOffsets[type] = out.size();
+                for (int offset : offsets[type]) {
+                    out.writeInt(offset);
+                }
+            }
+            int levelIndexOffset = out.size();
+            int levelCount = writeLevelIndex(privileges, out);
+            out.flush();
+            // the counter of DataOutputStream stops at Integer.MAX_VALUE
+            E.illegalStateIf(out.size() == Integer.MAX_VALUE, "AAA snapshot too large");
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            for (int type = 0; type < SECTIONS; ++type) {
+                header.putInt(indexOffsets[type]);
+                header.putInt(offsets[type].length);
+            }
+            header.putInt(levelIndexOffset);
+            header.putInt(levelCount);
+            header.flip();
+            FileChannel channel = os.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+
+        // writes (level, index) pairs sorted by level, the first privilege wins on the same level
+        private static int writeLevelIndex(List<AAAObject> privileges, DataOutputStream out) throws IOException {
+            TreeMap<Integer, Integer> levels = new TreeMap<Integer, Integer>();
+            for (int i = 0; i < privileges.size(); ++i) {
+                int level = ((Privilege) privileges.get(i)).getLevel();
+                if (!levels.containsKey(level)) {
+                    levels.put(level, i);
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : levels.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            return levels.size();
+        }
+
+        private static void encode(int type, AAAObject object, DataOutputStream out) throws IOException {
+            String name = object.getName();
+            writeString(name, out);
+            switch (type) {
+                case PERMISSION: {
+                    Permission permission = (Permission) object;
+                    out.writeByte(permission.isDynamic() ? 1 : 0);
+                    List<String> implied = new ArrayList<String>();
+                    for (Permission p : nonNull(permission.implied())) {
+                        // `implied()` of SimplePermission contains the permission itself
+                        if (null != p && !name.equals(p.getName()) && !implied.contains(p.getName())) {
+                            implied.add(p.getName());
+                        }
+                    }
+                    writeStrings(implied, out);
+                    break;
+                }
+                case PRIVILEGE:
+                    out.writeInt(((Privilege) object).getLevel());
+                    break;
+                case ROLE: {
+                    Role role = (Role) object;
+                    writeNames(role.getPermissions(), out);
+                    writeNames(role instanceof Role.Hierarchical ? ((Role.Hierarchical) role).getParentRoles() : null, out);
+                    break;
+                }
+                case PRINCIPAL: {
+                    Principal principal = (Principal) object;
+                    Privilege privilege = principal.getPrivilege();
+                    out.writeByte(null == privilege ? 0 : 1);
+                    if (null != privilege) {
+                        writeString(privilege.getName(), out);
+                    }
+                    writeNames(principal.getRoles(), out);
+                    writeNames(principal.getPermissions(), out);
+                    break;
+                }
+                default:
+                    throw E.unexpected("unknown section: %s", type);
+            }
+            List<String> props = new ArrayList<String>();
+            for (String key : nonNull(object.propertyKeys())) {
+                String value = object.getProperty(key);
+                if (null != key && null != value) {
+                    props.add(key);
+                    props.add(value);
+                }
+            }
+            out.writeInt(props.size() / 2);
+            for (String s : props) {
+                writeString(s, out);
+            }
+        }
+
+        private static void writeNames(Collection<? extends AAAObject> objects, DataOutputStream out) throws IOException {
+            List<String> names = new ArrayList<String>();
+            for (AAAObject object : nonNull(objects)) {
+                if (null != object) {
+                    names.add(object.getName());
+                }
+            }
+            writeStrings(names, out);
+        }
+
+        private static void writeStrings(List<String> strings, DataOutputStream out) throws IOException {
+            out.writeInt(strings.size());
+            for (String s : strings) {
+                writeString(s, out);
+            }
+        }
+
+        private static void writeString(String s, DataOutputStream out) throws IOException {
+            byte[] bytes = s.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        // sorts the objects by the UTF-8 encoded name as unsigned bytes, the order used by the index
+        private static List<AAAObject> sort(Collection<AAAObject> objects) {
+            List<AAAObject> list = new ArrayList<AAAObject>(objects);
+            Collections.sort(list, new Comparator<AAAObject>() {
+                @Override
+                public int compare(AAAObject o1, AAAObject o2) {
+                    byte[] a = o1.getName().getBytes(UTF_8);
+                    byte[] b = o2.getName().getBytes(UTF_8);
+                    int n = Math.min(a.length, b.length);
+                    for (int i = 0; i < n; ++i) {
+                        int x = a[i] & 0xFF;
+                        int y = b[i] & 0xFF;
+                        if (x != y) {
+                            return x - y;
+                        }
+                    }
+                    return a.length - b.length;
+                }
+            });
+            return list;
+        }
+    }
+
+    private static <T> Collection<T> nonNull(Collection<T> col) {
+        return null == col ? Collections.<T>emptyList() : col;
+    }
+}
@@ -0,0 +1,311 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.*;
+import org.osgl.exception.UnexpectedException;
+import org.osgl.logging.LogManager;
+import org.osgl.logging.Logger;
+
+import java.io.*;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An {@link InvalidationTransport} that sends change events as UDP multicast datagrams.
+ *
+ * All nodes shall use the same multicast group and port. A batch of events is split
+ * into multiple datagrams if it does not fit into one, an event that does not fit into
+ * a datagram by itself is logged and dropped. As UDP is not reliable,
+ * application shall still keep a TTL on the cached entries as a safety net.
+ *
+ * Only the changes of {@link Permission}, {@link Privilege}, {@link Role} and
+ * {@link Principal} objects are sent, the type of an event is sent as the name of
+ * the interface the object implements. The changes of other {@link AAAObject}
+ * types are not sent. Datagrams that cannot be decoded are logged and dropped.
+ *
+ * To run without a network, e.g. in tests, use the loopback network interface with
+ * time to live `0`.
+ */
+public class MulticastInvalidationTransport implements InvalidationTransport {
+
+    /**
+     * The default multicast group
+     */
+    public static final String DEF_GROUP = "239.255.27.1";
+
+    /**
+     * The default port
+     */
+    public static final int DEF_PORT = 47431;
+
+    private static final Logger logger = LogManager.get(MulticastInvalidationTransport.class);
+
+    private static final int MAGIC = 0x41414131;
+
+    private static final int MAX_PACKET_SIZE = 8192;
+
+    // the types that can be sent, in the order of AAAChangeEvent type resolution
+    private static final List<Class<? extends AAAObject>> WIRE_TYPES = wireTypes();
+
+    private final InetSocketAddress groupAddress;
+    private final NetworkInterface networkInterface;
+    private final MulticastSocket socket;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Thread receiverThread;
+    private volatile AAAChangeListener receiver;
+    private volatile boolean closed;
+
+    /**
+     * Construct a transport on the {@link #DEF_GROUP default group} and {@link #DEF_PORT default port}
+     */
+    public MulticastInvalidationTransport() {
+        this(DEF_GROUP, DEF_PORT);
+    }
+
+    /**
+     * Construct a transport on the group and port specified
+     * @param group the multicast group address
+     * @param port the port
+     */
+    public MulticastInvalidationTransport(String group, int port) {
+        this(address(group), port, null, 1);
+    }
+
+    /**
+     * Construct a transport
+     *
+     * @param group the multicast group address
+     * @param port the port
+     * @param networkInterface the network interface to send and receive datagrams, or
+     *                         `null` to use the system default
+     * @param timeToLive the multicast time to live, `0` restricts datagrams to the local host
+     */
+    public MulticastInvalidationTransport(InetAddress group, int port, NetworkInterface networkInterface, int timeToLive) {
+        this.groupAddress = new InetSocketAddress($.requireNotNull(group), port);
+        this.networkInterface = networkInterface;
+        try {
+            socket = new MulticastSocket(null);
+            socket.setReuseAddress(true);
+            socket.bind(new InetSocketAddress(port));
+            socket.setTimeToLive(timeToLive);
+            // loopback is enabled by default so that nodes on the same host can talk
+            if (null != networkInterface) {
+                socket.setNetworkInterface(networkInterface);
+            }
+            socket.joinGroup(groupAddress, networkInterface);
+        } catch (IOException e) {
+            throw new UnexpectedException(e, "error opening multicast socket on %s:%s", group, port);
+        }
+        receiverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receiveLoop();
+            }
+        }, "osgl-aaa-invalidation-receiver");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+
+    @Override
+    public void send(List<AAAChangeEvent> events) {
+        if (closed || events.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream packet = new ByteArrayOutputStream(MAX_PACKET_SIZE);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            int count = 0;
+            for (AAAChangeEvent event : events) {
+                buf.reset();
+                boolean oversize;
+                try {
+                    if (!write(event, new DataOutputStream(buf))) {
+                        continue;
+                    }
+                    oversize = buf.size() > MAX_PACKET_SIZE;
+                } catch (UTFDataFormatException e) {
+                    // the name is longer than `writeUTF` can encode
+                    oversize = true;
+                }
+                if (oversize) {
+                    logger.warn("ignore change event exceeding the datagram size limit: %s %s, name length %s",
+                            event.operation(), event.type().getSimpleName(), event.name().length());
+                    continue;
+                }
+                if (count > 0 && packet.size() + buf.size() > MAX_PACKET_SIZE) {
+                    sendPacket(packet, count);
+                    packet.reset();
+                    count = 0;
+                }
+                buf.writeTo(packet);
+                count++;
+            }
+            if (count > 0) {
+                sendPacket(packet, count);
+            }
+        } catch (IOException e) {
+            logger.error(e, "error sending change events");
+        }
+    }
+
+    @Override
+    public void setReceiver(AAAChangeListener receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.leaveGroup(groupAddress, networkInterface);
+        } catch (IOException e) {
+            logger.warn(e, "error leaving multicast group");
+        }
+        socket.close();
+    }
+
+    private void sendPacket(ByteArrayOutputStream events, int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(events.size() + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeUTF(nodeId);
+        out.writeShort(count);
+        events.writeTo(out);
+        out.flush();
+        byte[] data = bytes.toByteArray();
+        socket.send(new DatagramPacket(data, data.length, groupAddress));
+    }
+
+    private void receiveLoop() {
+        byte[] buf = new byte[MAX_PACKET_SIZE + 1024];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        while (!closed) {
+            try {
+                packet.setLength(buf.length);
+                socket.receive(packet);
+                receive(new DataInputStream(new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength())));
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.warn(e, "error receiving change events");
+                }
+            } catch (RuntimeException e) {
+                logger.warn(e, "error decoding change events from %s", packet.getSocketAddress());
+            }
+        }
+    }
+
+    private void receive(DataInputStream in) throws IOException {
+        if (MAGIC != in.readInt() || nodeId.equals(in.readUTF())) {
+            return;
+        }
+        AAAChangeListener listener = receiver;
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; ++i) {
+            AAAChangeEvent event = read(in);
+            if (null != event && null != listener) {
+                try {
+                    listener.onChange(event);
+                } catch (RuntimeException e) {
+                    logger.error(e, "error receiving change event: %s", event);
+                }
+            }
+        }
+    }
+
+    // returns `false` if the event type cannot be sent
+    private static boolean write(AAAChangeEvent event, DataOutputStream out) throws IOException {
+        Class<? extends AAAObject> type = wireType(event.type());
+        if (null == type) {
+            logger.warn("ignore change event of non standard AAA object type: %s", event.type().getName());
+            return false;
+        }
+        out.writeUTF(type.getName());
+        out.writeByte(event.operation().ordinal());
+        String name = event.name();
+        out.writeBoolean(null != name);
+        if (null != name) {
+            out.writeUTF(name);
+        }
+        out.flush();
+        return true;
+    }
+
+    // returns `null` if the event type or operation is unknown
+    private static AAAChangeEvent read(DataInputStream in) throws IOException {
+        String typeName = in.readUTF();
+        int ordinal = in.readUnsignedByte();
+        String name = in.readBoolean() ? in.readUTF() : null;
+        AAAChangeEvent.Operation[] operations = AAAChangeEvent.Operation.values();
+        if (ordinal >= operations.length) {
+            logger.warn("ignore change event of unknown operation: %s", ordinal);
+            return null;
+        }
+        Class<? extends AAAObject> type = typeOf(typeName);
+        if (null == type) {
+            logger.warn("ignore change event of unknown type: %s", typeName);
+            return null;
+        }
+        return new AAAChangeEvent(type, name, operations[ordinal]);
+    }
+
+    private static List<Class<? extends AAAObject>> wireTypes() {
+        List<Class<? extends AAAObject>> types = new ArrayList<Class<? extends AAAObject>>(4);
+        types.add(Permission.class);
+        types.add(Privilege.class);
+        types.add(Role.class);
+        types.add(Principal.class);
+        return Collections.unmodifiableList(types);
+    }
+
+    private static Class<? extends AAAObject> wireType(Class<? extends AAAObject> type) {
+        for (Class<? extends AAAObject> wireType : WIRE_TYPES) {
+            if (wireType.isAssignableFrom(type)) {
+                return wireType;
+            }
+        }
+        return null;
+    }
+
+    private static Class<? extends AAAObject> typeOf(String typeName) {
+        for (Class<? extends AAAObject> wireType : WIRE_TYPES) {
+            if (wireType.getName().equals(typeName)) {
+                return wireType;
+            }
+        }
+        return null;
+    }
+
+    private static InetAddress address(String host) {
+        try {
+            return InetAddress.getByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("unknown host: " + host, e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.*;
+import org.osgl.logging.LogManager;
+import org.osgl.logging.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link AAAPersistentService} decorator that publishes an {@link AAAChangeEvent}
+ * to the {@link AAAChangeListener listeners} registered after each
+ * {@link #save(AAAObject) save}, {@link #remove(AAAObject) remove} and
+ * {@link #removeAll(Class) removeAll} call.
+ *
+ * A typical setup that keeps the AAA caches in sync with the persistent storage:
+ *
+ * ```java
+ * ObservablePersistentService db = new ObservablePersistentService(new CachedPersistentService(myDb));
+ * AAAContext context = new SimpleAAAContext(authen, author, db);
+ * db.addListener(new CacheInvalidationListener(context));
+ * ```
+ *
+ * Listeners are called synchronously on the thread that made the change. An
+ * exception raised by a listener is logged and does not affect the other listeners.
+ *
+ * The service implements {@link AAAPersistentService.Async}, the asynchronous lookup
+ * is passed to the decorated service if it implements {@link AAAPersistentService.Async},
+ * otherwise the synchronous lookup result is passed to the callback.
+ */
+public class ObservablePersistentService implements AAAPersistentService.Async {
+
+    private static final Logger logger = LogManager.get(ObservablePersistentService.class);
+
+    private final AAAPersistentService db;
+    private final List<AAAChangeListener> listeners = new CopyOnWriteArrayList<AAAChangeListener>();
+
+    /**
+     * Construct an `ObservablePersistentService`
+     * @param persistentService the persistent service to be decorated
+     */
+    public ObservablePersistentService(AAAPersistentService persistentService) {
+        this.db = $.requireNotNull(persistentService);
+    }
+
+    /**
+     * Returns the decorated persistent service
+     * @return the persistent service decorated
+     */
+    public AAAPersistentService getPersistentService() {
+        return db;
+    }
+
+    /**
+     * Register a change listener
+     * @param listener the listener
+     * @return this service
+     */
+    public ObservablePersistentService addListener(AAAChangeListener listener) {
+        listeners.add($.requireNotNull(listener));
+        return this;
+    }
+
+    /**
+     * Unregister a change listener
+     * @param listener the listener
+     * @return this service
+     */
+    public ObservablePersistentService removeListener(AAAChangeListener listener) {
+        listeners.remove(listener);
+        return this;
+    }
+
+    /**
+     * Publish a change event to all listeners registered. This method can be used to
+     * notify changes that are not made through this service, e.g. changes made by
+     * another process
+     *
+     * @param event the change event
+     */
+    public void publish(AAAChangeEvent event) {
+        for (AAAChangeListener listener : listeners) {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                logger.error(e, "error notifying change event: %s", event);
+            }
+        }
+    }
+
+    @Override
+    public void save(AAAObject aaaObject) {
+        db.save(aaaObject);
+        publish(AAAChangeEvent.saved(aaaObject));
+    }
+
+    @Override
+    public void remove(AAAObject aaaObject) {
+        db.remove(aaaObject);
+        publish(AAAChangeEvent.removed(aaaObject));
+    }
+
+    @Override
+    public <T extends AAAObject> void removeAll(Class<T> clz) {
+        db.removeAll(clz);
+        publish(AAAChangeEvent.removedAll(clz));
+    }
+
+    @Override
+    public <T extends AAAObject> T findByName(String name, Class<T> clz) {
+        return db.findByName(name, clz);
+    }
+
+    @Override
+    public <T extends AAAObject> void findByName(String name, Class<T> clz, AsyncCallback<T> callback) {
+        $.requireNotNull(callback);
+        if (db instanceof AAAPersistentService.Async) {
+            ((AAAPersistentService.Async) db).findByName(name, clz, callback);
+            return;
+        }
+        T found;
+        try {
+            found = db.findByName(name, clz);
+        } catch (RuntimeException e) {
+            callback.onFailure(e);
+            return;
+        }
+        callback.onSuccess(found);
+    }
+
+    @Override
+    public Privilege findPrivilege(int level) {
+        return db.findPrivilege(level);
+    }
+
+    @Override
+    public Iterable<Privilege> allPrivileges() {
+        return db.allPrivileges();
+    }
+
+    @Override
+    public Iterable<Permission> allPermissions() {
+        return db.allPermissions();
+    }
+
+    @Override
+    public Iterable<Role> allRoles() {
+        return db.allRoles();
+    }
+
+    @Override
+    public Iterable<String> allPrivilegeNames() {
+        return db.allPrivilegeNames();
+    }
+
+    @Override
+    public Iterable<String> allPermissionNames() {
+        return db.allPermissionNames();
+    }
+
+    @Override
+    public Iterable<String> allRoleNames() {
+        return db.allRoleNames();
+    }
+}
@@ -0,0 +1,225 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.Permission;
+import org.osgl.logging.LogManager;
+import org.osgl.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles the {@link Permission#implied() implication graph} of permissions
+ * into a closure table.
+ *
+ * The closure of a permission is the permission itself plus all permissions
+ * implied by it directly or transitively. Closures are computed once with
+ * Tarjan's strongly connected component algorithm, which collapses cycles like
+ * `A -> B -> A` into one component, and cached by
+ * {@link PermissionRegistry#idOf(Permission) permission ID}.
+ *
+ * A cached closure is reused as long as it is requested with the same permission
+ * instance it was compiled from. As a closure embeds the closures of the permissions
+ * it implies, all cached closures are dropped when a closure is stored for a new
+ * instance of a permission, e.g. a permission reloaded from the persistent service.
+ * Application that mutates the implied permissions of a permission instance in place
+ * shall call {@link #clear()}
+ */
+public final class PermissionClosure {
+
+    private static final Logger logger = LogManager.get(PermissionClosure.class);
+
+    private static volatile Entry[] table = new Entry[64];
+
+    // bumped when a permission instance is replaced, entries of
+    // previous epochs might embed the closure of the old instance
+    private static volatile int epoch;
+
+    private PermissionClosure() {}
+
+    /**
+     * Returns the closure of the permission specified
+     *
+     * @param permission the permission
+     * @return the permission and all permissions implied by it
+     */
+    public static PermissionSet of(Permission permission) {
+        PermissionSet closure = cached(permission);
+        return null != closure ? closure : compile(permission, epoch);
+    }
+
+    /**
+     * Clear the closure table
+     */
+    public static synchronized void clear() {
+        table = new Entry[table.length];
+        epoch++;
+    }
+
+    private static PermissionSet cached(Permission permission) {
+        int id = PermissionRegistry.idOf(permission);
+        Entry[] t = table;
+        if (id < t.length) {
+            Entry e = t[id];
+            if (null != e && e.permission == permission && e.epoch == epoch) {
+                return e.closure;
+            }
+        }
+        return null;
+    }
+
+    // `compileEpoch` is the epoch when the compilation started
+    private static synchronized void store(Permission permission, PermissionSet closure, int compileEpoch) {
+        int id = PermissionRegistry.idOf(permission);
+        Entry[] t = table;
+        if (id >= t.length) {
+            t = Arrays.copyOf(t, Math.max(id + 1, t.length << 1));
+        } else if (null != t[id] && t[id].permission != permission) {
+            epoch++;
+        }
+        t[id] = new Entry(permission, closure, compileEpoch);
+        table = t;
+    }
+
+    private static PermissionSet compile(Permission root, int compileEpoch) {
+        Map<Permission, Node> nodes = new IdentityHashMap<Permission, Node>();
+        List<Node> callStack = new ArrayList<Node>();
+        List<Node> sccStack = new ArrayList<Node>();
+        int index = 0;
+        Node rootNode = new Node(root, index++);
+        nodes.put(root, rootNode);
+        rootNode.enter(callStack, sccStack);
+        while (!callStack.isEmpty()) {
+            Node v = callStack.get(callStack.size() - 1);
+            if (v.edges.hasNext()) {
+                Permission w = v.edges.next();
+                if (null == w || w == v.permission) {
+                    continue;
+                }
+                Node wn = nodes.get(w);
+                if (null == wn) {
+                    PermissionSet known = cached(w);
+                    wn = new Node(w, index++);
+                    nodes.put(w, wn);
+                    if (null != known) {
+                        wn.closure = known;
+                    } else {
+                        wn.enter(callStack, sccStack);
+                    }
+                } else if (wn.onStack) {
+                    v.low = Math.min(v.low, wn.index);
+                }
+                continue;
+            }
+            callStack.remove(callStack.size() - 1);
+            if (!callStack.isEmpty()) {
+                Node parent = callStack.get(callStack.size() - 1);
+                parent.low = Math.min(parent.low, v.low);
+            }
+            if (v.low == v.index) {
+                collapse(v, sccStack, nodes, compileEpoch);
+            }
+        }
+        return rootNode.closure;
+    }
+
+    // pop the strongly connected component rooted at `v` and
+    // compile the closure shared by all its members
+    private static void collapse(Node v, List<Node> sccStack, Map<Permission, Node> nodes, int compileEpoch) {
+        List<Node> members = new ArrayList<Node>();
+        Node n;
+        do {
+            n = sccStack.remove(sccStack.size() - 1);
+            n.onStack = false;
+            members.add(n);
+        } while (n != v);
+        PermissionSet.Builder builder = new PermissionSet.Builder();
+        for (Node m : members) {
+            builder.add(m.permission);
+        }
+        for (Node m : members) {
+            for (Permission w : implied(m.permission)) {
+                if (null == w || w == m.permission) {
+                    continue;
+                }
+                Node wn = nodes.get(w);
+                if (null != wn.closure) {
+                    builder.addAll(wn.closure);
+                }
+            }
+        }
+        PermissionSet closure = builder.toSet();
+        for (Node m : members) {
+            m.closure = closure;
+            store(m.permission, closure, compileEpoch);
+        }
+    }
+
+    private static Set<Permission> implied(Permission permission) {
+        Set<Permission> implied = permission.implied();
+        if (null == implied) {
+            logger.warn(new RuntimeException(""), "Null implied found on permission: %s", permission.getName());
+            return PermissionSet.EMPTY;
+        }
+        return implied;
+    }
+
+    private static class Node {
+        final Permission permission;
+        final int index;
+        int low;
+        boolean onStack;
+        Iterator<Permission> edges;
+        PermissionSet closure;
+
+        Node(Permission permission, int index) {
+            this.permission = permission;
+            this.index = index;
+            this.low = index;
+        }
+
+        void enter(List<Node> callStack, List<Node> sccStack) {
+            edges = implied(permission).iterator();
+            onStack = true;
+            callStack.add(this);
+            sccStack.add(this);
+        }
+    }
+
+    private static class Entry {
+        final Permission permission;
+        final PermissionSet closure;
+        final int epoch;
+
+        Entry(Permission permission, PermissionSet closure, int epoch) {
+            this.permission = permission;
+            this.closure = closure;
+            this.epoch = epoch;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.Permission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A process wide registry that interns {@link Permission permission} names into
+ * dense integer IDs.
+ *
+ * Permissions are identified by name, thus two permission instances with the
+ * same name always get the same ID. The IDs start from `0` and are never
+ * reclaimed, which makes them suitable to be used as bit index in a
+ * {@link PermissionSet}
+ */
+public final class PermissionRegistry {
+
+    private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    private static volatile int size;
+
+    private PermissionRegistry() {}
+
+    /**
+     * Returns the ID of the permission specified. If the permission name has
+     * not been registered yet, then a new ID will be allocated to it.
+     *
+     * @param permission the permission
+     * @return the ID of the permission
+     */
+    public static int idOf(Permission permission) {
+        if (permission instanceof SimplePermission) {
+            return ((SimplePermission) permission).id();
+        }
+        return idOf(permission.getName());
+    }
+
+    /**
+     * Returns the ID of the permission name specified. If the name has
+     * not been registered yet, then a new ID will be allocated to it.
+     *
+     * @param permissionName the permission name
+     * @return the ID of the permission name
+     */
+    public static int idOf(String permissionName) {
+        Integer id = ids.get(permissionName);
+        if (null != id) {
+            return id;
+        }
+        synchronized (ids) {
+            id = ids.get(permissionName);
+            if (null == id) {
+                id = size;
+                ids.put(permissionName, id);
+                size = id + 1;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of the permission specified without registering it.
+     *
+     * @param permission the permission
+     * @return the ID of the permission or `-1` if the permission name has not been registered
+     */
+    public static int lookup(Permission permission) {
+        if (permission instanceof SimplePermission) {
+            return ((SimplePermission) permission).lookupId();
+        }
+        return lookup(permission.getName());
+    }
+
+    /**
+     * Returns the ID of the permission name specified without registering it.
+     *
+     * Unlike {@link #idOf(String)}, it does not allocate an ID for an unknown name,
+     * thus it is safe to be called with names from untrusted input.
+     *
+     * @param permissionName the permission name
+     * @return the ID of the permission name or `-1` if the name has not been registered
+     */
+    public static int lookup(String permissionName) {
+        Integer id = null == permissionName ? null : ids.get(permissionName);
+        return null == id ? -1 : id;
+    }
+
+    /**
+     * Returns the number of permission names registered
+     *
+     * @return the number of IDs allocated
+     */
+    public static int size() {
+        return size;
+    }
+
+}
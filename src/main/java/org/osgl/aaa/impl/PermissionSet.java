@@ -0,0 +1,186 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.Permission;
+import org.osgl.util.E;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable {@link Permission} set backed by a bitset indexed by
+ * {@link PermissionRegistry#idOf(Permission) permission ID}.
+ *
+ * Checking membership is a single word test and does not rely on the
+ * `equals`/`hashCode` of the permission implementation.
+ */
+public final class PermissionSet extends AbstractSet<Permission> {
+
+    /**
+     * An empty permission set
+     */
+    public static final PermissionSet EMPTY = new PermissionSet(new long[0], new Permission[0]);
+
+    private final long[] bits;
+    private final Permission[] permissions;
+
+    private PermissionSet(long[] bits, Permission[] permissions) {
+        this.bits = bits;
+        this.permissions = permissions;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Permission)) {
+            return false;
+        }
+        // a permission never registered cannot be in any set
+        int id = PermissionRegistry.lookup((Permission) o);
+        return id >= 0 && contains(id);
+    }
+
+    /**
+     * Check if the permission identified by the ID specified is in this set
+     *
+     * @param permissionId the permission ID
+     * @return `true` if the permission is in this set or `false` otherwise
+     */
+    public boolean contains(int permissionId) {
+        int word = permissionId >>> 6;
+        return word < bits.length && (bits[word] & (1L << permissionId)) != 0;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof PermissionSet) {
+            long[] that = ((PermissionSet) c).bits;
+            for (int i = 0; i < that.length; ++i) {
+                long word = i < bits.length ? bits[i] : 0L;
+                if ((that[i] & ~word) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return super.containsAll(c);
+    }
+
+    @Override
+    public Iterator<Permission> iterator() {
+        return new Iterator<Permission>() {
+            private int cursor;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < permissions.length;
+            }
+
+            @Override
+            public Permission next() {
+                if (cursor >= permissions.length) {
+                    throw new NoSuchElementException();
+                }
+                return permissions[cursor++];
+            }
+
+            @Override
+            public void remove() {
+                throw E.unsupport();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return permissions.length;
+    }
+
+    /**
+     * The builder to build up a {@link PermissionSet}. The first instance added
+     * of a certain permission name is kept in the set built
+     */
+    public static class Builder {
+        private long[] bits = new long[Math.max(1, (PermissionRegistry.size() + 63) >>> 6)];
+        private Permission[] permissions = new Permission[8];
+        private int size;
+
+        /**
+         * Add a permission into the builder
+         *
+         * @param permission the permission to be added
+         * @return `true` if the permission was not in the builder
+         */
+        public boolean add(Permission permission) {
+            int id = PermissionRegistry.idOf(permission);
+            int word = id >>> 6;
+            if (word >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length << 1));
+            }
+            long mask = 1L << id;
+            if ((bits[word] & mask) != 0) {
+                return false;
+            }
+            bits[word] |= mask;
+            if (size == permissions.length) {
+                permissions = Arrays.copyOf(permissions, size << 1);
+            }
+            permissions[size++] = permission;
+            return true;
+        }
+
+        /**
+         * Add all permissions from the collection specified
+         *
+         * @param permissions the permissions to be added
+         * @return this builder
+         */
+        public Builder addAll(Iterable<? extends Permission> permissions) {
+            for (Permission permission : permissions) {
+                add(permission);
+            }
+            return this;
+        }
+
+        /**
+         * Check if the permission has been added into this builder
+         *
+         * @param permission the permission
+         * @return `true` if the permission has been added
+         */
+        public boolean contains(Permission permission) {
+            int id = PermissionRegistry.idOf(permission);
+            int word = id >>> 6;
+            return word < bits.length && (bits[word] & (1L << id)) != 0;
+        }
+
+        public PermissionSet toSet() {
+            if (0 == size) {
+                return EMPTY;
+            }
+            return new PermissionSet(bits.clone(), Arrays.copyOf(permissions, size));
+        }
+    }
+
+}
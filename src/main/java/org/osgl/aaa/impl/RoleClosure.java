@@ -0,0 +1,94 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.Permission;
+import org.osgl.aaa.Role;
+import org.osgl.util.C;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Computes the permissions of a role including those inherited from the parent
+ * roles declared by {@link Role.Hierarchical}.
+ *
+ * The result of a {@link SimpleRole} is computed once and cached in the role
+ * instance, which is safe as a `SimpleRole` is immutable.
+ */
+public final class RoleClosure {
+
+    private RoleClosure() {}
+
+    /**
+     * Returns the permissions of the role specified and all its ancestor roles,
+     * without duplicates
+     *
+     * @param role the role
+     * @return an immutable list of permissions
+     */
+    public static C.List<Permission> permissionsOf(Role role) {
+        if (role instanceof SimpleRole) {
+            return ((SimpleRole) role).getAllPermissions();
+        }
+        if (role instanceof Role.Hierarchical) {
+            return compute(role).permissions;
+        }
+        return AAAObjectBase.immutableList(role.getPermissions());
+    }
+
+    static Closure compute(Role role) {
+        PermissionSet.Builder seen = new PermissionSet.Builder();
+        C.List<Permission> buf = C.newList();
+        Set<Role> visited = new HashSet<Role>();
+        Deque<Role> queue = new ArrayDeque<Role>();
+        queue.add(role);
+        visited.add(role);
+        while (!queue.isEmpty()) {
+            Role r = queue.poll();
+            for (Permission p : r.getPermissions()) {
+                if (null != p && seen.add(p)) {
+                    buf.add(p);
+                }
+            }
+            if (r instanceof Role.Hierarchical) {
+                for (Role parent : ((Role.Hierarchical) r).getParentRoles()) {
+                    if (null != parent && visited.add(parent)) {
+                        queue.add(parent);
+                    }
+                }
+            }
+        }
+        return new Closure(AAAObjectBase.<Permission>immutableList(buf), seen.toSet());
+    }
+
+    static final class Closure {
+        final C.List<Permission> permissions;
+        final PermissionSet permissionSet;
+
+        Closure(C.List<Permission> permissions, PermissionSet permissionSet) {
+            this.permissions = permissions;
+            this.permissionSet = permissionSet;
+        }
+    }
+}
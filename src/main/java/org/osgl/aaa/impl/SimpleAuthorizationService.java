@@ -20,22 +20,86 @@ package org.osgl.aaa.impl;
  * #L%
  */
 
-import org.osgl.$;
 import org.osgl.aaa.*;
 import org.osgl.logging.LogManager;
 import org.osgl.logging.Logger;
 import org.osgl.util.C;
+import org.osgl.util.E;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A simple authorization service implementation
+ *
+ * The effective permissions of a principal, i.e. the result of
+ * {@link #getAllPermissions(Principal, AAAContext)}, are compiled into an
+ * immutable {@link PermissionSet} snapshot the first time they are requested and reused
+ * for the same principal instance until the snapshot is invalidated. Looking up a snapshot
+ * takes constant time, it does not walk the roles and permissions again. A snapshot is
+ * rebuilt when another principal instance with the same name is passed in, e.g. after the
+ * principal is reloaded from the persistent service.
+ *
+ * Changes made to the roles and permissions, or to the principal instance in place, are
+ * not detected. They shall be reported by calling {@link #invalidate(String)} or
+ * {@link #invalidateAll()}, which is done by {@link CacheInvalidationListener} on each
+ * {@link AAAChangeEvent} published by {@link ObservablePersistentService}.
+ *
+ * When the number of snapshots reaches the limit, a snapshot that has not been used
+ * since the last eviction sweep is evicted.
+ *
+ * The permissions of the roles and their ancestor roles are obtained through
+ * {@link #getPermissions(Role, AAAContext)}. Only when it is not overridden the
+ * permission closure cached in the role is used.
+ *
+ * Note {@link #getAllPermissions(Principal, AAAContext)} returns an immutable collection
  */
 public class SimpleAuthorizationService implements AuthorizationService {
 
+    /**
+     * The default maximum number of principal snapshots kept in the cache
+     */
+    public static final int DEF_MAX_SNAPSHOTS = 10000;
+
     private static Logger logger = LogManager.get(SimpleAuthorizationService.class);
 
+    private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+
+    // bumped by `invalidateAll`, snapshots of previous generations are stale
+    private final AtomicLong generation = new AtomicLong();
+
+    // bumped by any invalidation, so that a snapshot built concurrently with
+    // an invalidation is not kept
+    private final AtomicLong version = new AtomicLong();
+
+    private final int maxSnapshots;
+
+    // whether `getPermissions(Role, AAAContext)` is overridden, in which case
+    // the permissions of the ancestor roles are obtained through it as well
+    private final boolean rolePermissionsOverridden;
+
+    public SimpleAuthorizationService() {
+        this(DEF_MAX_SNAPSHOTS);
+    }
+
+    /**
+     * Construct a `SimpleAuthorizationService` with the maximum number of principal
+     * snapshots to be cached. When the limit is reached a snapshot not used recently
+     * is evicted.
+     *
+     * @param maxSnapshots the maximum number of snapshots to be cached
+     */
+    public SimpleAuthorizationService(int maxSnapshots) {
+        E.illegalArgumentIf(maxSnapshots < 1, "maxSnapshots shall be positive");
+        this.maxSnapshots = maxSnapshots;
+        this.rolePermissionsOverridden = SimpleAuthorizationService.class != declaringClassOf("getPermissions", Role.class, AAAContext.class);
+    }
+
     @Override
     public Privilege getPrivilege(Principal principal, AAAContext context) {
         return principal.getPrivilege();
@@ -58,29 +122,133 @@ public class SimpleAuthorizationService implements AuthorizationService {
 
     @Override
     public Collection<Permission> getAllPermissions(Principal principal, AAAContext context) {
+        String name = principal.getName();
+        long gen = generation.get();
+        Snapshot snapshot = snapshots.get(name);
+        if (null != snapshot && snapshot.principal == principal && snapshot.generation == gen) {
+            if (!snapshot.used) {
+                snapshot.used = true;
+            }
+            return snapshot.permissions;
+        }
+        long v = version.get();
+        snapshot = new Snapshot(principal, gen, buildAllPermissions(principal, context));
+        if (snapshots.size() >= maxSnapshots) {
+            evictOne();
+        }
+        snapshots.put(name, snapshot);
+        if (v != version.get()) {
+            // invalidated while the snapshot is being built
+            snapshots.remove(name, snapshot);
+        }
+        return snapshot.permissions;
+    }
+
+    /**
+     * Remove the cached permission snapshot of the principal specified
+     *
+     * @param principalName the name of the principal
+     */
+    public void invalidate(String principalName) {
+        version.incrementAndGet();
+        snapshots.remove(principalName);
+    }
+
+    /**
+     * Remove all cached permission snapshots
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        generation.incrementAndGet();
+        snapshots.clear();
+    }
+
+    // second chance eviction: removes the first snapshot that is not used since
+    // the previous sweep, and marks the used ones as unused on the way
+    private void evictOne() {
+        Iterator<Snapshot> itr = snapshots.values().iterator();
+        while (itr.hasNext()) {
+            Snapshot snapshot = itr.next();
+            if (!snapshot.used) {
+                itr.remove();
+                return;
+            }
+            snapshot.used = false;
+        }
+        itr = snapshots.values().iterator();
+        if (itr.hasNext()) {
+            itr.next();
+            itr.remove();
+        }
+    }
+
+    protected PermissionSet buildAllPermissions(Principal principal, AAAContext context) {
         C.List<Permission> perms = C.newList(getPermissions(principal, context)).lazy();
-        C.list(getRoles(principal, context)).accept($.visitor(Role.F.PERMISSION_GETTER.andThen(C.F.addAllTo(perms))));
-        Set<Permission> retVal = C.newSet();
+        for (Role role : getRoles(principal, context)) {
+            perms.addAll(!rolePermissionsOverridden && role instanceof Role.Hierarchical
+                    ? RoleClosure.permissionsOf(role) : permissionsWithAncestors(role, context));
+        }
+        PermissionSet.Builder retVal = new PermissionSet.Builder();
         for (Permission p : perms) {
             if (null == p) {
                 logger.warn(new RuntimeException(), "Null permission found on principal %s", principal.getName());
                 continue;
             }
-            collectPermission(retVal, p);
+            retVal.addAll(PermissionClosure.of(p));
         }
-        return retVal;
+        return retVal.toSet();
     }
 
-    private void collectPermission(Set<Permission> set, Permission p) {
-        Set<Permission> implied = p.implied();
-        if (null == implied) {
-            logger.warn(new RuntimeException(""), "Null implied found on permission: %s", p.getName());
+    // collects the permissions of the role and its ancestor roles through
+    // `getPermissions(Role, AAAContext)`
+    private Collection<Permission> permissionsWithAncestors(Role role, AAAContext context) {
+        if (!(role instanceof Role.Hierarchical)) {
+            return getPermissions(role, context);
+        }
+        List<Permission> perms = new ArrayList<Permission>();
+        List<Role> visited = new ArrayList<Role>();
+        visited.add(role);
+        for (int i = 0; i < visited.size(); ++i) {
+            Role r = visited.get(i);
+            perms.addAll(getPermissions(r, context));
+            if (r instanceof Role.Hierarchical) {
+                for (Role parent : ((Role.Hierarchical) r).getParentRoles()) {
+                    if (null != parent && !containsInstance(visited, parent)) {
+                        visited.add(parent);
+                    }
+                }
+            }
         }
-        for (Permission p0 : p.implied()) {
-            if (p0 != p) {
-                collectPermission(set, p0);
+        return perms;
+    }
+
+    private static boolean containsInstance(List<Role> roles, Role role) {
+        for (Role r : roles) {
+            if (r == role) {
+                return true;
             }
         }
-        set.add(p);
+        return false;
+    }
+
+    private Class<?> declaringClassOf(String methodName, Class<?>... parameterTypes) {
+        try {
+            return getClass().getMethod(methodName, parameterTypes).getDeclaringClass();
+        } catch (NoSuchMethodException e) {
+            throw E.unexpected(e);
+        }
+    }
+
+    private static class Snapshot {
+        final Principal principal;
+        final long generation;
+        final PermissionSet permissions;
+        volatile boolean used;
+
+        Snapshot(Principal principal, long generation, PermissionSet permissions) {
+            this.principal = principal;
+            this.generation = generation;
+            this.permissions = permissions;
+        }
     }
 }
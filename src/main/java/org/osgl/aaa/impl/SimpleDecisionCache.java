@@ -0,0 +1,273 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.$;
+import org.osgl.aaa.DecisionCache;
+import org.osgl.aaa.Permission;
+import org.osgl.aaa.Principal;
+import org.osgl.util.E;
+import org.osgl.util.S;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded in-memory {@link DecisionCache} implementation.
+ *
+ * Each decision expires after the configured time to live. When the number of cached
+ * decisions reaches the maximum size expired decisions are removed, and if the cache
+ * is still full it is cleared.
+ *
+ * Resources implementing {@link DecisionCache.Identifiable} are keyed by their type
+ * and id. Any other resource is keyed by identity and held through a weak reference,
+ * so the cache never keeps a resource reachable; the decisions of a collected resource
+ * are dropped on the next {@link #put(Principal, Permission, Object, boolean) put}.
+ */
+public class SimpleDecisionCache implements DecisionCache {
+
+    /**
+     * The default maximum number of decisions kept in the cache
+     */
+    public static final int DEF_MAX_SIZE = 100000;
+
+    /**
+     * The default time to live of a decision in seconds
+     */
+    public static final int DEF_TTL = 60;
+
+    private final ConcurrentMap<Key, Decision> decisions = new ConcurrentHashMap<Key, Decision>();
+
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    public SimpleDecisionCache() {
+        this(DEF_MAX_SIZE, DEF_TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Construct a `SimpleDecisionCache` with the maximum size and time to live
+     *
+     * @param maxSize the maximum number of decisions to be cached
+     * @param ttl the time to live of a decision
+     * @param unit the time unit of `ttl`
+     */
+    public SimpleDecisionCache(int maxSize, long ttl, TimeUnit unit) {
+        E.illegalArgumentIf(maxSize < 1, "maxSize shall be positive");
+        E.illegalArgumentIf(ttl < 1, "ttl shall be positive");
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    @Override
+    public Boolean get(Principal principal, Permission permission, Object resource) {
+        Key key = Key.lookup(principal.getName(), permission.getName(), resource);
+        Decision decision = decisions.get(key);
+        if (null == decision) {
+            return null;
+        }
+        if (decision.expired(System.nanoTime())) {
+            decisions.remove(key, decision);
+            return null;
+        }
+        return decision.associated;
+    }
+
+    @Override
+    public void put(Principal principal, Permission permission, Object resource, boolean associated) {
+        long now = System.nanoTime();
+        purgeCollected();
+        if (decisions.size() >= maxSize) {
+            evictExpired(now);
+            if (decisions.size() >= maxSize) {
+                decisions.clear();
+            }
+        }
+        decisions.put(Key.stored(principal.getName(), permission.getName(), resource, collected), new Decision(associated, now + ttlNanos));
+    }
+
+    @Override
+    public void invalidatePrincipal(String principalName) {
+        Iterator<Key> itr = decisions.keySet().iterator();
+        while (itr.hasNext()) {
+            if (S.eq(principalName, itr.next().principal)) {
+                itr.remove();
+            }
+        }
+    }
+
+    @Override
+    public void invalidatePermission(String permissionName) {
+        Iterator<Key> itr = decisions.keySet().iterator();
+        while (itr.hasNext()) {
+            if (S.eq(permissionName, itr.next().permission)) {
+                itr.remove();
+            }
+        }
+    }
+
+    @Override
+    public void invalidateResource(Object resource) {
+        Key probe = Key.lookup("", "", resource);
+        Iterator<Key> itr = decisions.keySet().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().sameResource(probe)) {
+                itr.remove();
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        decisions.clear();
+    }
+
+    /**
+     * Returns the number of decisions in the cache, including the expired ones
+     * that have not been removed yet
+     * @return the size of the cache
+     */
+    public int size() {
+        return decisions.size();
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<Key, Decision>> itr = decisions.entrySet().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().getValue().expired(now)) {
+                itr.remove();
+            }
+        }
+    }
+
+    private void purgeCollected() {
+        for (Object ref = collected.poll(); null != ref; ref = collected.poll()) {
+            decisions.remove(((ResourceRef) ref).key);
+        }
+    }
+
+    // A resource is identified either by type and id, in which case `id` is set,
+    // or by identity, in which case `target` (lookup keys) or `ref` (stored keys)
+    // is set
+    private static final class Key {
+        final String principal;
+        final String permission;
+        final Class<?> type;
+        final Object id;
+        final Object target;
+        final ResourceRef ref;
+        final int hash;
+
+        private Key(String principal, String permission, Object resource, ReferenceQueue<Object> queue) {
+            this.principal = principal;
+            this.permission = permission;
+            int resourceHash;
+            if (resource instanceof DecisionCache.Identifiable) {
+                this.type = resource.getClass();
+                this.id = $.requireNotNull(((DecisionCache.Identifiable) resource).resourceId());
+                this.target = null;
+                this.ref = null;
+                resourceHash = 31 * type.hashCode() + id.hashCode();
+            } else {
+                this.type = null;
+                this.id = null;
+                this.target = null == queue ? resource : null;
+                this.ref = null == queue ? null : new ResourceRef(resource, queue, this);
+                resourceHash = System.identityHashCode(resource);
+            }
+            this.hash = 31 * (31 * principal.hashCode() + permission.hashCode()) + resourceHash;
+        }
+
+        // a key used to look up decisions, holds the resource strongly
+        static Key lookup(String principal, String permission, Object resource) {
+            return new Key(principal, permission, resource, null);
+        }
+
+        // a key kept in the cache, does not keep the resource reachable
+        static Key stored(String principal, String permission, Object resource, ReferenceQueue<Object> queue) {
+            return new Key(principal, permission, resource, queue);
+        }
+
+        Object resource() {
+            return null != ref ? ref.get() : target;
+        }
+
+        boolean sameResource(Key that) {
+            if (null != id) {
+                return type == that.type && id.equals(that.id);
+            }
+            if (null != that.id) {
+                return false;
+            }
+            Object resource = resource();
+            return null != resource && resource == that.resource();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return hash == that.hash && principal.equals(that.principal)
+                    && permission.equals(that.permission) && sameResource(that);
+        }
+    }
+
+    private static final class ResourceRef extends WeakReference<Object> {
+        final Key key;
+
+        ResourceRef(Object resource, ReferenceQueue<Object> queue, Key key) {
+            super(resource, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Decision {
+        final Boolean associated;
+        final long expireAt;
+
+        Decision(boolean associated, long expireAt) {
+            this.associated = associated;
+            this.expireAt = expireAt;
+        }
+
+        boolean expired(long now) {
+            return now - expireAt > 0;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.osgl.aaa.AAAMetrics;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An in-memory {@link AAAMetrics} implementation that keeps counters per permission,
+ * per privilege level and latency histograms of dynamic permission check helpers
+ * per permission.
+ */
+public class SimpleMetrics implements AAAMetrics {
+
+    private final ConcurrentMap<String, Counter> permissionChecks = new ConcurrentHashMap<String, Counter>();
+    private final ConcurrentMap<Integer, Counter> privilegeChecks = new ConcurrentHashMap<Integer, Counter>();
+    private final ConcurrentMap<String, AtomicLong> denials = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, Histogram> helperLatencies = new ConcurrentHashMap<String, Histogram>();
+
+    @Override
+    public void onPermissionCheck(String permission, boolean granted) {
+        counter(permissionChecks, permission).inc(granted);
+    }
+
+    @Override
+    public void onPrivilegeCheck(int privilegeLevel, boolean granted) {
+        counter(privilegeChecks, privilegeLevel).inc(granted);
+    }
+
+    @Override
+    public void onDenial(String permission, String privilege) {
+        String key = null != permission ? permission : privilege;
+        if (null == key) {
+            return;
+        }
+        AtomicLong count = denials.get(key);
+        if (null == count) {
+            AtomicLong newCount = new AtomicLong();
+            count = denials.putIfAbsent(key, newCount);
+            if (null == count) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    @Override
+    public void onHelperInvocation(String permission, Class<?> resourceType, long nanos) {
+        Histogram histogram = helperLatencies.get(permission);
+        if (null == histogram) {
+            Histogram newHistogram = new Histogram();
+            histogram = helperLatencies.putIfAbsent(permission, newHistogram);
+            if (null == histogram) {
+                histogram = newHistogram;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Returns the names of the permissions that have been checked
+     * @return the permission names
+     */
+    public Set<String> permissions() {
+        return Collections.unmodifiableSet(permissionChecks.keySet());
+    }
+
+    /**
+     * Returns the check counter of the permission specified
+     * @param permission the permission name
+     * @return the counter or `null` if the permission has not been checked
+     */
+    public Counter permissionChecks(String permission) {
+        return permissionChecks.get(permission);
+    }
+
+    /**
+     * Returns the check counter of the privilege level specified
+     * @param privilegeLevel the privilege level
+     * @return the counter or `null` if the privilege level has not been checked
+     */
+    public Counter privilegeChecks(int privilegeLevel) {
+        return privilegeChecks.get(privilegeLevel);
+    }
+
+    /**
+     * Returns the number of `requireXxx` failures of the permission, or the privilege
+     * if no permission was required
+     * @param name the permission or privilege name
+     * @return the number of denials
+     */
+    public long denials(String name) {
+        AtomicLong count = denials.get(name);
+        return null == count ? 0 : count.get();
+    }
+
+    /**
+     * Returns the latency histogram of the dynamic permission check helpers on the
+     * permission specified
+     * @param permission the permission name
+     * @return the histogram or `null` if no helper has been invoked on the permission
+     */
+    public Histogram helperLatency(String permission) {
+        return helperLatencies.get(permission);
+    }
+
+    /**
+     * Reset all metrics
+     */
+    public void reset() {
+        permissionChecks.clear();
+        privilegeChecks.clear();
+        denials.clear();
+        helperLatencies.clear();
+    }
+
+    private static <K> Counter counter(ConcurrentMap<K, Counter> map, K key) {
+        Counter counter = map.get(key);
+        if (null == counter) {
+            Counter newCounter = new Counter();
+            counter = map.putIfAbsent(key, newCounter);
+            if (null == counter) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Counts checks and grants
+     */
+    public static class Counter {
+        private final AtomicLong checks = new AtomicLong();
+        private final AtomicLong granted = new AtomicLong();
+
+        void inc(boolean isGranted) {
+            checks.incrementAndGet();
+            if (isGranted) {
+                granted.incrementAndGet();
+            }
+        }
+
+        public long checks() {
+            return checks.get();
+        }
+
+        public long granted() {
+            return granted.get();
+        }
+
+        public long rejected() {
+            return checks.get() - granted.get();
+        }
+    }
+
+    /**
+     * A latency histogram with power of two buckets in nanoseconds
+     */
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos | 1));
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long m = max.get();
+            while (nanos > m && !max.compareAndSet(m, nanos)) {
+                m = max.get();
+            }
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        public long totalNanos() {
+            return total.get();
+        }
+
+        public long maxNanos() {
+            return max.get();
+        }
+
+        public long meanNanos() {
+            long n = count.get();
+            return 0 == n ? 0 : total.get() / n;
+        }
+
+        /**
+         * Returns the upper bound of the bucket that contains the percentile specified
+         * @param percentile the percentile, e.g. `0.99`
+         * @return the upper bound of the percentile latency in nanoseconds
+         */
+        public long percentileNanos(double percentile) {
+            long n = count.get();
+            if (0 == n) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * n);
+            long seen = 0;
+            for (int i = 0; i < 64; ++i) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i >= 62 ? Long.MAX_VALUE : (2L << i) - 1;
+                }
+            }
+            return max.get();
+        }
+    }
+}
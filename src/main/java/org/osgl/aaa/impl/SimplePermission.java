@@ -27,6 +27,7 @@ import org.osgl.util.E;
 import org.osgl.util.S;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -36,6 +37,8 @@ public class SimplePermission extends AAAObjectBase implements Permission {
 
     private boolean dynamic;
     private Set<Permission> implied = C.newSet();
+    private transient int id = -1;
+    private transient volatile Set<Permission> impliedView;
 
     public SimplePermission() {
         super();
@@ -64,17 +67,54 @@ public class SimplePermission extends AAAObjectBase implements Permission {
 
     @Override
     public Set<Permission> implied() {
-        if (null == implied) {
-            return C.Set();
+        Set<Permission> view = impliedView;
+        if (null == view) {
+            if (null == implied) {
+                return C.Set();
+            }
+            Set<Permission> set = C.newSet();
+            set.addAll(implied);
+            set.add(this);
+            view = Collections.unmodifiableSet(set);
+            impliedView = view;
         }
-        Set<Permission> set = C.newSet();
-        set.addAll(implied);
-        set.add(this);
-        return set;
+        return view;
     }
 
-    // used for JSON serialization
+    /**
+     * Returns the {@link PermissionRegistry#idOf(Permission) ID} of this permission.
+     * The ID is resolved once and cached in the permission instance
+     * @return the ID of this permission
+     */
+    int id() {
+        int i = id;
+        if (i < 0) {
+            i = PermissionRegistry.idOf(getName());
+            id = i;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the {@link PermissionRegistry#lookup(Permission) ID} of this permission
+     * if it has been registered, without registering it
+     * @return the ID of this permission or `-1` if not registered
+     */
+    int lookupId() {
+        int i = id;
+        if (i < 0) {
+            i = PermissionRegistry.lookup(getName());
+            if (i >= 0) {
+                id = i;
+            }
+        }
+        return i;
+    }
+
+    // used for JSON serialization. The set returned could be changed by
+    // the caller, thus the view cached by `implied()` is dropped
     public Set<Permission> getImplied() {
+        impliedView = null;
         return implied;
     }
 
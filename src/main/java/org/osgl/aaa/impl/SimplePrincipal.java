@@ -38,7 +38,7 @@ import java.util.List;
  * {@link org.osgl.aaa.AuthorizationService authorization service} to build up the acl
  * </p>
  */
-public class SimplePrincipal extends AAAObjectBase implements Principal {
+public class SimplePrincipal extends AAAObjectBase implements Principal.AllPermissionsAware {
 
     public static final $.Func1<Permission, Iterable<Permission>> EXPAND_PERMISSION =
             new $.Func1<Permission, Iterable<Permission>>() {
@@ -51,6 +51,9 @@ public class SimplePrincipal extends AAAObjectBase implements Principal {
     private Privilege privilege;
     private List<? extends Role> roles = C.list();
     private List<? extends Permission> perms = C.list();
+    private transient volatile C.List<Role> roleView;
+    private transient volatile C.List<Permission> permissionView;
+    private transient volatile C.List<Permission> allPermissions;
 
     /**
      * This constructor is designed to be used by tools like ORM to deserialize the object from
@@ -70,11 +73,13 @@ public class SimplePrincipal extends AAAObjectBase implements Principal {
         super(name);
         this.privilege = privilege;
 
-        List<Role> emptyRoles = C.list();
-        this.roles = null == roles ? emptyRoles : C.list(roles);
+        C.List<Role> roleList = immutableList(roles);
+        this.roles = roleList;
+        this.roleView = roleList;
 
-        List<Permission> emptyPerms = C.list();
-        this.perms = null == perms ? emptyPerms : C.list(perms);
+        C.List<Permission> permList = immutableList(perms);
+        this.perms = permList;
+        this.permissionView = permList;
     }
 
     @Override
@@ -84,12 +89,57 @@ public class SimplePrincipal extends AAAObjectBase implements Principal {
 
     @Override
     public C.List<Role> getRoles() {
-        return C.list(roles);
+        C.List<Role> view = roleView;
+        if (null == view) {
+            view = immutableList(roles);
+            roleView = view;
+        }
+        return view;
     }
 
     @Override
     public C.List<Permission> getPermissions() {
-        return C.list(perms);
+        C.List<Permission> view = permissionView;
+        if (null == view) {
+            view = immutableList(perms);
+            permissionView = view;
+        }
+        return view;
+    }
+
+    /**
+     * Returns the permissions granted to this principal directly and through
+     * the roles, including the permissions the roles inherit from their parent
+     * roles, without duplicates. Implied permissions are not included.
+     *
+     * The list is computed once and cached, as both the principal and the roles
+     * are immutable
+     *
+     * @return an immutable list of all permissions granted
+     * @see Principal.F#allPermissionsOf(Principal)
+     */
+    @Override
+    public C.List<Permission> getAllPermissions() {
+        C.List<Permission> list = allPermissions;
+        if (null == list) {
+            PermissionSet.Builder seen = new PermissionSet.Builder();
+            C.List<Permission> buf = C.newList();
+            for (Permission p : getPermissions()) {
+                if (null != p && seen.add(p)) {
+                    buf.add(p);
+                }
+            }
+            for (Role role : getRoles()) {
+                for (Permission p : RoleClosure.permissionsOf(role)) {
+                    if (null != p && seen.add(p)) {
+                        buf.add(p);
+                    }
+                }
+            }
+            list = immutableList(buf);
+            allPermissions = list;
+        }
+        return list;
     }
 
     public static final Principal createSystemPrincipal(String name) {
@@ -38,7 +38,7 @@ import java.util.List;
  * to get permissions associated to the role
  * </p>
  */
-public class SimpleRole extends AAAObjectBase implements Role {
+public class SimpleRole extends AAAObjectBase implements Role.Hierarchical {
 
     /**
      * This constructor is designed to be used by tools like ORM to deserialize the object from
@@ -48,6 +48,10 @@ public class SimpleRole extends AAAObjectBase implements Role {
     }
 
     private List<? extends Permission> perms;
+    private List<? extends Role> parents = C.list();
+    private transient volatile C.List<Permission> permissionView;
+    private transient volatile C.List<Role> parentView;
+    private transient volatile RoleClosure.Closure closure;
 
     /**
      * Construct a role by name and given list of permissions
@@ -56,24 +60,81 @@ public class SimpleRole extends AAAObjectBase implements Role {
      * @param perms the permissions
      */
     public SimpleRole(String name, List<? extends Permission> perms) {
+        this(name, perms, null);
+    }
+
+    /**
+     * Construct a role by name, given list of permissions and parent roles
+     *
+     * @param name the name
+     * @param perms the permissions
+     * @param parents the roles this role inherits permissions from, could be `null`
+     */
+    public SimpleRole(String name, List<? extends Permission> perms, List<? extends Role> parents) {
         super(name);
         E.NPE(perms);
-        this.perms = C.list(perms);
+        C.List<Permission> permList = immutableList(perms);
+        this.perms = permList;
+        this.permissionView = permList;
+        C.List<Role> parentList = immutableList(parents);
+        this.parents = parentList;
+        this.parentView = parentList;
     }
 
     @Override
-    public List<Permission> getPermissions() {
-        return C.list(perms);
+    public C.List<Permission> getPermissions() {
+        C.List<Permission> view = permissionView;
+        if (null == view) {
+            view = immutableList(perms);
+            permissionView = view;
+        }
+        return view;
     }
 
+    @Override
+    public C.List<Role> getParentRoles() {
+        C.List<Role> view = parentView;
+        if (null == view) {
+            view = immutableList(parents);
+            parentView = view;
+        }
+        return view;
+    }
+
+    /**
+     * Check if the role, or any of its ancestor roles, has the permission
+     *
+     * @param permission permission
+     * @return `true` if the permission is granted to this role or inherited
+     */
     @Override
     public boolean hasPermission(Permission permission) {
-        return perms.contains(permission);
+        return closure().permissionSet.contains(permission);
+    }
+
+    /**
+     * Returns the permissions granted to this role and inherited from the ancestor
+     * roles, without duplicates. The list is computed once and cached
+     *
+     * @return an immutable list of all permissions of the role
+     */
+    public C.List<Permission> getAllPermissions() {
+        return closure().permissions;
+    }
+
+    private RoleClosure.Closure closure() {
+        RoleClosure.Closure c = closure;
+        if (null == c) {
+            c = RoleClosure.compute(this);
+            closure = c;
+        }
+        return c;
     }
 
     public static class Builder {
         protected String name;
         protected C.List<Permission> perms = C.newList();
+        protected C.List<Role> parents = C.newList();
         public Builder(String name) {
             E.illegalArgumentIf(S.blank(name));
             this.name = name;
@@ -92,8 +153,18 @@ public class SimpleRole extends AAAObjectBase implements Role {
             perms.clear();
             return this;
         }
+        public Builder inherit(Role parent) {
+            E.NPE(parent);
+            if (!parents.contains(parent)) parents.add(parent);
+            return this;
+        }
+        public Builder removeParent(final String roleName) {
+            E.NPE(roleName);
+            parents = parents.remove(AAAObject.F.nameMatcher(roleName));
+            return this;
+        }
         public Role toRole() {
-            return new SimpleRole(name, perms);
+            return new SimpleRole(name, perms, parents);
         }
     }
 }
@@ -0,0 +1,124 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.impl.InMemoryPersistentService;
+import org.osgl.aaa.impl.SimplePrivilege;
+
+public class AAAContextPrivilegeTest extends AAATestBase {
+
+    private CountingPersistentService db;
+    private Privilege user;
+    private Privilege admin;
+
+    @Before
+    public void prepare() {
+        db = new CountingPersistentService();
+        user = new SimplePrivilege("user", 10);
+        admin = new SimplePrivilege("admin", 100);
+        db.save(admin);
+        db.save(user);
+    }
+
+    @Test
+    public void exactLookup() {
+        AAAContext context = newContext(db);
+        same(user, context.findPrivilege(10));
+        same(admin, context.findPrivilege(100));
+    }
+
+    @Test
+    public void unknownLevelGivesSyntheticPrivilege() {
+        AAAContext context = newContext(db);
+        Privilege p = context.findPrivilege(42);
+        eq("p-42", p.getName());
+        eq(42, p.getLevel());
+        // synthetic privileges are not indexed
+        notSame(p, context.findPrivilege(42));
+        isNull(context.floorPrivilege(5));
+    }
+
+    @Test
+    public void floorLookup() {
+        AAAContext context = newContext(db);
+        isNull(context.floorPrivilege(9));
+        same(user, context.floorPrivilege(10));
+        same(user, context.floorPrivilege(99));
+        same(admin, context.floorPrivilege(100));
+        same(admin, context.floorPrivilege(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void indexIsSharedByContextsOnSameService() {
+        AAAContext c1 = newContext(db);
+        AAAContext c2 = newContext(db);
+        same(user, c1.findPrivilege(10));
+        same(admin, c2.findPrivilege(100));
+        same(user, c2.floorPrivilege(50));
+        eq(1, db.scans);
+    }
+
+    @Test
+    public void privilegeResolvedOutsideIndexIsCached() {
+        AAAContext context = newContext(db);
+        context.findPrivilege(10);
+        Privilege guest = new SimplePrivilege("guest", 1);
+        db.save(guest);
+        same(guest, context.findPrivilege(1));
+        int lookups = db.lookups;
+        same(guest, context.findPrivilege(1));
+        eq(lookups, db.lookups);
+        // floor lookup is bound to the privileges when the index is built
+        isNull(context.floorPrivilege(5));
+    }
+
+    @Test
+    public void refreshRebuildsIndex() {
+        AAAContext c1 = newContext(db);
+        AAAContext c2 = newContext(db);
+        same(user, c1.floorPrivilege(50));
+        Privilege operator = new SimplePrivilege("operator", 50);
+        db.save(operator);
+        same(user, c2.floorPrivilege(50));
+        c1.refreshPrivilegeIndex();
+        same(operator, c2.floorPrivilege(50));
+        eq(2, db.scans);
+    }
+
+    private static class CountingPersistentService extends InMemoryPersistentService {
+        int scans;
+        int lookups;
+
+        @Override
+        public Iterable<Privilege> allPrivileges() {
+            scans++;
+            return super.allPrivileges();
+        }
+
+        @Override
+        public Privilege findPrivilege(int level) {
+            lookups++;
+            return super.findPrivilege(level);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.osgl.aaa.impl.InMemoryPersistentService;
+import org.osgl.aaa.impl.SimpleAAAContext;
+import org.osgl.aaa.impl.SimpleAuthorizationService;
+import osgl.ut.TestBase;
+
+/**
+ * Base class of the AAA tests, provides context set up and resets the
+ * process wide settings of {@link AAA} after each test
+ */
+public abstract class AAATestBase extends TestBase {
+
+    protected static final AuthenticationService NO_AUTHENTICATION = new AuthenticationService() {
+        @Override
+        public Principal authenticate(String username, String password) {
+            return null;
+        }
+
+        @Override
+        public Principal authenticate(String username, char[] password) {
+            return null;
+        }
+    };
+
+    protected static AAAContext newContext(AAAPersistentService db) {
+        return new SimpleAAAContext(NO_AUTHENTICATION, new SimpleAuthorizationService(), db);
+    }
+
+    protected static AAAContext newContext() {
+        return newContext(new InMemoryPersistentService());
+    }
+
+    @After
+    public void resetAAA() {
+        AAA.clearContext();
+        AAA.setDecisionCache(null);
+        AAA.setMetrics(null);
+        AAA.setDenialMode(DenialMode.FULL_STACK);
+        AAA.clearEnumBindings();
+    }
+}
@@ -0,0 +1,219 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.impl.InMemoryPersistentService;
+import org.osgl.aaa.impl.SimplePermission;
+import org.osgl.aaa.impl.SimplePrincipal;
+import org.osgl.exception.AccessDeniedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncPermissionCheckTest extends AAATestBase {
+
+    private AAAContext context;
+    private Principal alice;
+    private Principal bob;
+
+    @Before
+    public void prepare() {
+        InMemoryPersistentService db = new InMemoryPersistentService();
+        Permission read = new SimplePermission("read", false);
+        Permission edit = new SimplePermission("edit", true);
+        db.save(read);
+        db.save(edit);
+        alice = new SimplePrincipal.Builder("alice").grantPermission(read).grantPermission(edit).toPrincipal();
+        bob = new SimplePrincipal.Builder("bob").toPrincipal();
+        context = newContext(db);
+    }
+
+    @Test
+    public void staticPermissionIsGranted() {
+        Recorder<Boolean> callback = new Recorder<Boolean>();
+        AAA.hasPermissionAsync(null, alice, "read", context, callback);
+        callback.assertSucceeded(true);
+        callback.reset();
+        AAA.hasPermissionAsync(null, bob, "read", context, callback);
+        callback.assertSucceeded(false);
+    }
+
+    @Test
+    public void unknownPermissionIsDenied() {
+        Recorder<Boolean> callback = new Recorder<Boolean>();
+        AAA.hasPermissionAsync(null, alice, "no-such-permission", context, callback);
+        callback.assertSucceeded(false);
+    }
+
+    @Test
+    public void requireReportsDenialAsFailure() {
+        Recorder<Void> callback = new Recorder<Void>();
+        AAA.requirePermissionAsync(null, bob, "read", context, callback);
+        eq(0, callback.successes);
+        eq(1, callback.failures.size());
+        yes(callback.failures.get(0) instanceof AccessDeniedException);
+    }
+
+    @Test
+    public void missingContextIsReportedAsFailure() {
+        AAA.clearContext();
+        Recorder<Boolean> callback = new Recorder<Boolean>();
+        AAA.hasPermissionAsync(null, alice, "read", null, callback);
+        eq(0, callback.successes);
+        eq(1, callback.failures.size());
+    }
+
+    @Test
+    public void helperResultIsDeliveredOnce() {
+        AAA.registerDynamicPermissionChecker(new AsyncHelper<Doc>() {
+            @Override
+            public void isAssociated(Doc target, Principal user, AsyncCallback<Boolean> callback) {
+                callback.onSuccess(true);
+                // misbehaving helper reports again
+                callback.onSuccess(false);
+                callback.onFailure(new IllegalStateException("late failure"));
+            }
+        }, Doc.class);
+        Recorder<Boolean> callback = new Recorder<Boolean>();
+        AAA.hasPermissionAsync(new Doc(), alice, "edit", context, callback);
+        callback.assertSucceeded(true);
+    }
+
+    @Test
+    public void helperExceptionIsReportedAsFailure() {
+        AAA.registerDynamicPermissionChecker(new AsyncHelper<Report>() {
+            @Override
+            public void isAssociated(Report target, Principal user, AsyncCallback<Boolean> callback) {
+                throw new IllegalStateException("helper failure");
+            }
+        }, Report.class);
+        Recorder<Boolean> callback = new Recorder<Boolean>();
+        AAA.hasPermissionAsync(new Report(), alice, "edit", context, callback);
+        eq(0, callback.successes);
+        eq(1, callback.failures.size());
+        eq("helper failure", callback.failures.get(0).getMessage());
+    }
+
+    @Test
+    public void callbackExceptionIsNotTakenAsFailure() {
+        AAA.registerDynamicPermissionChecker(new AsyncHelper<Note>() {
+            @Override
+            public void isAssociated(Note target, Principal user, AsyncCallback<Boolean> callback) {
+                callback.onSuccess(true);
+            }
+        }, Note.class);
+        Recorder<Boolean> callback = new Recorder<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                super.onSuccess(result);
+                throw new IllegalArgumentException("callback failure");
+            }
+        };
+        try {
+            AAA.hasPermissionAsync(new Note(), alice, "edit", context, callback);
+            fail("callback exception shall be thrown to the caller");
+        } catch (IllegalArgumentException e) {
+            eq("callback failure", e.getMessage());
+        }
+        eq(1, callback.successes);
+        isEmpty(callback.failures);
+    }
+
+    @Test
+    public void helperCompletingOnAnotherThread() throws Exception {
+        AAA.registerDynamicPermissionChecker(new AsyncHelper<Memo>() {
+            @Override
+            public void isAssociated(Memo target, final Principal user, final AsyncCallback<Boolean> callback) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onSuccess("alice".equals(user.getName()));
+                    }
+                }).start();
+            }
+        }, Memo.class);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Recorder<Boolean> callback = new Recorder<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                super.onSuccess(result);
+                latch.countDown();
+            }
+        };
+        AAA.hasPermissionAsync(new Memo(), alice, "edit", context, callback);
+        yes(latch.await(5, TimeUnit.SECONDS));
+        callback.assertSucceeded(true);
+    }
+
+    private static class Doc {}
+
+    private static class Report {}
+
+    private static class Note {}
+
+    private static class Memo {}
+
+    private abstract static class AsyncHelper<T> implements DynamicPermissionCheckHelper.Async<T> {
+        @Override
+        public List<? extends Permission> permissions() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isAssociated(T target, Principal user) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Recorder<T> implements AsyncCallback<T> {
+        volatile int successes;
+        volatile T result;
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        @Override
+        public void onSuccess(T result) {
+            successes++;
+            this.result = result;
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            failures.add(cause);
+        }
+
+        void assertSucceeded(T expected) {
+            eq(1, successes);
+            eq(expected, result);
+            isEmpty(failures);
+        }
+
+        void reset() {
+            successes = 0;
+            result = null;
+            failures.clear();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.impl.InMemoryPersistentService;
+import org.osgl.aaa.impl.SimplePermission;
+import org.osgl.aaa.impl.SimplePrincipal;
+import org.osgl.aaa.impl.SimplePrivilege;
+import org.osgl.exception.AccessDeniedException;
+
+import java.util.Collections;
+import java.util.List;
+
+public class AuthorizationCheckTest extends AAATestBase {
+
+    private enum Perms {
+        EDIT_ORDER
+    }
+
+    private InMemoryPersistentService db;
+    private AAAContext context;
+    private Principal alice;
+    private Principal bob;
+
+    @Before
+    public void prepare() {
+        db = new InMemoryPersistentService();
+        Permission edit = new SimplePermission("EDIT_ORDER", false);
+        Permission view = new SimplePermission("VIEW_ORDER", true);
+        db.save(edit);
+        db.save(view);
+        alice = new SimplePrincipal.Builder("alice").grantPermission(edit).grantPermission(view)
+                .grantPrivilege(new SimplePrivilege("user", 10)).toPrincipal();
+        bob = new SimplePrincipal.Builder("bob").grantPrivilege(new SimplePrivilege("admin", 100)).toPrincipal();
+        context = newContext(db);
+    }
+
+    @Test
+    public void compiledByNameBeforeContextIsSet() {
+        AuthorizationCheck check = AAA.compile("EDIT_ORDER");
+        eq("EDIT_ORDER", check.permissionName());
+        yes(check.check(null, alice, context));
+        no(check.check(null, bob, context));
+    }
+
+    @Test
+    public void compiledByEnum() {
+        AuthorizationCheck check = AAA.compile(Perms.EDIT_ORDER);
+        eq("EDIT_ORDER", check.permissionName());
+        yes(check.check(null, alice, context));
+    }
+
+    @Test
+    public void permissionIsResolvedInCurrentContext() {
+        AuthorizationCheck check = AAA.compile("EDIT_ORDER");
+        AAA.setContext(context);
+        same(db.findByName("EDIT_ORDER", Permission.class), check.permission());
+
+        InMemoryPersistentService db2 = new InMemoryPersistentService();
+        Permission edit2 = new SimplePermission("EDIT_ORDER", false);
+        db2.save(edit2);
+        AAA.setContext(newContext(db2));
+        same(edit2, check.permission());
+    }
+
+    @Test
+    public void permissionIsResolvedAgainAfterBindingsCleared() {
+        AuthorizationCheck check = AAA.compile("EDIT_ORDER");
+        AAA.setContext(context);
+        Permission edit = check.permission();
+        Permission edit2 = new SimplePermission("EDIT_ORDER", false);
+        db.save(edit2);
+        same(edit, check.permission());
+        AAA.clearEnumBindings();
+        same(edit2, check.permission());
+    }
+
+    @Test
+    public void unknownPermissionIsDenied() {
+        AuthorizationCheck check = AAA.compile("NO_SUCH_PERMISSION");
+        AAA.setContext(context);
+        isNull(check.permission());
+        no(check.check(null, alice, context));
+        yes(check.tryRequire(null, alice, context).isDenied());
+        try {
+            check.require(null, alice, context);
+            fail("access shall be denied");
+        } catch (AccessDeniedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void privilegeCheck() {
+        AuthorizationCheck check = AAA.compile(new SimplePrivilege("manager", 50));
+        isNull(check.permissionName());
+        no(check.check(null, alice, context));
+        yes(check.check(null, bob, context));
+    }
+
+    @Test
+    public void permissionOrPrivilege() {
+        Permission edit = db.findByName("EDIT_ORDER", Permission.class);
+        AuthorizationCheck check = AAA.compile(edit, new SimplePrivilege("manager", 50));
+        yes(check.check(null, alice, context));
+        yes(check.check(null, bob, context));
+        no(check.check(null, new SimplePrincipal.Builder("carol").toPrincipal(), context));
+    }
+
+    @Test
+    public void dynamicPermissionUsesHelperOfResourceType() {
+        OwnerHelper<Order> helper = new OwnerHelper<Order>();
+        AAA.registerDynamicPermissionChecker(helper, Order.class);
+        AuthorizationCheck check = AAA.compile("VIEW_ORDER");
+        yes(check.check(new Order("alice"), alice, context));
+        no(check.check(new Order("carol"), alice, context));
+        eq(2, helper.calls);
+        // not granted the permission, the helper is not consulted
+        no(check.check(new Order("bob"), bob, context));
+        eq(2, helper.calls);
+    }
+
+    @Test
+    public void helperRegisteredLaterIsPickedUp() {
+        AuthorizationCheck check = AAA.compile("VIEW_ORDER");
+        OwnerHelper<Invoice> first = new OwnerHelper<Invoice>();
+        AAA.registerDynamicPermissionChecker(first, Invoice.class);
+        yes(check.check(new Invoice("alice"), alice, context));
+        eq(1, first.calls);
+        OwnerHelper<Invoice> second = new OwnerHelper<Invoice>();
+        AAA.registerDynamicPermissionChecker(second, Invoice.class);
+        yes(check.check(new Invoice("alice"), alice, context));
+        eq(1, first.calls);
+        eq(1, second.calls);
+    }
+
+    private static class Owned {
+        final String owner;
+
+        Owned(String owner) {
+            this.owner = owner;
+        }
+    }
+
+    private static class Order extends Owned {
+        Order(String owner) {
+            super(owner);
+        }
+    }
+
+    private static class Invoice extends Owned {
+        Invoice(String owner) {
+            super(owner);
+        }
+    }
+
+    private static class OwnerHelper<T extends Owned> implements DynamicPermissionCheckHelper<T> {
+        int calls;
+
+        @Override
+        public List<? extends Permission> permissions() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isAssociated(T target, Principal user) {
+            calls++;
+            return target.owner.equals(user.getName());
+        }
+    }
+}
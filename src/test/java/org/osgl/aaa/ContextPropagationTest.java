@@ -0,0 +1,168 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.impl.InMemoryPersistentService;
+import org.osgl.aaa.impl.SimplePermission;
+import org.osgl.aaa.impl.SimplePrincipal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ContextPropagationTest extends AAATestBase {
+
+    private ExecutorService pool;
+    private InMemoryPersistentService db;
+    private AAAContext context;
+    private Principal alice;
+
+    @Before
+    public void prepare() {
+        pool = Executors.newSingleThreadExecutor();
+        db = new InMemoryPersistentService();
+        Permission read = new SimplePermission("read", false);
+        db.save(read);
+        alice = new SimplePrincipal.Builder("alice").grantPermission(read).toPrincipal();
+        context = newContext(db);
+        context.setCurrentPrincipal(alice);
+        context.setGuardedTarget("doc");
+        AAA.setContext(context);
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        pool.shutdownNow();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void taskSeesCapturedPrincipalAndTarget() throws Exception {
+        Callable<Object[]> task = AAA.wrap(new Callable<Object[]>() {
+            @Override
+            public Object[] call() {
+                AAAContext ctx = AAA.context();
+                return new Object[]{ctx.getCurrentPrincipal(), ctx.getGuardedTarget(), ctx.getPersistentService()};
+            }
+        });
+        Object[] seen = pool.submit(task).get();
+        same(alice, seen[0]);
+        eq("doc", seen[1]);
+        same(db, seen[2]);
+    }
+
+    @Test
+    public void snapshotIsNotAffectedByClearContext() throws Exception {
+        Callable<Principal> task = AAA.wrap(new Callable<Principal>() {
+            @Override
+            public Principal call() {
+                return AAA.context().getCurrentPrincipal();
+            }
+        });
+        AAA.clearContext();
+        isNull(context.getCurrentPrincipal());
+        same(alice, pool.submit(task).get());
+    }
+
+    @Test
+    public void taskChangesDoNotLeakToOriginalContext() throws Exception {
+        final Principal bob = new SimplePrincipal.Builder("bob").toPrincipal();
+        pool.submit(AAA.wrap(new Runnable() {
+            @Override
+            public void run() {
+                AAA.context().setCurrentPrincipal(bob);
+                AAA.context().setGuardedTarget("other");
+            }
+        })).get();
+        same(alice, context.getCurrentPrincipal());
+        eq("doc", context.getGuardedTarget());
+    }
+
+    @Test
+    public void permissionCheckUsesCapturedPrincipal() throws Exception {
+        Callable<Boolean> task = AAA.wrap(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return AAA.hasPermission("read");
+            }
+        });
+        AAA.clearContext();
+        yes(pool.submit(task).get());
+    }
+
+    @Test
+    public void nothingIsLeftOnWorkerThread() throws Exception {
+        pool.submit(AAA.wrap(new Runnable() {
+            @Override
+            public void run() {
+            }
+        })).get();
+        AAAContext seen = pool.submit(new Callable<AAAContext>() {
+            @Override
+            public AAAContext call() {
+                return ContextScope.current();
+            }
+        }).get();
+        isNull(seen);
+    }
+
+    @Test
+    public void wrappedExecutorServicePropagatesContext() throws Exception {
+        ExecutorService wrapped = AAA.wrap(pool);
+        Callable<Principal> task = new Callable<Principal>() {
+            @Override
+            public Principal call() {
+                return AAA.context().getCurrentPrincipal();
+            }
+        };
+        Future<Principal> submitted = wrapped.submit(task);
+        List<Future<Principal>> invoked = wrapped.invokeAll(Arrays.asList(task, task));
+        same(alice, submitted.get());
+        for (Future<Principal> f : invoked) {
+            same(alice, f.get());
+        }
+    }
+
+    @Test
+    public void contextIsCapturedOnSubmit() throws Exception {
+        ExecutorService wrapped = AAA.wrap(pool);
+        final Principal bob = new SimplePrincipal.Builder("bob").toPrincipal();
+        Callable<Principal> task = new Callable<Principal>() {
+            @Override
+            public Principal call() {
+                return AAA.context().getCurrentPrincipal();
+            }
+        };
+        Future<Principal> first = wrapped.submit(task);
+        first.get();
+        context.setCurrentPrincipal(bob);
+        Future<Principal> second = wrapped.submit(task);
+        same(alice, first.get());
+        same(bob, second.get());
+    }
+}
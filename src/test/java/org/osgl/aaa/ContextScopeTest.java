@@ -0,0 +1,177 @@
+package org.osgl.aaa;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Covers the binding of {@link ContextScope}. The JVM running the tests decides
+ * whether the scoped value or the thread local binding is used, see
+ * {@link ContextScope#scopedValueEnabled()}
+ */
+public class ContextScopeTest extends AAATestBase {
+
+    private final AAAContext outer = newContext();
+    private final AAAContext inner = newContext();
+
+    @Test
+    public void contextIsBoundWithinTask() {
+        isNull(ContextScope.current());
+        final AAAContext[] seen = new AAAContext[1];
+        AAA.runWith(outer, new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = AAA.context();
+            }
+        });
+        same(outer, seen[0]);
+        isNull(ContextScope.current());
+    }
+
+    @Test
+    public void nestedBindingRestoresOuterContext() {
+        final AAAContext[] seen = new AAAContext[3];
+        AAA.runWith(outer, new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = AAA.context();
+                AAA.runWith(inner, new Runnable() {
+                    @Override
+                    public void run() {
+                        seen[1] = AAA.context();
+                    }
+                });
+                seen[2] = AAA.context();
+            }
+        });
+        same(outer, seen[0]);
+        same(inner, seen[1]);
+        same(outer, seen[2]);
+        isNull(ContextScope.current());
+    }
+
+    @Test
+    public void bindingIsRestoredWhenTaskFails() {
+        final AAAContext[] seen = new AAAContext[1];
+        AAA.runWith(outer, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    AAA.runWith(inner, new Runnable() {
+                        @Override
+                        public void run() {
+                            throw new IllegalStateException("task failure");
+                        }
+                    });
+                    fail("exception shall be propagated");
+                } catch (IllegalStateException e) {
+                    seen[0] = AAA.context();
+                }
+            }
+        });
+        same(outer, seen[0]);
+        isNull(ContextScope.current());
+    }
+
+    @Test
+    public void scopedContextTakesPrecedenceOverThreadLocal() {
+        AAA.setContext(outer);
+        final AAAContext[] seen = new AAAContext[1];
+        AAA.runWith(inner, new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = AAA.context();
+            }
+        });
+        same(inner, seen[0]);
+        same(outer, AAA.context());
+    }
+
+    @Test
+    public void callReturnsResult() throws Exception {
+        AAAContext result = AAA.callWith(outer, new Callable<AAAContext>() {
+            @Override
+            public AAAContext call() {
+                return AAA.context();
+            }
+        });
+        same(outer, result);
+        isNull(ContextScope.current());
+    }
+
+    @Test
+    public void callPropagatesCheckedException() throws Exception {
+        try {
+            AAA.callWith(outer, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw new IOException("io failure");
+                }
+            });
+            fail("exception shall be propagated");
+        } catch (IOException e) {
+            eq("io failure", e.getMessage());
+        }
+        isNull(ContextScope.current());
+    }
+
+    @Test
+    public void callPropagatesRuntimeException() throws Exception {
+        try {
+            AAA.callWith(outer, new Callable<Object>() {
+                @Override
+                public Object call() {
+                    throw new IllegalArgumentException("bad argument");
+                }
+            });
+            fail("exception shall be propagated");
+        } catch (IllegalArgumentException e) {
+            eq("bad argument", e.getMessage());
+        }
+        isNull(ContextScope.current());
+    }
+
+    @Test
+    public void bindingIsNotVisibleToOtherThreads() throws Exception {
+        final AAAContext[] seen = new AAAContext[1];
+        AAA.runWith(outer, new Runnable() {
+            @Override
+            public void run() {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        seen[0] = ContextScope.current();
+                    }
+                });
+                thread.start();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        isNull(seen[0]);
+    }
+}
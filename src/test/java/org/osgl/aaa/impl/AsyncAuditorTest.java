@@ -0,0 +1,279 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.Auditor;
+import org.osgl.aaa.Principal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncAuditorTest extends AAATestBase {
+
+    private RecordingAuditor recorder;
+    private AsyncAuditor auditor;
+
+    @Before
+    public void prepare() {
+        recorder = new RecordingAuditor();
+    }
+
+    @After
+    public void release() {
+        recorder.gate.countDown();
+        if (null != auditor) {
+            auditor.close();
+        }
+    }
+
+    @Test
+    public void eventsAreDeliveredInOrder() {
+        auditor = new AsyncAuditor.Builder(recorder).capacity(4).toAuditor();
+        recorder.gate.countDown();
+        for (int i = 0; i < 100; ++i) {
+            audit(i);
+        }
+        auditor.flush();
+        eq(messages(0, 100), recorder.messages());
+        eq(0L, auditor.dropped());
+    }
+
+    @Test
+    public void dropPolicyDropsOverflowedEvents() throws Exception {
+        auditor = blockedAuditor(AsyncAuditor.OverflowPolicy.DROP, 1);
+        audit(1);
+        for (int i = 2; i < 12; ++i) {
+            audit(i);
+        }
+        eq(10L, auditor.dropped());
+        recorder.gate.countDown();
+        auditor.flush();
+        eq(messages(0, 2), recorder.messages());
+    }
+
+    @Test
+    public void samplePolicyKeepsOneOutOfSampleRate() throws Exception {
+        auditor = blockedAuditor(AsyncAuditor.OverflowPolicy.SAMPLE, 3);
+        audit(1);
+        audit(2);
+        audit(3);
+        eq(2L, auditor.dropped());
+        // the sampled event waits for room
+        Thread producer = producer(4);
+        producer.start();
+        awaitParked(producer);
+        recorder.gate.countDown();
+        producer.join(5000);
+        no(producer.isAlive());
+        auditor.flush();
+        eq(2L, auditor.dropped());
+        List<String> expected = messages(0, 2);
+        expected.add("4");
+        eq(expected, recorder.messages());
+    }
+
+    @Test
+    public void blockPolicyWaitsForRoom() throws Exception {
+        auditor = blockedAuditor(AsyncAuditor.OverflowPolicy.BLOCK, 1);
+        audit(1);
+        Thread producer = producer(2);
+        producer.start();
+        awaitParked(producer);
+        yes(producer.isAlive());
+        recorder.gate.countDown();
+        producer.join(5000);
+        no(producer.isAlive());
+        auditor.flush();
+        eq(0L, auditor.dropped());
+        eq(messages(0, 3), recorder.messages());
+    }
+
+    @Test
+    public void closeDeliversPendingEventsFirst() throws Exception {
+        auditor = blockedAuditor(AsyncAuditor.OverflowPolicy.BLOCK, 1);
+        audit(1);
+        Thread closer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                auditor.close();
+            }
+        });
+        closer.start();
+        recorder.gate.countDown();
+        closer.join(5000);
+        no(closer.isAlive());
+        eq(messages(0, 2), recorder.messages());
+
+        // delivered synchronously after close
+        audit(2);
+        eq(messages(0, 3), recorder.messages());
+        eq(Thread.currentThread().getName(), recorder.threads.get(2));
+    }
+
+    @Test
+    public void interruptedCloseStillDeliversPendingEvents() throws Exception {
+        auditor = blockedAuditor(AsyncAuditor.OverflowPolicy.BLOCK, 1);
+        audit(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Thread closer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Thread.currentThread().interrupt();
+                auditor.close();
+                if (Thread.interrupted()) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        closer.start();
+        recorder.gate.countDown();
+        closer.join(5000);
+        no(closer.isAlive());
+        eq(0L, interrupted.getCount());
+        eq(messages(0, 2), recorder.messages());
+    }
+
+    @Test
+    public void batchAuditorReceivesBatches() throws Exception {
+        BatchRecordingAuditor batchRecorder = new BatchRecordingAuditor();
+        recorder = batchRecorder;
+        auditor = new AsyncAuditor.Builder(recorder).capacity(16).batchSize(8).toAuditor();
+        audit(0);
+        yes(recorder.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 11; ++i) {
+            audit(i);
+        }
+        recorder.gate.countDown();
+        auditor.close();
+        eq(messages(0, 11), recorder.messages());
+        eq(0, batchRecorder.singles);
+        // the first event, then the 10 pending events at most 8 at a time
+        eq("[1, 8, 2]", batchRecorder.batchSizes.toString());
+    }
+
+    @Test
+    public void auditorErrorDoesNotStopWorker() {
+        recorder.failOn = "1";
+        auditor = new AsyncAuditor.Builder(recorder).capacity(4).toAuditor();
+        recorder.gate.countDown();
+        audit(0);
+        audit(1);
+        audit(2);
+        auditor.flush();
+        eq(messages(0, 3), recorder.messages());
+    }
+
+    // returns an auditor whose worker is blocked delivering event `0`,
+    // the buffer has capacity 2 thus one more event fits in
+    private AsyncAuditor blockedAuditor(AsyncAuditor.OverflowPolicy policy, int sampleRate) throws InterruptedException {
+        AsyncAuditor auditor = new AsyncAuditor.Builder(recorder).capacity(2).overflowPolicy(policy).sampleRate(sampleRate).toAuditor();
+        this.auditor = auditor;
+        audit(0);
+        yes(recorder.entered.await(5, TimeUnit.SECONDS));
+        return auditor;
+    }
+
+    private Thread producer(final int i) {
+        return new Thread(new Runnable() {
+            @Override
+            public void run() {
+                audit(i);
+            }
+        });
+    }
+
+    private void audit(int i) {
+        auditor.audit(null, null, "perm", null, true, String.valueOf(i));
+    }
+
+    private static void awaitParked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static List<String> messages(int from, int to) {
+        List<String> list = new ArrayList<String>();
+        for (int i = from; i < to; ++i) {
+            list.add(String.valueOf(i));
+        }
+        return list;
+    }
+
+    private static class RecordingAuditor implements Auditor {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final List<String> messages = new ArrayList<String>();
+        final List<String> threads = new ArrayList<String>();
+        volatile String failOn;
+
+        @Override
+        public void audit(Object target, Principal principal, String permission, String privilege, boolean success, String message) {
+            record(message);
+            if (message.equals(failOn)) {
+                throw new IllegalStateException("audit failure");
+            }
+        }
+
+        void record(String message) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                messages.add(message);
+                threads.add(Thread.currentThread().getName());
+            }
+        }
+
+        synchronized List<String> messages() {
+            return new ArrayList<String>(messages);
+        }
+    }
+
+    private static class BatchRecordingAuditor extends RecordingAuditor implements Auditor.Batch {
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        int singles;
+
+        @Override
+        public void audit(Object target, Principal principal, String permission, String privilege, boolean success, String message) {
+            singles++;
+            super.audit(target, principal, permission, privilege, success, message);
+        }
+
+        @Override
+        public void audit(List<? extends Event> events) {
+            batchSizes.add(events.size());
+            for (Event e : events) {
+                record(e.message());
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.AAAChangeEvent;
+import org.osgl.aaa.AAAObject;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.Permission;
+import org.osgl.aaa.Role;
+import org.osgl.cache.CacheService;
+import org.osgl.cache.CacheServiceProvider;
+
+import java.util.Arrays;
+
+public class CachedPersistentServiceTest extends AAATestBase {
+
+    private CacheService cache;
+    private CountingPersistentService db;
+
+    @Before
+    public void prepare() {
+        cache = CacheServiceProvider.Impl.Simple.get("aaa-test");
+        db = new CountingPersistentService();
+    }
+
+    @Test
+    public void hitDoesNotReachPersistentService() {
+        Permission p = new SimplePermission("read", false);
+        db.save(p);
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0);
+        same(p, service.findByName("read", Permission.class));
+        same(p, service.findByName("read", Permission.class));
+        eq(1, db.lookups);
+    }
+
+    @Test
+    public void notFoundIsCached() {
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0);
+        isNull(service.findByName("missing", Permission.class));
+        isNull(service.findByName("missing", Permission.class));
+        eq(1, db.lookups);
+    }
+
+    @Test
+    public void instancesSharingCacheAreIsolated() {
+        InMemoryPersistentService db2 = new InMemoryPersistentService();
+        Permission p1 = new SimplePermission("read", false);
+        Permission p2 = new SimplePermission("read", false);
+        db.save(p1);
+        db2.save(p2);
+        CachedPersistentService s1 = new CachedPersistentService(db, cache, 0);
+        CachedPersistentService s2 = new CachedPersistentService(db2, cache, 0);
+        same(p1, s1.findByName("read", Permission.class));
+        same(p2, s2.findByName("read", Permission.class));
+        same(p1, s1.findByName("read", Permission.class));
+    }
+
+    @Test
+    public void namesAreCaseSensitiveByDefault() {
+        Permission p = new SimplePermission("Read", false);
+        db.save(p);
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0);
+        same(p, service.findByName("Read", Permission.class));
+        isNull(service.findByName("read", Permission.class));
+        same(p, service.findByName("Read", Permission.class));
+    }
+
+    @Test
+    public void ignoreCaseSharesEntry() {
+        Permission p = new SimplePermission("Read", false);
+        db.save(p);
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0, true);
+        same(p, service.findByName("Read", Permission.class));
+        same(p, service.findByName("READ", Permission.class));
+        eq(1, db.lookups);
+    }
+
+    @Test
+    public void saveEvictsEntry() {
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0);
+        isNull(service.findByName("read", Permission.class));
+        Permission p = new SimplePermission("read", false);
+        service.save(p);
+        same(p, service.findByName("read", Permission.class));
+        service.remove(p);
+        isNull(service.findByName("read", Permission.class));
+    }
+
+    @Test
+    public void changeEventEvictsEntryAndDependents() {
+        Permission read = new SimplePermission("read", false);
+        Role reader = new SimpleRole("reader", Arrays.asList(read));
+        db.save(read);
+        db.save(reader);
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0);
+        same(read, service.findByName("read", Permission.class));
+        same(reader, service.findByName("reader", Role.class));
+
+        // changed behind the cache
+        Permission read2 = new SimplePermission("read", true);
+        db.save(read2);
+        same(read, service.findByName("read", Permission.class));
+
+        service.onChange(new AAAChangeEvent(Permission.class, "read", AAAChangeEvent.Operation.SAVE));
+        same(read2, service.findByName("read", Permission.class));
+        int lookups = db.lookups;
+        service.findByName("reader", Role.class);
+        eq(lookups + 1, db.lookups);
+    }
+
+    @Test
+    public void removeAllDropsEntriesOfType() {
+        Permission p = new SimplePermission("read", false);
+        db.save(p);
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0);
+        same(p, service.findByName("read", Permission.class));
+        service.removeAll(Permission.class);
+        isNull(service.findByName("read", Permission.class));
+    }
+
+    @Test
+    public void clearDropsAllEntries() {
+        Permission p = new SimplePermission("read", false);
+        db.save(p);
+        CachedPersistentService service = new CachedPersistentService(db, cache, 0);
+        service.findByName("read", Permission.class);
+        service.clear();
+        service.findByName("read", Permission.class);
+        eq(2, db.lookups);
+    }
+
+    private static class CountingPersistentService extends InMemoryPersistentService {
+        int lookups;
+
+        @Override
+        public <T extends AAAObject> T findByName(String name, Class<T> clz) {
+            lookups++;
+            return super.findByName(name, clz);
+        }
+    }
+}
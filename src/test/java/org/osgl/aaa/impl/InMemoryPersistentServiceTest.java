@@ -0,0 +1,183 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.Permission;
+import org.osgl.aaa.Principal;
+import org.osgl.aaa.Privilege;
+import org.osgl.aaa.Role;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+public class InMemoryPersistentServiceTest extends AAATestBase {
+
+    private InMemoryPersistentService db;
+
+    @Before
+    public void prepare() {
+        db = new InMemoryPersistentService();
+    }
+
+    @Test
+    public void findByNameIsExactMatch() {
+        Permission read = new SimplePermission("Read", false);
+        db.save(read);
+        same(read, db.findByName("Read", Permission.class));
+        isNull(db.findByName("read", Permission.class));
+        isNull(db.findByName("Read", Role.class));
+    }
+
+    @Test
+    public void findByNameOfEachType() {
+        Permission read = new SimplePermission("read", false);
+        Privilege user = new SimplePrivilege("user", 10);
+        Role reader = new SimpleRole("reader", Collections.singletonList(read));
+        Principal alice = new SimplePrincipal.Builder("alice").toPrincipal();
+        db.save(read);
+        db.save(user);
+        db.save(reader);
+        db.save(alice);
+        same(read, db.findByName("read", Permission.class));
+        same(user, db.findByName("user", Privilege.class));
+        same(reader, db.findByName("reader", Role.class));
+        same(alice, db.findByName("alice", Principal.class));
+        same(read, db.findByName("read", SimplePermission.class));
+    }
+
+    @Test
+    public void privilegeLevelIndex() {
+        Privilege user = new SimplePrivilege("user", 10);
+        Privilege admin = new SimplePrivilege("admin", 100);
+        db.save(user);
+        db.save(admin);
+        same(user, db.findPrivilege(10));
+        isNull(db.findPrivilege(50));
+        isNull(db.floorPrivilege(9));
+        same(user, db.floorPrivilege(50));
+        same(admin, db.floorPrivilege(1000));
+    }
+
+    @Test
+    public void replacedPrivilegeMovesLevel() {
+        db.save(new SimplePrivilege("user", 10));
+        Privilege user = new SimplePrivilege("user", 20);
+        db.save(user);
+        isNull(db.findPrivilege(10));
+        same(user, db.findPrivilege(20));
+        same(user, db.findByName("user", Privilege.class));
+    }
+
+    @Test
+    public void removedPrivilegeLeavesSharedLevelToOther() {
+        Privilege a = new SimplePrivilege("a", 10);
+        Privilege b = new SimplePrivilege("b", 10);
+        db.save(a);
+        db.save(b);
+        db.remove(b);
+        same(a, db.findPrivilege(10));
+        db.save(b);
+        db.remove(a);
+        same(b, db.findPrivilege(10));
+        db.remove(b);
+        isNull(db.findPrivilege(10));
+    }
+
+    @Test
+    public void privilegeChangedInPlaceIsMovedOnSave() {
+        MutablePrivilege p = new MutablePrivilege("operator", 10);
+        db.save(p);
+        p.level = 20;
+        db.save(p);
+        isNull(db.findPrivilege(10));
+        same(p, db.findPrivilege(20));
+    }
+
+    @Test
+    public void privilegeChangedInPlaceIsUnindexedOnRemove() {
+        MutablePrivilege p = new MutablePrivilege("operator", 10);
+        db.save(p);
+        p.level = 20;
+        db.remove(p);
+        isNull(db.findPrivilege(10));
+        isNull(db.findPrivilege(20));
+    }
+
+    @Test
+    public void removeAllClearsLevelIndex() {
+        db.save(new SimplePrivilege("user", 10));
+        db.removeAll(Privilege.class);
+        isNull(db.findPrivilege(10));
+        isNull(db.floorPrivilege(100));
+        no(db.allPrivileges().iterator().hasNext());
+    }
+
+    @Test
+    public void snapshotIsSharedUntilChanged() {
+        Permission read = new SimplePermission("read", false);
+        db.save(read);
+        Iterable<Permission> s1 = db.allPermissions();
+        same(s1, db.allPermissions());
+        same(db.allPermissionNames(), db.allPermissionNames());
+        db.save(new SimplePermission("write", false));
+        Iterable<Permission> s2 = db.allPermissions();
+        notSame(s1, s2);
+        eq(1, count(s1));
+        eq(2, count(s2));
+        db.remove(read);
+        eq(2, count(s2));
+        eq(1, count(db.allPermissions()));
+        eq("write", db.allPermissionNames().iterator().next());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotIsImmutable() {
+        db.save(new SimplePermission("read", false));
+        Iterator<Permission> itr = db.allPermissions().iterator();
+        itr.next();
+        itr.remove();
+    }
+
+    private static int count(Iterable<?> iterable) {
+        int n = 0;
+        for (Object o : iterable) {
+            n++;
+        }
+        return n;
+    }
+
+    private static class MutablePrivilege extends SimplePrivilege {
+        int level;
+
+        MutablePrivilege(String name, int level) {
+            super(name, level);
+            this.level = level;
+        }
+
+        @Override
+        public int getLevel() {
+            return level;
+        }
+    }
+}
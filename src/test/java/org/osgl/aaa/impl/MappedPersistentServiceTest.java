@@ -0,0 +1,219 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgl.aaa.AAAObject;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.Permission;
+import org.osgl.aaa.Principal;
+import org.osgl.aaa.Privilege;
+import org.osgl.aaa.Role;
+import org.osgl.exception.UnsupportedException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MappedPersistentServiceTest extends AAATestBase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private InMemoryPersistentService source;
+    private Principal alice;
+
+    @Before
+    public void prepare() throws IOException {
+        file = new File(folder.getRoot(), "aaa.snapshot");
+        source = new InMemoryPersistentService();
+        SimplePermission read = new SimplePermission("read", false);
+        SimplePermission write = new SimplePermission("write", Collections.singletonList(read), true);
+        // implied permissions might form a cycle
+        read.getImplied().add(write);
+        source.save(read);
+        source.save(write);
+        source.save(new SimplePrivilege("user", 10));
+        source.save(new SimplePrivilege("admin", 100));
+        Role reader = new SimpleRole("reader", Collections.singletonList(read));
+        Role writer = new SimpleRole("writer", Collections.singletonList(write), Collections.singletonList(reader));
+        writer.setProperty("dept", "ops");
+        source.save(reader);
+        source.save(writer);
+        // referenced only by the principal, not in the source service
+        Permission audit = new SimplePermission("audit", false);
+        alice = new SimplePrincipal.Builder("alice").grantPrivilege(new SimplePrivilege("user", 10))
+                .grantRole(writer).grantPermission(audit).toPrincipal();
+        alice.setProperty("email", "alice@example.com");
+    }
+
+    @Test
+    public void roundTrip() {
+        MappedPersistentService db = open();
+
+        Permission read = db.findByName("read", Permission.class);
+        Permission write = db.findByName("write", Permission.class);
+        notNull(read);
+        no(read.isDynamic());
+        yes(write.isDynamic());
+        yes(write.implied().contains(read));
+        yes(read.implied().contains(write));
+
+        Privilege admin = db.findByName("admin", Privilege.class);
+        eq(100, admin.getLevel());
+
+        Role writer = db.findByName("writer", Role.class);
+        eq("ops", writer.getProperty("dept"));
+        eq(names(writer.getPermissions()), Arrays.asList("write"));
+        yes(writer instanceof Role.Hierarchical);
+        eq(names(((Role.Hierarchical) writer).getParentRoles()), Arrays.asList("reader"));
+
+        Principal p = db.findByName("alice", Principal.class);
+        eq("alice@example.com", p.getProperty("email"));
+        eq(10, p.getPrivilege().getLevel());
+        eq(names(p.getRoles()), Arrays.asList("writer"));
+        eq(names(p.getPermissions()), Arrays.asList("audit"));
+        notNull(db.findByName("audit", Permission.class));
+    }
+
+    @Test
+    public void decodedObjectIsCached() {
+        MappedPersistentService db = open();
+        same(db.findByName("writer", Role.class), db.findByName("writer", Role.class));
+        Role writer = db.findByName("writer", Role.class);
+        same(db.findByName("write", Permission.class), writer.getPermissions().iterator().next());
+    }
+
+    @Test
+    public void missingNameIsNotFound() {
+        MappedPersistentService db = open();
+        isNull(db.findByName("delete", Permission.class));
+        isNull(db.findByName("READ", Permission.class));
+        isNull(db.findByName("read", Role.class));
+        isNull(db.findByName("", Principal.class));
+    }
+
+    @Test
+    public void privilegeLevelLookup() {
+        MappedPersistentService db = open();
+        eq("user", db.findPrivilege(10).getName());
+        isNull(db.findPrivilege(50));
+        isNull(db.floorPrivilege(9));
+        eq("user", db.floorPrivilege(99).getName());
+        eq("admin", db.floorPrivilege(100).getName());
+    }
+
+    @Test
+    public void allNames() {
+        MappedPersistentService db = open();
+        eq(sorted(db.allPermissionNames()), Arrays.asList("audit", "read", "write"));
+        eq(sorted(db.allPrivilegeNames()), Arrays.asList("admin", "user"));
+        eq(sorted(db.allRoleNames()), Arrays.asList("reader", "writer"));
+        eq(names(db.allPrincipals()), Arrays.asList("alice"));
+    }
+
+    @Test
+    public void openedSnapshotIsNotAffectedByRewrite() {
+        MappedPersistentService db = open();
+        source.save(new SimplePermission("delete", false));
+        MappedPersistentService.write(file, source, Collections.singletonList(alice));
+        isNull(db.findByName("delete", Permission.class));
+        notNull(db.findByName("read", Permission.class));
+        notNull(new MappedPersistentService(file).findByName("delete", Permission.class));
+    }
+
+    @Test(expected = UnsupportedException.class)
+    public void snapshotIsReadOnly() {
+        open().save(new SimplePermission("delete", false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notSnapshotFileIsRejected() throws IOException {
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            os.write(new byte[1024]);
+        } finally {
+            os.close();
+        }
+        new MappedPersistentService(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        MappedPersistentService.write(file, source, Collections.singletonList(alice));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 4);
+        } finally {
+            raf.close();
+        }
+        new MappedPersistentService(file);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void corruptedRecordIsReported() throws IOException {
+        MappedPersistentService.write(file, source, Collections.singletonList(alice));
+        // the name length of the first record, which follows the 48 bytes header
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(48);
+            raf.writeInt(Integer.MAX_VALUE);
+        } finally {
+            raf.close();
+        }
+        MappedPersistentService db = new MappedPersistentService(file);
+        for (String name : Arrays.asList("audit", "read", "write")) {
+            db.findByName(name, Permission.class);
+        }
+    }
+
+    private MappedPersistentService open() {
+        MappedPersistentService.write(file, source, Collections.singletonList(alice));
+        return new MappedPersistentService(file);
+    }
+
+    private static List<String> names(Iterable<? extends AAAObject> objects) {
+        List<String> names = new ArrayList<String>();
+        for (AAAObject object : objects) {
+            names.add(object.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static List<String> sorted(Iterable<String> iterable) {
+        List<String> list = new ArrayList<String>();
+        for (String s : iterable) {
+            list.add(s);
+        }
+        Collections.sort(list);
+        return list;
+    }
+}
@@ -0,0 +1,170 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgl.aaa.AAAChangeEvent;
+import org.osgl.aaa.AAAChangeListener;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.Permission;
+import org.osgl.aaa.Principal;
+import org.osgl.aaa.Role;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs two transports on the loopback interface with time to live `0`. The
+ * tests are skipped if multicast is not available on the host.
+ */
+public class MulticastInvalidationTransportTest extends AAATestBase {
+
+    private MulticastInvalidationTransport sender;
+    private MulticastInvalidationTransport receiver;
+    private Recorder senderEvents = new Recorder();
+    private Recorder receiverEvents = new Recorder();
+
+    @Before
+    public void prepare() throws Exception {
+        NetworkInterface lo = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        Assume.assumeTrue("no loopback interface", null != lo);
+        InetAddress group = InetAddress.getByName(MulticastInvalidationTransport.DEF_GROUP);
+        int port = 40000 + new Random().nextInt(10000);
+        try {
+            sender = new MulticastInvalidationTransport(group, port, lo, 0);
+            receiver = new MulticastInvalidationTransport(group, port, lo, 0);
+        } catch (RuntimeException e) {
+            Assume.assumeNoException("multicast not available", e);
+        }
+        sender.setReceiver(senderEvents);
+        receiver.setReceiver(receiverEvents);
+        AAAChangeEvent probe = new AAAChangeEvent(Permission.class, "probe", AAAChangeEvent.Operation.SAVE);
+        sender.send(Collections.singletonList(probe));
+        Assume.assumeTrue("multicast datagrams not delivered", probe.equals(receiverEvents.poll()));
+    }
+
+    @After
+    public void close() {
+        if (null != sender) {
+            sender.close();
+        }
+        if (null != receiver) {
+            receiver.close();
+        }
+    }
+
+    @Test
+    public void eventsRoundTrip() throws Exception {
+        List<AAAChangeEvent> events = Arrays.asList(
+                new AAAChangeEvent(Permission.class, "read", AAAChangeEvent.Operation.SAVE),
+                new AAAChangeEvent(Role.class, "reader", AAAChangeEvent.Operation.REMOVE),
+                new AAAChangeEvent(Principal.class, null, AAAChangeEvent.Operation.REMOVE_ALL),
+                new AAAChangeEvent(Permission.class, "écrire", AAAChangeEvent.Operation.SAVE));
+        sender.send(events);
+        eq(events, receiverEvents.take(events.size()));
+    }
+
+    @Test
+    public void implementationTypeIsSentAsInterface() throws Exception {
+        sender.send(Collections.singletonList(AAAChangeEvent.saved(new SimpleRole("admin", Collections.<Permission>emptyList()))));
+        eq(new AAAChangeEvent(Role.class, "admin", AAAChangeEvent.Operation.SAVE), receiverEvents.poll());
+    }
+
+    @Test
+    public void ownEventsAreIgnored() throws Exception {
+        sender.send(Collections.singletonList(new AAAChangeEvent(Permission.class, "read", AAAChangeEvent.Operation.SAVE)));
+        notNull(receiverEvents.poll());
+        isNull(senderEvents.poll(200));
+    }
+
+    @Test
+    public void largeBatchIsSplitIntoDatagrams() throws Exception {
+        List<AAAChangeEvent> events = new ArrayList<AAAChangeEvent>();
+        char[] padding = new char[200];
+        Arrays.fill(padding, 'x');
+        for (int i = 0; i < 200; ++i) {
+            events.add(new AAAChangeEvent(Permission.class, i + new String(padding), AAAChangeEvent.Operation.SAVE));
+        }
+        sender.send(events);
+        eq(events, receiverEvents.take(events.size()));
+    }
+
+    @Test
+    public void oversizeEventIsDropped() throws Exception {
+        char[] chars = new char[9000];
+        Arrays.fill(chars, 'x');
+        AAAChangeEvent oversize = new AAAChangeEvent(Permission.class, new String(chars), AAAChangeEvent.Operation.SAVE);
+        char[] tooLong = new char[70000];
+        Arrays.fill(tooLong, 'y');
+        AAAChangeEvent unencodable = new AAAChangeEvent(Permission.class, new String(tooLong), AAAChangeEvent.Operation.SAVE);
+        AAAChangeEvent ok = new AAAChangeEvent(Permission.class, "read", AAAChangeEvent.Operation.SAVE);
+        sender.send(Arrays.asList(oversize, unencodable, ok));
+        eq(ok, receiverEvents.poll());
+        isNull(receiverEvents.poll(200));
+    }
+
+    @Test
+    public void closedTransportDoesNotSend() throws Exception {
+        sender.close();
+        sender.send(Collections.singletonList(new AAAChangeEvent(Permission.class, "read", AAAChangeEvent.Operation.SAVE)));
+        isNull(receiverEvents.poll(200));
+    }
+
+    private static class Recorder implements AAAChangeListener {
+        final BlockingQueue<AAAChangeEvent> events = new LinkedBlockingQueue<AAAChangeEvent>();
+
+        @Override
+        public void onChange(AAAChangeEvent event) {
+            events.add(event);
+        }
+
+        AAAChangeEvent poll() throws InterruptedException {
+            return poll(2000);
+        }
+
+        AAAChangeEvent poll(long millis) throws InterruptedException {
+            return events.poll(millis, TimeUnit.MILLISECONDS);
+        }
+
+        List<AAAChangeEvent> take(int n) throws InterruptedException {
+            List<AAAChangeEvent> list = new ArrayList<AAAChangeEvent>();
+            for (int i = 0; i < n; ++i) {
+                AAAChangeEvent event = poll();
+                if (null == event) {
+                    break;
+                }
+                list.add(event);
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.Permission;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+public class PermissionClosureTest extends AAATestBase {
+
+    @Test
+    public void closureContainsPermissionItself() {
+        Permission p = permission("solo");
+        PermissionSet closure = PermissionClosure.of(p);
+        eq(1, closure.size());
+        yes(closure.contains(p));
+    }
+
+    @Test
+    public void transitiveImplicationIsIncluded() {
+        Permission c = permission("c");
+        Permission b = permission("b", c);
+        Permission a = permission("a", b);
+        PermissionSet closure = PermissionClosure.of(a);
+        eq(3, closure.size());
+        yes(closure.containsAll(Arrays.asList(a, b, c)));
+        PermissionSet bClosure = PermissionClosure.of(b);
+        eq(2, bClosure.size());
+        no(bClosure.contains(a));
+    }
+
+    @Test
+    public void cycleIsCollapsed() {
+        SimplePermission a = permission("a");
+        SimplePermission b = permission("b", a);
+        Permission c = permission("c");
+        a.getImplied().add(b);
+        a.getImplied().add(c);
+        PermissionSet aClosure = PermissionClosure.of(a);
+        PermissionSet bClosure = PermissionClosure.of(b);
+        eq(3, aClosure.size());
+        yes(aClosure.containsAll(Arrays.asList(a, b, c)));
+        same(aClosure, bClosure);
+        eq(1, PermissionClosure.of(c).size());
+    }
+
+    @Test
+    public void selfImplicationIsIgnored() {
+        SimplePermission a = permission("a");
+        a.getImplied().add(a);
+        PermissionSet closure = PermissionClosure.of(a);
+        eq(1, closure.size());
+        yes(closure.contains(a));
+    }
+
+    @Test
+    public void deepChainDoesNotOverflowStack() {
+        int depth = 5000;
+        Permission tail = permission("tail");
+        Permission head = tail;
+        for (int i = 0; i < depth; ++i) {
+            head = permission("link" + i, head);
+        }
+        PermissionSet closure = PermissionClosure.of(head);
+        eq(depth + 1, closure.size());
+        yes(closure.contains(tail));
+    }
+
+    @Test
+    public void closureIsReusedForSameInstance() {
+        Permission a = permission("a", permission("b"));
+        same(PermissionClosure.of(a), PermissionClosure.of(a));
+    }
+
+    @Test
+    public void replacedInstanceInvalidatesDependentClosures() {
+        String bName = unique("b");
+        Permission b1 = new SimplePermission(bName, false);
+        Permission a = permission("a", b1);
+        eq(2, PermissionClosure.of(a).size());
+
+        // b reloaded with a new implied permission
+        Permission c = permission("c");
+        Permission b2 = new SimplePermission(bName, Collections.singleton(c));
+        eq(2, PermissionClosure.of(b2).size());
+
+        // the stale closure of `a` embedded the old closure of `b`, `a`
+        // still implies the old instance thus the recompiled closure
+        // is built from it again
+        PermissionSet aClosure = PermissionClosure.of(a);
+        eq(2, aClosure.size());
+        no(aClosure.contains(c));
+    }
+
+    @Test
+    public void clearPicksUpInPlaceMutation() {
+        SimplePermission a = permission("a");
+        eq(1, PermissionClosure.of(a).size());
+        Permission b = permission("b");
+        a.getImplied().add(b);
+        PermissionClosure.clear();
+        PermissionSet closure = PermissionClosure.of(a);
+        eq(2, closure.size());
+        yes(closure.contains(b));
+    }
+
+    private static SimplePermission permission(String prefix, Permission... implied) {
+        return new SimplePermission(unique(prefix), Arrays.asList(implied));
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,112 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.Permission;
+import org.osgl.exception.UnsupportedException;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.UUID;
+
+public class PermissionSetTest extends AAATestBase {
+
+    @Test
+    public void idIsStableAndSharedByName() {
+        String name = unique("perm");
+        int id = PermissionRegistry.idOf(name);
+        eq(id, PermissionRegistry.idOf(name));
+        eq(id, PermissionRegistry.idOf(new SimplePermission(name, false)));
+        eq(id, PermissionRegistry.lookup(name));
+    }
+
+    @Test
+    public void lookupDoesNotRegister() {
+        String name = unique("unknown");
+        int size = PermissionRegistry.size();
+        eq(-1, PermissionRegistry.lookup(name));
+        eq(-1, PermissionRegistry.lookup((String) null));
+        eq(size, PermissionRegistry.size());
+    }
+
+    @Test
+    public void membershipIsByName() {
+        String name = unique("read");
+        Permission p = new SimplePermission(name, false);
+        PermissionSet set = new PermissionSet.Builder().addAll(Arrays.asList(p)).toSet();
+        yes(set.contains(new SimplePermission(name, true)));
+        yes(set.contains(PermissionRegistry.idOf(name)));
+        no(set.contains(new SimplePermission(unique("other"), false)));
+        no(set.contains("not a permission"));
+    }
+
+    @Test
+    public void firstInstanceIsKept() {
+        String name = unique("dup");
+        Permission first = new SimplePermission(name, false);
+        PermissionSet.Builder builder = new PermissionSet.Builder();
+        yes(builder.add(first));
+        no(builder.add(new SimplePermission(name, false)));
+        PermissionSet set = builder.toSet();
+        eq(1, set.size());
+        same(first, set.iterator().next());
+    }
+
+    @Test
+    public void setSpansMultipleWords() {
+        PermissionSet.Builder builder = new PermissionSet.Builder();
+        Permission[] permissions = new Permission[200];
+        for (int i = 0; i < permissions.length; ++i) {
+            permissions[i] = new SimplePermission(unique("p" + i), false);
+            builder.add(permissions[i]);
+        }
+        PermissionSet set = builder.toSet();
+        eq(permissions.length, set.size());
+        for (Permission p : permissions) {
+            yes(set.contains(p));
+        }
+        PermissionSet subset = new PermissionSet.Builder().addAll(Arrays.asList(permissions[3], permissions[150])).toSet();
+        yes(set.containsAll(subset));
+        no(subset.containsAll(set));
+        yes(set.containsAll(Arrays.asList(permissions[0], permissions[199])));
+    }
+
+    @Test
+    public void emptyBuilderGivesEmptySet() {
+        same(PermissionSet.EMPTY, new PermissionSet.Builder().toSet());
+        no(PermissionSet.EMPTY.iterator().hasNext());
+    }
+
+    @Test(expected = UnsupportedException.class)
+    public void iteratorIsReadOnly() {
+        Permission p = new SimplePermission(unique("ro"), false);
+        Iterator<Permission> itr = new PermissionSet.Builder().addAll(Arrays.asList(p)).toSet().iterator();
+        itr.next();
+        itr.remove();
+    }
+
+    // the registry is process wide, unique names keep the tests independent
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID();
+    }
+}
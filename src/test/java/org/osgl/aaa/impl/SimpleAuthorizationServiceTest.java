@@ -0,0 +1,125 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.osgl.aaa.*;
+
+import java.util.*;
+
+public class SimpleAuthorizationServiceTest extends AAATestBase {
+
+    private final Permission read = new SimplePermission("read", false);
+    private final Permission write = new SimplePermission("write", false);
+
+    // the permissions granted directly are taken from a mutable map to simulate
+    // changes that are not visible to the principal instance
+    private final Map<String, List<Permission>> granted = new HashMap<String, List<Permission>>();
+
+    private final SimpleAuthorizationService service = new SimpleAuthorizationService() {
+        @Override
+        public Collection<Permission> getPermissions(Principal principal, AAAContext context) {
+            List<Permission> list = granted.get(principal.getName());
+            return null == list ? Collections.<Permission>emptyList() : list;
+        }
+    };
+
+    private final AAAContext context = newContext();
+
+    @Test
+    public void snapshotIsReusedForTheSamePrincipalInstance() {
+        Principal tom = principal("tom", read);
+        Collection<Permission> first = service.getAllPermissions(tom, context);
+        same(first, service.getAllPermissions(tom, context));
+        yes(first.contains(read));
+    }
+
+    @Test
+    public void snapshotIsRebuiltForAnotherInstanceWithTheSameName() {
+        Principal tom = principal("tom", read);
+        Collection<Permission> first = service.getAllPermissions(tom, context);
+        Principal reloaded = new SimplePrincipal.Builder("tom").toPrincipal();
+        Collection<Permission> second = service.getAllPermissions(reloaded, context);
+        notSame(first, second);
+    }
+
+    @Test
+    public void changeIsSeenAfterInvalidate() {
+        Principal tom = principal("tom", read);
+        no(service.getAllPermissions(tom, context).contains(write));
+        granted.put("tom", Arrays.asList(read, write));
+        // not detected until invalidated
+        no(service.getAllPermissions(tom, context).contains(write));
+        service.invalidate("tom");
+        yes(service.getAllPermissions(tom, context).contains(write));
+    }
+
+    @Test
+    public void invalidateOnlyDropsThePrincipalSpecified() {
+        Principal tom = principal("tom", read);
+        Principal ann = principal("ann", read);
+        Collection<Permission> tomPermissions = service.getAllPermissions(tom, context);
+        Collection<Permission> annPermissions = service.getAllPermissions(ann, context);
+        service.invalidate("tom");
+        notSame(tomPermissions, service.getAllPermissions(tom, context));
+        same(annPermissions, service.getAllPermissions(ann, context));
+    }
+
+    @Test
+    public void changeIsSeenAfterInvalidateAll() {
+        Principal tom = principal("tom", read);
+        Principal ann = principal("ann", read);
+        service.getAllPermissions(tom, context);
+        service.getAllPermissions(ann, context);
+        granted.put("tom", Arrays.asList(write));
+        granted.put("ann", Arrays.asList(write));
+        service.invalidateAll();
+        yes(service.getAllPermissions(tom, context).contains(write));
+        yes(service.getAllPermissions(ann, context).contains(write));
+    }
+
+    @Test
+    public void resultStaysCorrectWhenSnapshotsAreEvicted() {
+        SimpleAuthorizationService small = new SimpleAuthorizationService(2);
+        List<Principal> principals = new ArrayList<Principal>();
+        for (int i = 0; i < 10; ++i) {
+            Permission p = new SimplePermission("p" + i, false);
+            principals.add(new SimplePrincipal.Builder("u" + i).grantPermission(p).toPrincipal());
+        }
+        for (int round = 0; round < 3; ++round) {
+            for (int i = 0; i < principals.size(); ++i) {
+                Collection<Permission> all = small.getAllPermissions(principals.get(i), context);
+                eq(1, all.size());
+                eq("p" + i, all.iterator().next().getName());
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void allPermissionsIsImmutable() {
+        service.getAllPermissions(principal("tom", read), context).add(write);
+    }
+
+    private Principal principal(String name, Permission... permissions) {
+        granted.put(name, Arrays.asList(permissions));
+        return new SimplePrincipal.Builder(name).toPrincipal();
+    }
+}
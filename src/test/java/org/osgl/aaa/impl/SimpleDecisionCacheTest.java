@@ -0,0 +1,173 @@
+package org.osgl.aaa.impl;
+
+/*-
+ * #%L
+ * Java AAA Service
+ * %%
+ * Copyright (C) 2017 OSGL (Open Source General Library)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.osgl.aaa.AAA;
+import org.osgl.aaa.AAAContext;
+import org.osgl.aaa.AAATestBase;
+import org.osgl.aaa.DecisionCache;
+import org.osgl.aaa.DynamicPermissionCheckHelper;
+import org.osgl.aaa.Permission;
+import org.osgl.aaa.Principal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class SimpleDecisionCacheTest extends AAATestBase {
+
+    private final Principal alice = new SimplePrincipal.Builder("alice").toPrincipal();
+    private final Principal bob = new SimplePrincipal.Builder("bob").toPrincipal();
+    private final Permission view = new SimplePermission("view", true);
+    private final Permission edit = new SimplePermission("edit", true);
+
+    @Test
+    public void cachedDecisionIsReturned() {
+        SimpleDecisionCache cache = new SimpleDecisionCache();
+        Object resource = new Object();
+        isNull(cache.get(alice, view, resource));
+        cache.put(alice, view, resource, true);
+        cache.put(bob, view, resource, false);
+        eq(Boolean.TRUE, cache.get(alice, view, resource));
+        eq(Boolean.FALSE, cache.get(bob, view, resource));
+        isNull(cache.get(alice, edit, resource));
+        isNull(cache.get(alice, view, new Object()));
+    }
+
+    @Test
+    public void decisionExpires() throws Exception {
+        SimpleDecisionCache cache = new SimpleDecisionCache(100, 20, TimeUnit.MILLISECONDS);
+        Object resource = new Object();
+        cache.put(alice, view, resource, true);
+        eq(Boolean.TRUE, cache.get(alice, view, resource));
+        Thread.sleep(50);
+        isNull(cache.get(alice, view, resource));
+        eq(0, cache.size());
+    }
+
+    @Test
+    public void expiredDecisionsAreEvictedWhenFull() throws Exception {
+        SimpleDecisionCache cache = new SimpleDecisionCache(2, 20, TimeUnit.MILLISECONDS);
+        Object r1 = new Object();
+        Object r2 = new Object();
+        cache.put(alice, view, r1, true);
+        Thread.sleep(50);
+        cache.put(alice, view, r2, true);
+        eq(2, cache.size());
+        Object r3 = new Object();
+        cache.put(alice, view, r3, true);
+        eq(2, cache.size());
+        isNull(cache.get(alice, view, r1));
+        eq(Boolean.TRUE, cache.get(alice, view, r2));
+        eq(Boolean.TRUE, cache.get(alice, view, r3));
+    }
+
+    @Test
+    public void fullCacheIsClearedWhenNothingExpired() {
+        SimpleDecisionCache cache = new SimpleDecisionCache(2, 1, TimeUnit.HOURS);
+        Object r1 = new Object();
+        Object r2 = new Object();
+        Object r3 = new Object();
+        cache.put(alice, view, r1, true);
+        cache.put(alice, view, r2, true);
+        cache.put(alice, view, r3, true);
+        eq(1, cache.size());
+        isNull(cache.get(alice, view, r1));
+        eq(Boolean.TRUE, cache.get(alice, view, r3));
+    }
+
+    @Test
+    public void identifiableResourcesAreKeyedById() {
+        SimpleDecisionCache cache = new SimpleDecisionCache();
+        cache.put(alice, view, new Doc(1), true);
+        eq(Boolean.TRUE, cache.get(alice, view, new Doc(1)));
+        isNull(cache.get(alice, view, new Doc(2)));
+        cache.invalidateResource(new Doc(1));
+        isNull(cache.get(alice, view, new Doc(1)));
+    }
+
+    @Test
+    public void invalidation() {
+        SimpleDecisionCache cache = new SimpleDecisionCache();
+        Object resource = new Object();
+        cache.put(alice, view, resource, true);
+        cache.put(alice, edit, resource, true);
+        cache.put(bob, view, resource, true);
+        cache.invalidatePrincipal("alice");
+        isNull(cache.get(alice, view, resource));
+        isNull(cache.get(alice, edit, resource));
+        eq(Boolean.TRUE, cache.get(bob, view, resource));
+        cache.put(alice, edit, resource, true);
+        cache.invalidatePermission("view");
+        isNull(cache.get(bob, view, resource));
+        eq(Boolean.TRUE, cache.get(alice, edit, resource));
+        cache.invalidateAll();
+        eq(0, cache.size());
+    }
+
+    @Test
+    public void helperIsNotCalledWhileDecisionIsCached() throws Exception {
+        SimpleDecisionCache cache = new SimpleDecisionCache(100, 200, TimeUnit.MILLISECONDS);
+        AAA.setDecisionCache(cache);
+        CountingHelper helper = new CountingHelper();
+        AAA.registerDynamicPermissionChecker(helper, Doc.class);
+        InMemoryPersistentService db = new InMemoryPersistentService();
+        db.save(view);
+        AAAContext context = newContext(db);
+        Principal carol = new SimplePrincipal.Builder("carol").grantPermission(view).toPrincipal();
+        Doc doc = new Doc(7);
+        yes(AAA.hasPermission(doc, carol, view, context));
+        yes(AAA.hasPermission(doc, carol, view, context));
+        eq(1, helper.calls);
+        Thread.sleep(300);
+        yes(AAA.hasPermission(doc, carol, view, context));
+        eq(2, helper.calls);
+    }
+
+    private static class Doc implements DecisionCache.Identifiable {
+        final int id;
+
+        Doc(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public Object resourceId() {
+            return id;
+        }
+    }
+
+    private static class CountingHelper implements DynamicPermissionCheckHelper<Doc> {
+        int calls;
+
+        @Override
+        public List<? extends Permission> permissions() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isAssociated(Doc target, Principal user) {
+            calls++;
+            return true;
+        }
+    }
+}